@@ -0,0 +1,155 @@
+package jezorko.ffstp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A request handler that collects requests arriving concurrently from many connections
+ * and answers them with a single call of a batch handler, for example to turn many point lookups into one multi-get.
+ * One instance is meant to be shared by the {@link FriendlyServerTemplate}s of all connections:
+ * <pre>
+ * BatchingRequestHandler&lt;T&gt; handler = new BatchingRequestHandler&lt;&gt;(this::lookUpAll, 256, 2, MILLISECONDS);
+ * // on the thread of every connection
+ * server.waitForRequestAndReply(handler);
+ * </pre>
+ * Requests are batched per status. The first request of a batch waits for more requests with the same status
+ * until the batch is full or the batching window has passed, then calls the batch handler on its own thread.
+ * All other requests of the batch wait for their replies, which are routed back to the connections they came from.
+ * <br>
+ * The batch handler receives requests in the order of arrival and must return exactly one reply per request,
+ * in the same order. If it throws, or returns a different amount of replies, every request of the batch fails.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+public class BatchingRequestHandler<T> implements Function<Message<? extends T>, Message<? extends T>> {
+
+    private final Function<List<Message<T>>, List<Message<T>>> batchHandler;
+    private final int maxBatchSize;
+    private final long windowNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Batch> openBatches = new HashMap<>();
+
+    /**
+     * @param batchHandler to answer a batch of requests with the same status
+     * @param maxBatchSize amount of requests after which a batch is handled without waiting for more
+     * @param window       maximum time the first request of a batch waits for more requests
+     * @param windowUnit   unit of the window
+     */
+    public BatchingRequestHandler(Function<List<Message<T>>, List<Message<T>>> batchHandler, int maxBatchSize, long window, TimeUnit windowUnit) {
+        if (maxBatchSize <= 0 || window < 0) {
+            throw new IllegalArgumentException("batch size must be positive and window must not be negative");
+        }
+        this.batchHandler = batchHandler;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = windowUnit.toNanos(window);
+    }
+
+    /**
+     * Adds the request to the open batch of its status and waits for its reply.
+     *
+     * @param request received from one of the connections
+     *
+     * @return the reply produced for this request by the batch handler
+     */
+    @Override
+    public Message<? extends T> apply(Message<? extends T> request) {
+        final Batch batch;
+        final CompletableFuture<Message<T>> reply;
+        final boolean leader;
+        lock.lock();
+        try {
+            final Batch openBatch = openBatches.get(request.getStatus());
+            leader = openBatch == null;
+            batch = leader ? new Batch(request.getStatus()) : openBatch;
+            if (leader) {
+                openBatches.put(batch.status, batch);
+            }
+            reply = batch.add(request);
+            if (batch.requests.size() >= maxBatchSize) {
+                seal(batch);
+                batch.full.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (leader) {
+            awaitAndHandle(batch);
+        }
+        return Futures.join(reply);
+    }
+
+    private void awaitAndHandle(Batch batch) {
+        lock.lock();
+        try {
+            long remainingNanos = windowNanos;
+            while (!batch.sealed && remainingNanos > 0) {
+                remainingNanos = batch.full.awaitNanos(remainingNanos);
+            }
+            seal(batch);
+        } catch (InterruptedException exception) {
+            seal(batch);
+            Thread.currentThread()
+                  .interrupt();
+        } finally {
+            lock.unlock();
+        }
+        handle(batch);
+    }
+
+    /**
+     * Closes the batch for new requests, must be called while holding the lock.
+     */
+    private void seal(Batch batch) {
+        if (!batch.sealed) {
+            batch.sealed = true;
+            openBatches.remove(batch.status, batch);
+        }
+    }
+
+    private void handle(Batch batch) {
+        try {
+            final List<Message<T>> replies = batchHandler.apply(batch.requests);
+            if (replies == null || replies.size() != batch.requests.size()) {
+                throw new IllegalStateException("batch handler returned " + (replies == null ? "no" : replies.size()) +
+                                                " replies for " + batch.requests.size() + " requests");
+            }
+            for (int i = 0; i < replies.size(); ++i) {
+                batch.replies.get(i)
+                             .complete(replies.get(i));
+            }
+        } catch (RuntimeException | Error failure) {
+            // every request of the batch waits for its reply, so none may be left incomplete,
+            // and the leader gets the failure from its own reply like all the other requests
+            batch.replies.forEach(reply -> reply.completeExceptionally(failure));
+        }
+    }
+
+    private final class Batch {
+        private final String status;
+        private final List<Message<T>> requests = new ArrayList<>();
+        private final List<CompletableFuture<Message<T>>> replies = new ArrayList<>();
+        private final Condition full = lock.newCondition();
+        private boolean sealed;
+
+        private Batch(String status) {
+            this.status = status;
+        }
+
+        @SuppressWarnings("unchecked")
+        private CompletableFuture<Message<T>> add(Message<? extends T> request) {
+            // messages are immutable, so a message of a subtype can safely be handed out as a message of T
+            requests.add((Message<T>) request);
+            final CompletableFuture<Message<T>> reply = new CompletableFuture<>();
+            replies.add(reply);
+            return reply;
+        }
+    }
+}
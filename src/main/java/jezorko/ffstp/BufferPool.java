@@ -0,0 +1,60 @@
+package jezorko.ffstp;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of equally sized buffers lent to connections only while they have data in flight.
+ * Buffers of any other size are never pooled, so a buffer grown for an unusually large frame
+ * is dropped once the frame has been handled.
+ * <br>
+ * Not thread-safe, meant to be used by a single selector thread.
+ */
+final class BufferPool {
+
+    private final int bufferBytes;
+    private final int maxPooledBuffers;
+    private final ArrayDeque<ByteBuffer> pooledBuffers = new ArrayDeque<>();
+
+    /**
+     * @param bufferBytes      size of every pooled buffer
+     * @param maxPooledBuffers amount of returned buffers kept for reuse, the rest is left to the garbage collector
+     */
+    BufferPool(int bufferBytes, int maxPooledBuffers) {
+        this.bufferBytes = bufferBytes;
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    /**
+     * @return a cleared buffer of the pooled size
+     */
+    ByteBuffer borrow() {
+        final ByteBuffer buffer = pooledBuffers.pollLast();
+        return buffer != null ? buffer : ByteBuffer.allocate(bufferBytes);
+    }
+
+    /**
+     * @return a cleared buffer of the pooled size if it can hold the given amount of bytes or a new buffer of exactly that size
+     */
+    ByteBuffer borrow(int minimumBytes) {
+        return minimumBytes <= bufferBytes ? borrow() : ByteBuffer.allocate(minimumBytes);
+    }
+
+    /**
+     * Takes the buffer back if it has the pooled size and the pool is not full.
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferBytes && pooledBuffers.size() < maxPooledBuffers) {
+            buffer.clear();
+            pooledBuffers.addLast(buffer);
+        }
+    }
+
+    int getBufferBytes() {
+        return bufferBytes;
+    }
+
+    int getPooledCount() {
+        return pooledBuffers.size();
+    }
+}
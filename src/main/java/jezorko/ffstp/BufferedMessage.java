@@ -0,0 +1,91 @@
+package jezorko.ffstp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A received message with a raw payload kept either in memory or in a memory-mapped temporary file,
+ * as read by {@link FriendlySpillingReader}.
+ * The message must be closed once its payload is no longer needed, which gives its memory back to the budgets
+ * or deletes its file. The payload must not be used after that.
+ */
+public final class BufferedMessage implements AutoCloseable {
+
+    private final String status;
+    private final int dataBytesLength;
+    private final ByteBuffer data;
+    private final Path spillFile;
+    private final Runnable releaseMemory;
+    private boolean closed;
+
+    BufferedMessage(String status, int dataBytesLength, ByteBuffer data, Path spillFile, Runnable releaseMemory) {
+        this.status = status;
+        this.dataBytesLength = dataBytesLength;
+        this.data = data;
+        this.spillFile = spillFile;
+        this.releaseMemory = releaseMemory;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Status getStatusAsEnum() {
+        return Status.fromString(status);
+    }
+
+    public int getDataBytesLength() {
+        return dataBytesLength;
+    }
+
+    /**
+     * @return a read-only view of the payload, positioned at its beginning
+     */
+    public ByteBuffer getData() {
+        return data.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return true if the payload has been streamed to a temporary file instead of being kept in memory
+     */
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * <b>Allocates</b> a copy of the whole payload in memory, regardless of the budgets.
+     *
+     * @return a copy of the payload
+     */
+    public byte[] toByteArray() {
+        final byte[] copy = new byte[dataBytesLength];
+        getData().get(copy);
+        return copy;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (releaseMemory != null) {
+            releaseMemory.run();
+        }
+        if (spillFile != null) {
+            try {
+                // the mapping stays valid until it is garbage collected, but the file no longer takes space once it is gone
+                Files.deleteIfExists(spillFile);
+            } catch (IOException exception) {
+                // the file lies in the temporary directory, which is left to clean it up
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BufferedMessage{status='" + status + "', dataBytesLength=" + dataBytesLength + ", spilled=" + isSpilled() + '}';
+    }
+}
@@ -24,6 +24,12 @@ final class Constants {
      */
     final static Charset DEFAULT_CHARSET = US_ASCII;
 
+    /**
+     * Amount of payload bytes buffered before more arrive. Buffers grow from this size
+     * as the payload is received, instead of trusting the declared length up front.
+     */
+    final static int INITIAL_PAYLOAD_BUFFER_BYTES = 64 * 1024;
+
     /**
      * Used in {@link Message#toString()} to determine how many characters of the
      * {@link String} representation of data should be included in the {@link String}
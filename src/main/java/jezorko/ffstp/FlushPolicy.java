@@ -0,0 +1,54 @@
+package jezorko.ffstp;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how many queued frames {@link FriendlyConcurrentSender} may coalesce into a single write and flush.
+ * A batch is written as soon as it reaches the size or message count limit, or when
+ * no more frames arrived within the linger time after the first frame of the batch.
+ */
+public final class FlushPolicy {
+
+    private final static FlushPolicy IMMEDIATE = new FlushPolicy(64 * 1024, 1024, 0, TimeUnit.NANOSECONDS);
+
+    private final int maxBatchBytes;
+    private final int maxBatchMessages;
+    private final long lingerNanos;
+
+    /**
+     * @param maxBatchBytes    amount of bytes after which a batch is written without waiting for more frames
+     * @param maxBatchMessages amount of frames after which a batch is written without waiting for more frames
+     * @param linger           maximum time to wait for more frames after the first frame of a batch
+     * @param lingerUnit       unit of the linger time
+     */
+    public FlushPolicy(int maxBatchBytes, int maxBatchMessages, long linger, TimeUnit lingerUnit) {
+        if (maxBatchBytes <= 0 || maxBatchMessages <= 0 || linger < 0) {
+            throw new IllegalArgumentException("batch limits must be positive and linger time must not be negative");
+        }
+        this.maxBatchBytes = maxBatchBytes;
+        this.maxBatchMessages = maxBatchMessages;
+        this.lingerNanos = lingerUnit.toNanos(linger);
+    }
+
+    /**
+     * Returns a policy that never waits for more frames, but still coalesces
+     * all frames that are already queued when the writer becomes free.
+     *
+     * @return static instance of the policy
+     */
+    public static FlushPolicy immediate() {
+        return IMMEDIATE;
+    }
+
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public int getMaxBatchMessages() {
+        return maxBatchMessages;
+    }
+
+    public long getLingerNanos() {
+        return lingerNanos;
+    }
+}
@@ -0,0 +1,125 @@
+package jezorko.ffstp;
+
+import jezorko.ffstp.exception.InvalidHeaderException;
+import jezorko.ffstp.exception.InvalidMessageLengthException;
+import jezorko.ffstp.exception.MessageTooLongException;
+
+import java.nio.ByteBuffer;
+
+import static jezorko.ffstp.Constants.MESSAGE_DELIMITER;
+import static jezorko.ffstp.Constants.PROTOCOL_HEADER;
+
+/**
+ * Decodes frames from a {@link ByteBuffer} that may contain only a part of a frame,
+ * as opposed to {@link FriendlyForkedSocketTransferProtocolReader}, which blocks until the whole frame arrives.
+ * The decoder keeps no state, a partially received frame is simply decoded again once more bytes arrive.
+ * Malformed frames are reported with the same exceptions as the reader throws.
+ */
+final class FrameDecoder {
+
+    /**
+     * Longest length field that still fits an int.
+     */
+    private final static int MAX_LENGTH_DIGITS = 10;
+
+    private FrameDecoder() {
+    }
+
+    /**
+     * Finds the length of the frame that starts at the position of the buffer, without moving the position.
+     *
+     * @param buffer in read mode
+     *
+     * @return the length of the whole frame or -1 if its header, status or length have not been received yet
+     */
+    static int frameLength(ByteBuffer buffer) {
+        final int start = buffer.position();
+        final int limit = buffer.limit();
+        for (int i = 0; i <= PROTOCOL_HEADER.length; ++i) {
+            if (start + i == limit) {
+                return -1;
+            }
+            final byte expected = i < PROTOCOL_HEADER.length ? PROTOCOL_HEADER[i] : MESSAGE_DELIMITER;
+            final byte received = buffer.get(start + i);
+            if (received != expected) {
+                throw new InvalidHeaderException(received, i + 1);
+            }
+        }
+        final int statusEnd = indexOfDelimiter(buffer, start + PROTOCOL_HEADER.length + 1, limit);
+        if (statusEnd < 0) {
+            return -1;
+        }
+        final int lengthEnd = indexOfDelimiter(buffer, statusEnd + 1, Math.min(limit, statusEnd + 2 + MAX_LENGTH_DIGITS));
+        if (lengthEnd < 0) {
+            if (limit - statusEnd - 1 > MAX_LENGTH_DIGITS) {
+                throw new InvalidMessageLengthException(asciiString(buffer, statusEnd + 1, statusEnd + 1 + MAX_LENGTH_DIGITS),
+                                                        new NumberFormatException("too many digits"));
+            }
+            return -1;
+        }
+        final int dataBytesAmount = FriendlyForkedSocketTransferProtocolReader.parseMessageLength(asciiString(buffer, statusEnd + 1, lengthEnd));
+        final long frameLength = (long) lengthEnd + 1 - start + dataBytesAmount + 1;
+        if (frameLength > Integer.MAX_VALUE) {
+            throw new InvalidMessageLengthException(asciiString(buffer, statusEnd + 1, lengthEnd), new NumberFormatException("frame too long"));
+        }
+        return (int) frameLength;
+    }
+
+    /**
+     * Decodes a frame that has been fully received and moves the position of the buffer past it.
+     *
+     * @param buffer      in read mode
+     * @param frameLength as returned by {@link #frameLength(ByteBuffer)}
+     *
+     * @return the decoded message with a raw payload
+     */
+    static Message<byte[]> decode(ByteBuffer buffer, int frameLength) {
+        final int start = buffer.position();
+        final int statusStart = start + PROTOCOL_HEADER.length + 1;
+        final int statusEnd = indexOfDelimiter(buffer, statusStart, buffer.limit());
+        final int lengthEnd = indexOfDelimiter(buffer, statusEnd + 1, buffer.limit());
+        final byte[] data = new byte[start + frameLength - lengthEnd - 2];
+
+        final Message<byte[]> message = new Message<>(asciiString(buffer, statusStart, statusEnd), data, data.length);
+        buffer.position(lengthEnd + 1);
+        buffer.get(data);
+        final byte shouldBeDelimiter = buffer.get();
+        if (shouldBeDelimiter != MESSAGE_DELIMITER) {
+            throw new MessageTooLongException(message, String.valueOf((char) shouldBeDelimiter));
+        }
+        return message;
+    }
+
+    /**
+     * Reads the status of the frame that starts at the position of the buffer, without moving the position.
+     * The frame must have been validated with {@link #frameLength(ByteBuffer)} first.
+     *
+     * @param buffer in read mode
+     *
+     * @return the status of the frame
+     */
+    static String status(ByteBuffer buffer) {
+        final int statusStart = buffer.position() + PROTOCOL_HEADER.length + 1;
+        return asciiString(buffer, statusStart, indexOfDelimiter(buffer, statusStart, buffer.limit()));
+    }
+
+    private static int indexOfDelimiter(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            if (buffer.get(i) == MESSAGE_DELIMITER) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads single bytes as characters, the same way as {@link FriendlyForkedSocketTransferProtocolReader} does.
+     */
+    private static String asciiString(ByteBuffer buffer, int from, int to) {
+        final char[] characters = new char[to - from];
+        for (int i = 0; i < characters.length; ++i) {
+            characters[i] = (char) buffer.get(from + i);
+        }
+        return new String(characters);
+    }
+}
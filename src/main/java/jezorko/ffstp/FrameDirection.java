@@ -0,0 +1,9 @@
+package jezorko.ffstp;
+
+/**
+ * Tells whether a frame observed by a {@link FrameListener} was read from or written to the socket.
+ */
+public enum FrameDirection {
+    INBOUND,
+    OUTBOUND
+}
@@ -0,0 +1,21 @@
+package jezorko.ffstp;
+
+/**
+ * Observes the raw frames read and written by a {@link FriendlyTemplate}, for example to capture traffic.
+ * Frames are passed exactly as they are sent through the socket, with header, status, length and payload.
+ * <br>
+ * The listener is called on the thread that reads or writes, so it should return quickly and never block.
+ * The given buffer may be reused after the call, so the bytes must be copied if they are needed later.
+ * A single call may contain more than one frame when the frames were written together.
+ */
+@FunctionalInterface
+public interface FrameListener {
+
+    /**
+     * @param direction of the frames
+     * @param frames    buffer containing one or more complete frames
+     * @param offset    of the first byte of the frames
+     * @param length    amount of bytes of the frames
+     */
+    void onFrames(FrameDirection direction, byte[] frames, int offset, int length);
+}
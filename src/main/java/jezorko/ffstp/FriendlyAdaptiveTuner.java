@@ -0,0 +1,190 @@
+package jezorko.ffstp;
+
+import jezorko.ffstp.exception.InvalidHeaderException;
+import jezorko.ffstp.exception.InvalidMessageLengthException;
+import jezorko.ffstp.exception.MessageTooLongException;
+
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Tunes the options of a socket to the traffic it carries. Pass the tuner as the {@link FrameListener}
+ * of the template using the socket:
+ * <pre>
+ * FriendlyAdaptiveTuner tuner = new FriendlyAdaptiveTuner(socket, 16 * 1024, 4 * 1024 * 1024);
+ * FriendlyTemplate&lt;T&gt; template = new FriendlyTemplate&lt;&gt;(socket, serializer, tuner);
+ * </pre>
+ * The tuner observes the sizes, directions and throughput of frames and, once per window of frames, decides:
+ * <li>whether the traffic is request and response exchanges, where frames mostly alternate between directions,
+ * or bulk transfer, where many frames go in the same direction one after another</li>
+ * <li>{@code TCP_NODELAY}, enabled for request and response traffic, so that small requests are not held back,
+ * and disabled for bulk transfer of small frames, so that the operating system coalesces them</li>
+ * <li>{@code SO_SNDBUF} and {@code SO_RCVBUF}, large enough to hold a few of the largest frames and the data
+ * flowing in {@link #BUFFERED_TIME_MILLIS}, rounded up to a power of two and kept within the given bounds</li>
+ * <li>a {@link FlushPolicy} for a {@link FriendlyConcurrentSender}, which cannot be changed once a sender is created</li>
+ * Frames written together and passed to the listener in a single call are split and counted one by one.
+ * Socket options are only changed when the new value differs considerably, and the chosen settings
+ * can be inspected with {@link #getSettings()}. Operating systems may round or ignore requested buffer sizes,
+ * and the receive buffer may not affect the TCP window of a connection that is already established.
+ */
+public class FriendlyAdaptiveTuner implements FrameListener {
+
+    /**
+     * Amount of frames observed before the settings are reconsidered.
+     */
+    public final static int WINDOW_FRAMES = 64;
+
+    /**
+     * Amount of traffic, in milliseconds at the observed throughput, that socket buffers should be able to hold.
+     */
+    public final static long BUFFERED_TIME_MILLIS = 50;
+
+    private final static int FRAMES_PER_BUFFER = 4;
+    private final static int SMALL_FRAME_BYTES = 1024;
+
+    private final Socket socket;
+    private final int minBufferBytes;
+    private final int maxBufferBytes;
+
+    private FrameDirection lastDirection;
+    private int windowFrames;
+    private int windowDirectionChanges;
+    private long windowBytes;
+    private long windowLargestFrame;
+    private long windowStartNanos = nanoTime();
+    private volatile TuningSettings settings;
+
+    /**
+     * @param socket         to be tuned, the same one the template uses
+     * @param minBufferBytes lower bound of the socket buffer sizes
+     * @param maxBufferBytes upper bound of the socket buffer sizes
+     */
+    public FriendlyAdaptiveTuner(Socket socket, int minBufferBytes, int maxBufferBytes) {
+        if (minBufferBytes <= 0 || maxBufferBytes < minBufferBytes) {
+            throw new IllegalArgumentException("buffer bounds must be positive and ordered");
+        }
+        this.socket = socket;
+        this.minBufferBytes = minBufferBytes;
+        this.maxBufferBytes = maxBufferBytes;
+        this.settings = currentSettings(true, 0, 0, 0, FlushPolicy.immediate());
+    }
+
+    /**
+     * @return the settings chosen after the last window of frames
+     */
+    public TuningSettings getSettings() {
+        return settings;
+    }
+
+    @Override
+    public synchronized void onFrames(FrameDirection direction, byte[] frames, int offset, int length) {
+        final ByteBuffer buffer = ByteBuffer.wrap(frames, offset, length);
+        while (buffer.hasRemaining()) {
+            final int frameLength = nextFrameLength(buffer);
+            buffer.position(buffer.position() + frameLength);
+            onFrame(direction, frameLength);
+        }
+    }
+
+    /**
+     * Listeners are only given complete frames, so anything that does not parse as one
+     * is counted as a single frame rather than failing the thread that reads or writes.
+     */
+    private int nextFrameLength(ByteBuffer buffer) {
+        try {
+            final int frameLength = FrameDecoder.frameLength(buffer);
+            if (frameLength > 0 && frameLength <= buffer.remaining()) {
+                return frameLength;
+            }
+        } catch (InvalidHeaderException | InvalidMessageLengthException | MessageTooLongException exception) {
+            // not a frame boundary, the rest is counted as a single frame
+        }
+        return buffer.remaining();
+    }
+
+    private void onFrame(FrameDirection direction, int frameLength) {
+        if (lastDirection != null && lastDirection != direction) {
+            ++windowDirectionChanges;
+        }
+        lastDirection = direction;
+        ++windowFrames;
+        windowBytes += frameLength;
+        windowLargestFrame = Math.max(windowLargestFrame, frameLength);
+        if (windowFrames >= WINDOW_FRAMES) {
+            tune();
+        }
+    }
+
+    private void tune() {
+        final long elapsedNanos = Math.max(1, nanoTime() - windowStartNanos);
+        final long bytesPerSecond = windowBytes * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        final long averageFrameBytes = windowBytes / windowFrames;
+        // alternating directions give a change for almost every frame, bulk transfer almost none
+        final boolean requestResponse = windowDirectionChanges * 2 >= windowFrames;
+
+        final long wantedBufferBytes = Math.max(windowLargestFrame * FRAMES_PER_BUFFER, bytesPerSecond * BUFFERED_TIME_MILLIS / 1000);
+        final int bufferBytes = clampToPowerOfTwo(wantedBufferBytes);
+        final boolean tcpNoDelay = requestResponse || averageFrameBytes >= SMALL_FRAME_BYTES;
+        final FlushPolicy flushPolicy = requestResponse
+                                        ? FlushPolicy.immediate()
+                                        : new FlushPolicy(bufferBytes, Integer.MAX_VALUE, 1, TimeUnit.MILLISECONDS);
+
+        applySocketOptions(bufferBytes, tcpNoDelay);
+        settings = currentSettings(requestResponse, averageFrameBytes, windowLargestFrame, bytesPerSecond, flushPolicy);
+
+        windowFrames = 0;
+        windowDirectionChanges = 0;
+        windowBytes = 0;
+        windowLargestFrame = 0;
+        windowStartNanos = nanoTime();
+    }
+
+    private int clampToPowerOfTwo(long wantedBytes) {
+        final long clamped = Math.min(maxBufferBytes, Math.max(minBufferBytes, wantedBytes));
+        final long powerOfTwo = Long.highestOneBit(clamped) == clamped ? clamped : Long.highestOneBit(clamped) << 1;
+        return (int) Math.min(maxBufferBytes, powerOfTwo);
+    }
+
+    private void applySocketOptions(int bufferBytes, boolean tcpNoDelay) {
+        try {
+            if (socket.getTcpNoDelay() != tcpNoDelay) {
+                socket.setTcpNoDelay(tcpNoDelay);
+            }
+            if (differsConsiderably(socket.getSendBufferSize(), bufferBytes)) {
+                socket.setSendBufferSize(bufferBytes);
+            }
+            if (differsConsiderably(socket.getReceiveBufferSize(), bufferBytes)) {
+                socket.setReceiveBufferSize(bufferBytes);
+            }
+        } catch (SocketException exception) {
+            // the socket keeps its current options, they are only a hint for the operating system anyway
+        }
+    }
+
+    /**
+     * Avoids changing the options over and over again for traffic that fluctuates only a little.
+     */
+    private static boolean differsConsiderably(int currentBytes, int wantedBytes) {
+        return currentBytes < wantedBytes / 2 || currentBytes > wantedBytes * 2L;
+    }
+
+    private TuningSettings currentSettings(boolean requestResponse, long averageFrameBytes, long largestFrameBytes, long bytesPerSecond,
+                                           FlushPolicy flushPolicy) {
+        int sendBufferBytes = 0;
+        int receiveBufferBytes = 0;
+        boolean tcpNoDelay = false;
+        try {
+            sendBufferBytes = socket.getSendBufferSize();
+            receiveBufferBytes = socket.getReceiveBufferSize();
+            tcpNoDelay = socket.getTcpNoDelay();
+        } catch (SocketException exception) {
+            // the options of a socket that can no longer be read are reported as unset
+        }
+        return new TuningSettings(requestResponse, averageFrameBytes, largestFrameBytes, bytesPerSecond,
+                                  sendBufferBytes, receiveBufferBytes, tcpNoDelay, flushPolicy);
+    }
+}
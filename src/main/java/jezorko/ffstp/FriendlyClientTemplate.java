@@ -1,7 +1,15 @@
 package jezorko.ffstp;
 
 import java.net.Socket;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static jezorko.ffstp.Status.END_OF_STREAM;
 
 /**
  * A decorator for {@link FriendlyTemplate}.
@@ -9,6 +17,9 @@ import java.util.function.Supplier;
  * Provides methods that allow for send-and-receive flow:
  * <li>{@link #sendAndAwaitResponse(Message)}</li>
  * <li>{@link #sendAndAwaitResponse(Message, Class)}</li>
+ * and for send-and-receive-many flow:
+ * <li>{@link #sendAndStreamResponses(Message)}</li>
+ * <li>{@link #sendAndStreamResponses(Message, Class)}</li>
  *
  * @param <T> defines the lower-bound type allowed as a message payload
  */
@@ -17,7 +28,17 @@ public class FriendlyClientTemplate<T> implements AutoCloseable {
     private final FriendlyTemplate<T> friendlyTemplate;
 
     public FriendlyClientTemplate(Socket socket, Serializer<T> serializer) {
-        this.friendlyTemplate = new FriendlyTemplate<>(socket, serializer);
+        this(new FriendlyTemplate<>(socket, serializer));
+    }
+
+    /**
+     * Allows using a customized template, for example one that notifies a {@link FrameListener}.
+     * Takes the ownership over the template.
+     *
+     * @param friendlyTemplate to be used for communication
+     */
+    public FriendlyClientTemplate(FriendlyTemplate<T> friendlyTemplate) {
+        this.friendlyTemplate = friendlyTemplate;
     }
 
     /**
@@ -49,6 +70,58 @@ public class FriendlyClientTemplate<T> implements AutoCloseable {
         return messageReader.get();
     }
 
+    /**
+     * To be used with servers that reply with a stream of messages, see
+     * {@link FriendlyServerTemplate#waitForRequestAndStreamReplies(Class, Function)}.
+     * First, a message is sent to the socket.
+     * Then a lazy stream is returned that reads and deserializes the responses as they arrive,
+     * ending when a message with {@link Status#END_OF_STREAM} status is received.
+     * <b>The stream must be consumed entirely before sending another request.</b>
+     *
+     * @param requestMessage to be sent to the socket
+     * @param responseClass  that responses will be deserialized to
+     * @param <Y>            type of the response messages
+     *
+     * @return lazy stream of deserialized messages
+     */
+    public <Y extends T> Stream<Message<Y>> sendAndStreamResponses(Message<? extends T> requestMessage, Class<Y> responseClass) {
+        return sendAndStreamResponses(requestMessage, data -> friendlyTemplate.getSerializer()
+                                                                              .deserialize(data, responseClass));
+    }
+
+    /**
+     * Same as {@link #sendAndStreamResponses(Message, Class)} but uses the
+     * simple deserialization method {@link Serializer#deserialize(byte[])}.
+     * Keep in mind that not every serializer will implement this method.
+     */
+    public Stream<Message<T>> sendAndStreamResponses(Message<? extends T> requestMessage) {
+        return sendAndStreamResponses(requestMessage, data -> friendlyTemplate.getSerializer()
+                                                                              .deserialize(data));
+    }
+
+    private <Y extends T> Stream<Message<Y>> sendAndStreamResponses(Message<? extends T> requestMessage, Function<byte[], Y> deserializationFunction) {
+        friendlyTemplate.writeMessage(requestMessage);
+        final Spliterator<Message<Y>> responses = new Spliterators.AbstractSpliterator<Message<Y>>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private boolean ended;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Message<Y>> action) {
+                if (ended) {
+                    return false;
+                }
+                final Message<byte[]> serializedResponse = friendlyTemplate.readSerializedMessage();
+                if (END_OF_STREAM.name()
+                                 .equals(serializedResponse.getStatus())) {
+                    ended = true;
+                    return false;
+                }
+                action.accept(friendlyTemplate.deserialize(serializedResponse, deserializationFunction));
+                return true;
+            }
+        };
+        return StreamSupport.stream(responses, false);
+    }
+
     @Override
     public void close() throws Exception {
         friendlyTemplate.close();
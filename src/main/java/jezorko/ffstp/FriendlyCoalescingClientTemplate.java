@@ -0,0 +1,122 @@
+package jezorko.ffstp;
+
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A thread-safe alternative to {@link FriendlyClientTemplate} that coalesces identical concurrent requests.
+ * When a request with one of the coalesced statuses is sent while a request with the same status
+ * and byte-identical serialized payload is still awaiting its response, no new request is sent.
+ * Instead, the caller waits for the response of the request that is already in flight.
+ * Every caller deserializes the shared response on its own, so callers never share payload instances.
+ * <br>
+ * Requests with other statuses are sent as usual, one exchange at a time.
+ * Provides methods that allow for send-and-receive flow:
+ * <li>{@link #sendAndAwaitResponse(Message)}</li>
+ * <li>{@link #sendAndAwaitResponse(Message, Class)}</li>
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+public class FriendlyCoalescingClientTemplate<T> implements AutoCloseable {
+
+    private final FriendlyTemplate<T> friendlyTemplate;
+    private final Set<String> coalescedStatuses;
+
+    private final ReentrantLock exchangeLock = new ReentrantLock();
+    private final ConcurrentMap<SerializedRequestKey, CompletableFuture<Message<byte[]>>> requestsInFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalescedRequests = new LongAdder();
+
+    /**
+     * @param socket            to be used for communication
+     * @param serializer        to be used for serializing request and response messages
+     * @param coalescedStatuses statuses of requests that may share a response
+     */
+    public FriendlyCoalescingClientTemplate(Socket socket, Serializer<T> serializer, String... coalescedStatuses) {
+        this.friendlyTemplate = new FriendlyTemplate<>(socket, serializer);
+        this.coalescedStatuses = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(coalescedStatuses)));
+    }
+
+    /**
+     * To be used for implementing two-way communication system.
+     * First, a message is sent to the socket, unless an identical one is already awaiting its response.
+     * Then the response is awaited and deserialized.
+     *
+     * @param requestMessage to be sent to the socket
+     * @param responseClass  that response will be deserialized to
+     * @param <Y>            type of the response message
+     *
+     * @return deserialized message
+     */
+    public <Y extends T> Message<Y> sendAndAwaitResponse(Message<? extends T> requestMessage, Class<Y> responseClass) {
+        return sendAndAwaitResponse(requestMessage, data -> friendlyTemplate.getSerializer()
+                                                                            .deserialize(data, responseClass));
+    }
+
+    /**
+     * Same as {@link #sendAndAwaitResponse(Message, Class)} but uses the
+     * simple deserialization method {@link Serializer#deserialize(byte[])}.
+     * Keep in mind that not every serializer will implement this method.
+     */
+    public Message<T> sendAndAwaitResponse(Message<? extends T> requestMessage) {
+        return sendAndAwaitResponse(requestMessage, data -> friendlyTemplate.getSerializer()
+                                                                            .deserialize(data));
+    }
+
+    /**
+     * @return the amount of requests that were answered with a response to another, identical request
+     */
+    public long getCoalescedRequestsCount() {
+        return coalescedRequests.sum();
+    }
+
+    private <Y extends T> Message<Y> sendAndAwaitResponse(Message<? extends T> requestMessage, Function<byte[], Y> deserializationFunction) {
+        final Message<byte[]> serializedRequest = friendlyTemplate.serialize(requestMessage);
+        if (!coalescedStatuses.contains(serializedRequest.getStatus())) {
+            return friendlyTemplate.deserialize(exchange(serializedRequest), deserializationFunction);
+        }
+
+        final SerializedRequestKey requestKey = new SerializedRequestKey(serializedRequest);
+        final CompletableFuture<Message<byte[]>> newFlight = new CompletableFuture<>();
+        final CompletableFuture<Message<byte[]>> existingFlight = requestsInFlight.putIfAbsent(requestKey, newFlight);
+
+        if (existingFlight != null) {
+            coalescedRequests.increment();
+            return friendlyTemplate.deserialize(Futures.join(existingFlight), deserializationFunction);
+        }
+
+        try {
+            final Message<byte[]> serializedResponse = exchange(serializedRequest);
+            requestsInFlight.remove(requestKey, newFlight);
+            newFlight.complete(serializedResponse);
+            return friendlyTemplate.deserialize(serializedResponse, deserializationFunction);
+        } catch (RuntimeException exception) {
+            requestsInFlight.remove(requestKey, newFlight);
+            newFlight.completeExceptionally(exception);
+            throw exception;
+        }
+    }
+
+    private Message<byte[]> exchange(Message<byte[]> serializedRequest) {
+        exchangeLock.lock();
+        try {
+            friendlyTemplate.writeSerializedMessage(serializedRequest);
+            return friendlyTemplate.readSerializedMessage();
+        } finally {
+            exchangeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        friendlyTemplate.close();
+    }
+}
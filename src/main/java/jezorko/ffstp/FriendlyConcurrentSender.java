@@ -0,0 +1,187 @@
+package jezorko.ffstp;
+
+import jezorko.ffstp.exception.SenderClosedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Allows many threads to send messages through a single {@link FriendlyTemplate}.
+ * Messages are serialized and encoded on the calling thread and put on a lock-free queue.
+ * A single writer thread drains the queue and coalesces the queued frames into one write
+ * and one flush, according to the given {@link FlushPolicy}.
+ * <br>
+ * Frames of a single thread are written in the order in which they were sent.
+ * The template must not be written to directly while this sender is in use.
+ * After a write fails, all pending and subsequent sends fail with the same exception.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+public class FriendlyConcurrentSender<T> implements AutoCloseable {
+
+    private final FriendlyTemplate<T> friendlyTemplate;
+    private final FlushPolicy flushPolicy;
+
+    private final Queue<PendingFrame> pendingFrames = new ConcurrentLinkedQueue<>();
+    private final Thread writerThread;
+    private final List<PendingFrame> batch = new ArrayList<>();
+    private byte[] batchBuffer = new byte[0];
+
+    private volatile boolean writerWaiting;
+    private volatile boolean closed;
+    private volatile RuntimeException writeFailure;
+
+    /**
+     * Starts the writer thread. The sender does not take ownership over the template.
+     *
+     * @param friendlyTemplate to write messages to
+     * @param flushPolicy      deciding how many frames may be coalesced into a single write
+     */
+    public FriendlyConcurrentSender(FriendlyTemplate<T> friendlyTemplate, FlushPolicy flushPolicy) {
+        this.friendlyTemplate = friendlyTemplate;
+        this.flushPolicy = flushPolicy;
+        this.writerThread = new Thread(this::writeWhileOpen, "ffstp-concurrent-sender");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues the message to be written. This method never blocks on the socket.
+     *
+     * @param message to be serialized and sent
+     *
+     * @return a future completed once the message has been written and flushed
+     *
+     * @throws SenderClosedException if this sender has been closed
+     */
+    public CompletableFuture<Void> send(Message<? extends T> message) {
+        if (closed) {
+            throw new SenderClosedException();
+        }
+        final PendingFrame pendingFrame = new PendingFrame(friendlyTemplate.encodeFrame(message));
+        final RuntimeException failure = writeFailure;
+        if (failure != null) {
+            pendingFrame.sent.completeExceptionally(failure);
+            return pendingFrame.sent;
+        }
+        pendingFrames.offer(pendingFrame);
+        if (closed && pendingFrames.remove(pendingFrame)) {
+            // raced with close(), the writer thread might not pick this frame up anymore
+            throw new SenderClosedException();
+        }
+        if (writerWaiting) {
+            LockSupport.unpark(writerThread);
+        }
+        return pendingFrame.sent;
+    }
+
+    private void writeWhileOpen() {
+        while (true) {
+            final PendingFrame firstFrame = pendingFrames.poll();
+            if (firstFrame == null) {
+                if (closed) {
+                    return;
+                }
+                awaitFrames(Long.MAX_VALUE);
+                continue;
+            }
+            collectBatch(firstFrame);
+            writeBatch();
+        }
+    }
+
+    private void collectBatch(PendingFrame firstFrame) {
+        batch.add(firstFrame);
+        int batchBytes = firstFrame.frame.length;
+        final long lingerDeadline = nanoTime() + flushPolicy.getLingerNanos();
+
+        while (batch.size() < flushPolicy.getMaxBatchMessages() && batchBytes < flushPolicy.getMaxBatchBytes()) {
+            final PendingFrame nextFrame = pendingFrames.poll();
+            if (nextFrame != null) {
+                batch.add(nextFrame);
+                batchBytes += nextFrame.frame.length;
+                continue;
+            }
+            final long remainingLinger = lingerDeadline - nanoTime();
+            if (remainingLinger <= 0 || closed) {
+                return;
+            }
+            awaitFrames(remainingLinger);
+        }
+    }
+
+    private void awaitFrames(long timeoutNanos) {
+        writerWaiting = true;
+        if (pendingFrames.isEmpty() && !closed) {
+            LockSupport.parkNanos(this, timeoutNanos);
+        }
+        writerWaiting = false;
+    }
+
+    private void writeBatch() {
+        try {
+            final RuntimeException failure = writeFailure;
+            if (failure != null) {
+                throw failure;
+            }
+            if (batch.size() == 1) {
+                friendlyTemplate.writeFrame(batch.get(0).frame);
+            }
+            else {
+                final int batchBytes = copyBatchToBuffer();
+                friendlyTemplate.writeFrames(batchBuffer, 0, batchBytes);
+            }
+            for (PendingFrame pendingFrame : batch) {
+                pendingFrame.sent.complete(null);
+            }
+        } catch (RuntimeException exception) {
+            writeFailure = exception;
+            for (PendingFrame pendingFrame : batch) {
+                pendingFrame.sent.completeExceptionally(exception);
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private int copyBatchToBuffer() {
+        int batchBytes = 0;
+        for (PendingFrame pendingFrame : batch) {
+            batchBytes += pendingFrame.frame.length;
+        }
+        if (batchBuffer.length < batchBytes) {
+            batchBuffer = new byte[batchBytes];
+        }
+        int position = 0;
+        for (PendingFrame pendingFrame : batch) {
+            System.arraycopy(pendingFrame.frame, 0, batchBuffer, position, pendingFrame.frame.length);
+            position += pendingFrame.frame.length;
+        }
+        return batchBytes;
+    }
+
+    /**
+     * Stops accepting new messages and waits until all queued messages are written.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        LockSupport.unpark(writerThread);
+        writerThread.join();
+    }
+
+    private final static class PendingFrame {
+        private final byte[] frame;
+        private final CompletableFuture<Void> sent = new CompletableFuture<>();
+
+        private PendingFrame(byte[] frame) {
+            this.frame = frame;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package jezorko.ffstp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A pool of worker threads shared by many connections, which gives every connection its own queue
+ * and serves the queues in weighted deficit round-robin order. A connection that floods the pool
+ * with requests only makes its own queue longer, other connections keep getting their share of the workers.
+ * <br>
+ * Every task has a cost, one by default. In every round, a queue may run tasks worth the quantum multiplied by its weight.
+ * A queue may additionally be limited by a {@link TokenBucket}, in which case the thread submitting a task
+ * waits for the permits first. When that thread is the one reading the connection, as with
+ * {@link #schedule(Function)} and {@link FriendlyServerTemplate}, reads are paused rather than requests buffered:
+ * <pre>
+ * server.waitForRequestAndReply(connectionQueue.schedule(handler));
+ * </pre>
+ */
+public class FriendlyFairScheduler implements AutoCloseable {
+
+    private final int quantum;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition tasksQueued = lock.newCondition();
+    private final ArrayDeque<ConnectionQueue> activeQueues = new ArrayDeque<>();
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * Starts the worker threads.
+     *
+     * @param workerThreads amount of threads running the tasks
+     * @param quantum       cost of tasks a queue of weight one may run in a single round
+     */
+    public FriendlyFairScheduler(int workerThreads, int quantum) {
+        if (workerThreads <= 0 || quantum <= 0) {
+            throw new IllegalArgumentException("amount of workers and quantum must be positive");
+        }
+        this.quantum = quantum;
+        for (int i = 0; i < workerThreads; ++i) {
+            final Thread workerThread = new Thread(this::runWhileOpen, "ffstp-fair-scheduler");
+            workerThread.setDaemon(true);
+            this.workerThreads.add(workerThread);
+        }
+        this.workerThreads.forEach(Thread::start);
+    }
+
+    /**
+     * Creates a queue without a rate limit.
+     *
+     * @param weight share of the workers relative to the other queues
+     */
+    public ConnectionQueue newQueue(int weight) {
+        return newQueue(weight, null);
+    }
+
+    /**
+     * @param weight     share of the workers relative to the other queues
+     * @param rateLimit  taking one permit per unit of cost of every task, may be null
+     *
+     * @return a new queue, meant to be used by a single connection or tenant
+     */
+    public ConnectionQueue newQueue(int weight, TokenBucket rateLimit) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("weight must be positive, got " + weight);
+        }
+        return new ConnectionQueue(weight, rateLimit);
+    }
+
+    private void runWhileOpen() {
+        while (true) {
+            final ScheduledTask task;
+            lock.lock();
+            try {
+                while (activeQueues.isEmpty()) {
+                    if (closed) {
+                        return;
+                    }
+                    tasksQueued.awaitUninterruptibly();
+                }
+                task = nextTask();
+            } finally {
+                lock.unlock();
+            }
+            task.run();
+        }
+    }
+
+    /**
+     * Picks the next task in deficit round-robin order. Must be called with the lock held and active queues present.
+     */
+    private ScheduledTask nextTask() {
+        while (true) {
+            final ConnectionQueue queue = activeQueues.peekFirst();
+            final ScheduledTask head = queue.tasks.peekFirst();
+            if (queue.deficit < head.cost) {
+                queue.deficit += (long) quantum * queue.weight;
+                activeQueues.addLast(activeQueues.pollFirst());
+                continue;
+            }
+            queue.deficit -= head.cost;
+            queue.tasks.pollFirst();
+            if (queue.tasks.isEmpty()) {
+                // an idle queue does not keep its unused share for later
+                queue.deficit = 0;
+                activeQueues.pollFirst();
+            }
+            return head;
+        }
+    }
+
+    /**
+     * Stops accepting tasks and waits until all queued tasks are run.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            tasksQueued.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread workerThread : workerThreads) {
+            workerThread.join();
+        }
+    }
+
+    /**
+     * The queue of a single connection or tenant.
+     */
+    public final class ConnectionQueue {
+
+        private final int weight;
+        private final TokenBucket rateLimit;
+        private final ArrayDeque<ScheduledTask> tasks = new ArrayDeque<>();
+        private long deficit;
+
+        private ConnectionQueue(int weight, TokenBucket rateLimit) {
+            this.weight = weight;
+            this.rateLimit = rateLimit;
+        }
+
+        /**
+         * Queues the task, after waiting for the permits of the rate limit, if there is one.
+         *
+         * @param task to be run by one of the workers
+         * @param cost of the task, at least one
+         *
+         * @return a future completed with the result of the task
+         *
+         * @throws RejectedExecutionException if the scheduler has been closed
+         */
+        public <V> CompletableFuture<V> submit(Supplier<V> task, int cost) {
+            if (cost <= 0) {
+                throw new IllegalArgumentException("cost must be positive, got " + cost);
+            }
+            if (rateLimit != null) {
+                rateLimit.acquire(cost);
+            }
+            final CompletableFuture<V> result = new CompletableFuture<>();
+            final ScheduledTask scheduledTask = new ScheduledTask(cost, () -> {
+                try {
+                    result.complete(task.get());
+                } catch (Throwable throwable) {
+                    result.completeExceptionally(throwable);
+                }
+            });
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new RejectedExecutionException("scheduler has been closed");
+                }
+                if (tasks.isEmpty()) {
+                    activeQueues.addLast(this);
+                }
+                tasks.addLast(scheduledTask);
+                tasksQueued.signal();
+            } finally {
+                lock.unlock();
+            }
+            return result;
+        }
+
+        /**
+         * Wraps the handler so that every call runs it on one of the workers at the cost of one,
+         * while the calling thread waits for the result.
+         *
+         * @param handler to be run by the workers
+         *
+         * @return a handler that can be passed to {@link FriendlyServerTemplate#waitForRequestAndReply(Function)}
+         */
+        public <I, O> Function<I, O> schedule(Function<I, O> handler) {
+            return input -> Futures.join(submit(() -> handler.apply(input), 1));
+        }
+    }
+
+    private final static class ScheduledTask {
+        private final int cost;
+        private final Runnable task;
+
+        private ScheduledTask(int cost, Runnable task) {
+            this.cost = cost;
+            this.task = task;
+        }
+
+        private void run() {
+            task.run();
+        }
+    }
+}
@@ -6,6 +6,12 @@ import java.io.BufferedReader;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 import static java.lang.Integer.parseInt;
 import static jezorko.ffstp.Constants.*;
@@ -18,6 +24,7 @@ import static jezorko.ffstp.Constants.*;
 final class FriendlyForkedSocketTransferProtocolReader implements AutoCloseable {
 
     private final DataInputStream inputStream;
+    private IncomingMessage<?> unconsumedMessage;
 
     /**
      * Takes ownership over the provided {@link BufferedReader}.
@@ -45,6 +52,185 @@ final class FriendlyForkedSocketTransferProtocolReader implements AutoCloseable
         }
     }
 
+    /**
+     * Same as {@link #readMessageRethrowErrors()}, but decodes the message into the given holder.
+     * Apart from the exceptional cases, this method does not allocate once the buffers of the holder are big enough.
+     *
+     * @param holder to be filled with the status and payload of the message
+     */
+    void readMessageRethrowErrors(MessageHolder holder) {
+        try {
+            readMessage(holder);
+        } catch (RuntimeException uncheckedException) {
+            throw uncheckedException;
+        } catch (Exception checkedException) {
+            throw new RethrownException(checkedException);
+        }
+    }
+
+    /**
+     * Reads only the header, status and length of the next message.
+     * The payload is left in the buffer until it is read or skipped using the returned message.
+     * If that does not happen, the payload is skipped before the next message is read.
+     *
+     * @param serializer    to be used by the returned message to deserialize the payload
+     * @param frameListener to be notified by the returned message once its payload is consumed, may be null
+     * @param <T>           the lower-bound type allowed as a message payload
+     *
+     * @return the next message with its payload still to be consumed
+     */
+    <T> IncomingMessage<T> readIncomingMessageRethrowErrors(Serializer<T> serializer, FrameListener frameListener) {
+        try {
+            skipUnconsumedPayload();
+            readAndValidateHeader();
+            final String status = readAsciiUntilDelimiter();
+            final int dataBytesAmount = parseMessageLength(readAsciiUntilDelimiter());
+            final IncomingMessage<T> incomingMessage = new IncomingMessage<>(this, serializer, frameListener, status, dataBytesAmount);
+            unconsumedMessage = incomingMessage;
+            return incomingMessage;
+        } catch (RuntimeException uncheckedException) {
+            throw uncheckedException;
+        } catch (Exception checkedException) {
+            throw new RethrownException(checkedException);
+        }
+    }
+
+    /**
+     * Reads the payload of the given message, which must be the last one returned
+     * by {@link #readIncomingMessageRethrowErrors(Serializer, FrameListener)}.
+     *
+     * @return received data
+     */
+    byte[] readPayload(IncomingMessage<?> incomingMessage) {
+        consume(incomingMessage);
+        final byte[] messageBody = readDataToBuffer(incomingMessage.getDataBytesLength());
+        final String shouldBeOnlyDelimiter = readAsciiUntilDelimiter();
+        if (shouldBeOnlyDelimiter.length() != 0) {
+            throw new MessageTooLongException(new Message<>(incomingMessage.getStatus(), messageBody, messageBody.length),
+                                              shouldBeOnlyDelimiter);
+        }
+        return messageBody;
+    }
+
+    /**
+     * Discards the payload of the given message straight from the buffer, without copying it.
+     * The message must be the last one returned by {@link #readIncomingMessageRethrowErrors(Serializer, FrameListener)}.
+     */
+    void skipPayload(IncomingMessage<?> incomingMessage) {
+        consume(incomingMessage);
+        final int dataBytesAmount = incomingMessage.getDataBytesLength();
+        int skippedDataLength = 0;
+        try {
+            while (skippedDataLength < dataBytesAmount) {
+                final int skipped = inputStream.skipBytes(dataBytesAmount - skippedDataLength);
+                if (skipped == 0) {
+                    // skipBytes does not distinguish the end of the stream from no progress
+                    inputStream.readByte();
+                    ++skippedDataLength;
+                }
+                skippedDataLength += skipped;
+            }
+        } catch (EOFException exception) {
+            throw new MissingDataException(skippedDataLength);
+        } catch (IOException exception) {
+            throw new RethrownException(exception);
+        }
+        final String shouldBeOnlyDelimiter = readAsciiUntilDelimiter();
+        if (shouldBeOnlyDelimiter.length() != 0) {
+            throw new MessageTooLongException(new Message<>(incomingMessage.getStatus(), new byte[0], dataBytesAmount),
+                                              shouldBeOnlyDelimiter);
+        }
+    }
+
+    /**
+     * Reads the next message, keeping its payload in memory only if it fits both the spill threshold and the budgets.
+     * Otherwise the payload is streamed to a temporary file, which is mapped once the whole payload has arrived.
+     *
+     * @param spillPolicy      deciding where the payload is kept
+     * @param connectionBudget for payloads kept in memory by the connection this reader belongs to
+     *
+     * @return the message, which must be closed once its payload is no longer needed
+     */
+    BufferedMessage readBufferedMessageRethrowErrors(SpillPolicy spillPolicy, MemoryBudget connectionBudget) {
+        try {
+            skipUnconsumedPayload();
+            readAndValidateHeader();
+            final String status = readAsciiUntilDelimiter();
+            final int dataBytesAmount = parseMessageLength(readAsciiUntilDelimiter());
+
+            final BufferedMessage message = reserveMemory(dataBytesAmount, spillPolicy, connectionBudget)
+                                            ? readToMemory(status, dataBytesAmount, spillPolicy, connectionBudget)
+                                            : readToFile(status, dataBytesAmount, spillPolicy);
+            final String shouldBeOnlyDelimiter;
+            try {
+                shouldBeOnlyDelimiter = readAsciiUntilDelimiter();
+            } catch (RuntimeException exception) {
+                message.close();
+                throw exception;
+            }
+            if (shouldBeOnlyDelimiter.length() != 0) {
+                message.close();
+                throw new MessageTooLongException(new Message<>(status, new byte[0], dataBytesAmount), shouldBeOnlyDelimiter);
+            }
+            return message;
+        } catch (RuntimeException uncheckedException) {
+            throw uncheckedException;
+        } catch (Exception checkedException) {
+            throw new RethrownException(checkedException);
+        }
+    }
+
+    private static boolean reserveMemory(int dataBytesAmount, SpillPolicy spillPolicy, MemoryBudget connectionBudget) {
+        if (dataBytesAmount > spillPolicy.getSpillThresholdBytes() || !connectionBudget.tryReserve(dataBytesAmount)) {
+            return false;
+        }
+        if (!spillPolicy.getSharedBudget()
+                        .tryReserve(dataBytesAmount)) {
+            connectionBudget.release(dataBytesAmount);
+            return false;
+        }
+        return true;
+    }
+
+    private BufferedMessage readToMemory(String status, int dataBytesAmount, SpillPolicy spillPolicy, MemoryBudget connectionBudget) {
+        final Runnable releaseMemory = () -> {
+            connectionBudget.release(dataBytesAmount);
+            spillPolicy.getSharedBudget()
+                       .release(dataBytesAmount);
+        };
+        try {
+            return new BufferedMessage(status, dataBytesAmount, ByteBuffer.wrap(readDataToBuffer(dataBytesAmount)), null, releaseMemory);
+        } catch (RuntimeException exception) {
+            releaseMemory.run();
+            throw exception;
+        }
+    }
+
+    private BufferedMessage readToFile(String status, int dataBytesAmount, SpillPolicy spillPolicy) throws IOException {
+        final Path spillFile = Files.createTempFile(spillPolicy.getSpillDirectory(), "ffstp-", ".payload");
+        try (FileChannel fileChannel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            readDataToFile(dataBytesAmount, fileChannel);
+            final ByteBuffer mappedData = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, dataBytesAmount);
+            return new BufferedMessage(status, dataBytesAmount, mappedData, spillFile, null);
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(spillFile);
+            throw exception;
+        }
+    }
+
+    private void consume(IncomingMessage<?> incomingMessage) {
+        if (unconsumedMessage != incomingMessage) {
+            throw new IllegalStateException("payload of " + incomingMessage + " has already been consumed");
+        }
+        unconsumedMessage = null;
+    }
+
+    private void skipUnconsumedPayload() {
+        if (unconsumedMessage != null) {
+            unconsumedMessage.skip();
+        }
+    }
+
     /**
      * Reads messages from the buffer and parses them.
      * If the message is malformed, a variety of exceptions may be thrown:<br/>
@@ -57,11 +243,84 @@ final class FriendlyForkedSocketTransferProtocolReader implements AutoCloseable
      * @return a new message from the buffer
      */
     private Message<byte[]> readMessage() {
+        skipUnconsumedPayload();
         readAndValidateHeader();
 
         final String status = readAsciiUntilDelimiter();
-        final String dataBytesAmount = readAsciiUntilDelimiter();
-        int dataBytesAmountAsInt;
+        final int dataBytesAmountAsInt = parseMessageLength(readAsciiUntilDelimiter());
+        final byte[] messageBody = readDataToBuffer(dataBytesAmountAsInt);
+        final Message<byte[]> message = new Message<>(status, messageBody, dataBytesAmountAsInt);
+        final String shouldBeOnlyDelimiter = readAsciiUntilDelimiter();
+        if (shouldBeOnlyDelimiter.length() != 0) {
+            throw new MessageTooLongException(message, shouldBeOnlyDelimiter);
+        }
+        return message;
+    }
+
+    /**
+     * Allocation-free variant of {@link #readMessage()}.
+     * Throws the same exceptions in the same situations.
+     *
+     * @param holder to be filled with the status and payload of the message
+     */
+    private void readMessage(MessageHolder holder) {
+        skipUnconsumedPayload();
+        readAndValidateHeader();
+
+        holder.clearStatus();
+        byte currentByte;
+        while ((currentByte = readByte(holder)) != MESSAGE_DELIMITER) {
+            holder.appendStatusByte(currentByte);
+        }
+        holder.completeStatus();
+
+        final int dataBytesAmount = readMessageLength();
+        byte[] payloadBuffer = holder.preparePayload(dataBytesAmount);
+        int receivedDataLength = 0;
+        while (receivedDataLength < dataBytesAmount) {
+            if (receivedDataLength == payloadBuffer.length) {
+                payloadBuffer = holder.growPayload();
+            }
+            final int received;
+            try {
+                received = inputStream.read(payloadBuffer, receivedDataLength,
+                                            Math.min(payloadBuffer.length, dataBytesAmount) - receivedDataLength);
+            } catch (IOException exception) {
+                throw new RethrownException(exception);
+            }
+            if (received < 0) {
+                throw new MissingDataException(receivedDataLength);
+            }
+            receivedDataLength += received;
+        }
+
+        final byte shouldBeDelimiter = readByte(null);
+        if (shouldBeDelimiter != MESSAGE_DELIMITER) {
+            throw new MessageTooLongException(holder.toMessage(), (char) shouldBeDelimiter + readAsciiUntilDelimiter());
+        }
+    }
+
+    /**
+     * Parses the message length field without creating a {@link String}, unless the field is invalid.
+     */
+    private int readMessageLength() {
+        int messageLength = 0;
+        int digits = 0;
+        byte currentByte;
+        while ((currentByte = readByte(null)) != MESSAGE_DELIMITER) {
+            if (currentByte < '0' || currentByte > '9' || digits == 9) {
+                // let the regular parsing handle signs, overflows and report invalid values
+                final String readDigits = digits == 0 ? "" : String.valueOf(messageLength);
+                return parseMessageLength(readDigits + (char) currentByte + readAsciiUntilDelimiter());
+            }
+            messageLength = messageLength * 10 + (currentByte - '0');
+            ++digits;
+        }
+        return digits == 0 ? parseMessageLength("") : messageLength;
+    }
+
+    static int parseMessageLength(String dataBytesAmount) {
+        final int dataBytesAmountAsInt;
         try {
             dataBytesAmountAsInt = parseInt(dataBytesAmount);
         } catch (NumberFormatException exception) {
@@ -70,13 +329,24 @@ final class FriendlyForkedSocketTransferProtocolReader implements AutoCloseable
         if (dataBytesAmountAsInt < 0) {
             throw new InvalidMessageLengthException(dataBytesAmountAsInt);
         }
-        final byte[] messageBody = readDataToBuffer(dataBytesAmountAsInt);
-        final Message<byte[]> message = new Message<>(status, messageBody, dataBytesAmountAsInt);
-        final String shouldBeOnlyDelimiter = readAsciiUntilDelimiter();
-        if (shouldBeOnlyDelimiter.length() != 0) {
-            throw new MessageTooLongException(message, shouldBeOnlyDelimiter);
+        return dataBytesAmountAsInt;
+    }
+
+    /**
+     * Reads a single byte of a delimited field.
+     *
+     * @param holder whose status is being read, used to recover the received data on failure, may be null
+     */
+    private byte readByte(MessageHolder holder) {
+        try {
+            return inputStream.readByte();
+        } catch (EOFException exception) {
+            final byte[] receivedBytes = holder != null ? holder.getStatus()
+                                                                .getBytes(DEFAULT_CHARSET) : new byte[0];
+            throw new MissingDataException(receivedBytes.length, receivedBytes);
+        } catch (IOException exception) {
+            throw new RethrownException(exception);
         }
-        return message;
     }
 
     /**
@@ -105,7 +375,7 @@ final class FriendlyForkedSocketTransferProtocolReader implements AutoCloseable
 
                 ++receivedDataLength;
             } catch (EOFException exception) {
-                throw new MissingDataException(receivedDataLength);
+                throw receivedDataLength == 0 ? MissingDataException.endOfStream() : new MissingDataException(receivedDataLength);
             } catch (IOException exception) {
                 throw new RethrownException(exception);
             }
@@ -144,33 +414,57 @@ final class FriendlyForkedSocketTransferProtocolReader implements AutoCloseable
 
     /**
      * Reads data to a new buffer with given size.
+     * The buffer grows as the data arrives, so a bogus length does not allocate more than has actually been received.
      *
      * @param bufferSize expected size of the buffer
      *
      * @return received data
      */
     private byte[] readDataToBuffer(int bufferSize) {
-        byte[] buffer = new byte[bufferSize];
-        if (bufferSize == 0) {
-            return buffer;
-        }
-
+        byte[] buffer = new byte[Math.min(bufferSize, INITIAL_PAYLOAD_BUFFER_BYTES)];
         int receivedDataLength = 0;
 
-        do {
+        while (receivedDataLength < bufferSize) {
+            if (receivedDataLength == buffer.length) {
+                buffer = Arrays.copyOf(buffer, (int) Math.min(bufferSize, buffer.length * 2L));
+            }
+            final int received;
             try {
-                buffer[receivedDataLength] = inputStream.readByte();
-                ++receivedDataLength;
-            } catch (EOFException exception) {
-                throw new MissingDataException(receivedDataLength);
+                received = inputStream.read(buffer, receivedDataLength, buffer.length - receivedDataLength);
             } catch (IOException exception) {
                 throw new RethrownException(exception);
             }
-        } while (receivedDataLength < bufferSize);
+            if (received < 0) {
+                throw new MissingDataException(receivedDataLength);
+            }
+            receivedDataLength += received;
+        }
 
         return buffer;
     }
 
+    /**
+     * Streams data straight to the channel of a file, in chunks of a bounded size.
+     *
+     * @param dataBytesAmount amount of bytes to be transferred
+     * @param fileChannel     to write the data to
+     */
+    private void readDataToFile(int dataBytesAmount, FileChannel fileChannel) throws IOException {
+        final byte[] chunk = new byte[Math.min(dataBytesAmount, INITIAL_PAYLOAD_BUFFER_BYTES)];
+        int receivedDataLength = 0;
+        while (receivedDataLength < dataBytesAmount) {
+            final int received = inputStream.read(chunk, 0, Math.min(chunk.length, dataBytesAmount - receivedDataLength));
+            if (received < 0) {
+                throw new MissingDataException(receivedDataLength);
+            }
+            final ByteBuffer receivedChunk = ByteBuffer.wrap(chunk, 0, received);
+            while (receivedChunk.hasRemaining()) {
+                fileChannel.write(receivedChunk);
+            }
+            receivedDataLength += received;
+        }
+    }
+
     @Override
     public void close() throws Exception {
         inputStream.close();
@@ -5,7 +5,6 @@ import jezorko.ffstp.exception.RethrownException;
 
 import java.io.DataOutputStream;
 import java.io.PrintWriter;
-import java.nio.charset.CharsetEncoder;
 
 import static jezorko.ffstp.Constants.*;
 import static jezorko.ffstp.Status.UNKNOWN;
@@ -18,7 +17,6 @@ import static jezorko.ffstp.Status.UNKNOWN;
 final class FriendlyForkedSocketTransferProtocolWriter implements AutoCloseable {
 
     private final static byte[] EMPTY_DATA = new byte[0];
-    private final static CharsetEncoder ASCII_ENCODER = DEFAULT_CHARSET.newEncoder();
 
     private final DataOutputStream outputStream;
 
@@ -40,14 +38,10 @@ final class FriendlyForkedSocketTransferProtocolWriter implements AutoCloseable
      * @throws Exception of some sort, sometimes, probably
      */
     void writeMessage(Message<byte[]> message) {
-        final byte[] dataToSend = message.getData() != null ? message.getData() : EMPTY_DATA;
+        final byte[] dataToSend = dataOf(message);
         final String dataBytesAmountAsString = String.valueOf(dataToSend.length);
 
-        final String statusToSend = message.getStatus() != null ? message.getStatus() : UNKNOWN.name();
-
-        if (statusToSend.contains(";") || !ASCII_ENCODER.canEncode(statusToSend)) {
-            throw new InvalidStatusException(statusToSend);
-        }
+        final String statusToSend = validStatusOf(message);
 
         try {
             outputStream.write(PROTOCOL_HEADER);
@@ -68,6 +62,94 @@ final class FriendlyForkedSocketTransferProtocolWriter implements AutoCloseable
         }
     }
 
+    /**
+     * Writes an already encoded frame to a buffer and flushes it.
+     *
+     * @param frame produced by {@link #encodeFrame(Message)}
+     */
+    void writeFrame(byte[] frame) {
+        writeFrames(frame, 0, frame.length);
+    }
+
+    /**
+     * Writes a part of a buffer holding one or more already encoded frames with a single write and flushes it.
+     *
+     * @param frames buffer containing frames produced by {@link #encodeFrame(Message)}
+     * @param offset of the first byte to be written
+     * @param length amount of bytes to be written
+     */
+    void writeFrames(byte[] frames, int offset, int length) {
+        try {
+            outputStream.write(frames, offset, length);
+            outputStream.flush();
+        } catch (Exception e) {
+            throw new RethrownException(e);
+        }
+    }
+
+    /**
+     * Encodes given message into the protocol format without writing it anywhere.
+     * The result is exactly what {@link #writeMessage(Message)} would send.
+     *
+     * @param message to be encoded
+     *
+     * @return a complete frame, ready to be passed to {@link #writeFrame(byte[])}
+     */
+    static byte[] encodeFrame(Message<byte[]> message) {
+        return encodeFrame(validStatusOf(message).getBytes(DEFAULT_CHARSET), dataOf(message));
+    }
+
+    /**
+     * Encodes a message that has been read from a socket back into the exact frame that was received,
+     * without validating its status. The status characters are expected to be single bytes
+     * cast to characters, which is how {@link FriendlyForkedSocketTransferProtocolReader} reads them.
+     *
+     * @param message to be encoded
+     *
+     * @return the frame as it was received
+     */
+    static byte[] encodeReceivedFrame(Message<byte[]> message) {
+        final String status = message.getStatus();
+        final byte[] receivedStatus = new byte[status.length()];
+        for (int i = 0; i < receivedStatus.length; ++i) {
+            receivedStatus[i] = (byte) status.charAt(i);
+        }
+        return encodeFrame(receivedStatus, dataOf(message));
+    }
+
+    private static byte[] encodeFrame(byte[] statusToSend, byte[] dataToSend) {
+        final byte[] dataBytesAmountToSend = String.valueOf(dataToSend.length)
+                                                   .getBytes(DEFAULT_CHARSET);
+
+        final byte[] frame = new byte[PROTOCOL_HEADER.length + statusToSend.length + dataBytesAmountToSend.length + dataToSend.length + 4];
+        int position = appendField(frame, 0, PROTOCOL_HEADER);
+        position = appendField(frame, position, statusToSend);
+        position = appendField(frame, position, dataBytesAmountToSend);
+        appendField(frame, position, dataToSend);
+        return frame;
+    }
+
+    private static int appendField(byte[] frame, int position, byte[] field) {
+        System.arraycopy(field, 0, frame, position, field.length);
+        frame[position + field.length] = MESSAGE_DELIMITER;
+        return position + field.length + 1;
+    }
+
+    private static byte[] dataOf(Message<byte[]> message) {
+        return message.getData() != null ? message.getData() : EMPTY_DATA;
+    }
+
+    static String validStatusOf(Message<byte[]> message) {
+        final String status = message.getStatus() != null ? message.getStatus() : UNKNOWN.name();
+        for (int i = 0; i < status.length(); ++i) {
+            final char character = status.charAt(i);
+            if (character == MESSAGE_DELIMITER || character > 127) {
+                throw new InvalidStatusException(status);
+            }
+        }
+        return status;
+    }
+
     @Override
     public void close() throws Exception {
         outputStream.close();
@@ -0,0 +1,262 @@
+package jezorko.ffstp;
+
+import jezorko.ffstp.exception.MissingDataException;
+import jezorko.ffstp.exception.RethrownException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static jezorko.ffstp.Status.ERROR_INVALID_STATUS;
+
+/**
+ * A gateway that routes request frames to backend servers by their status and relays the responses back.
+ * Only the header, status and length of a frame are parsed. The frame itself, payload included,
+ * is forwarded unchanged through a direct buffer, so it never gets copied into the Java heap,
+ * and nothing is deserialized or serialized again.
+ * <br>
+ * Every client connection is served by its own thread, which opens a connection to a backend
+ * the first time a request is routed to it. Requests of a client are forwarded one at a time,
+ * each followed by exactly one response. Requests whose status has no route and no default route
+ * are answered with a {@link Status#ERROR_INVALID_STATUS} message without a payload.
+ * If a backend fails, the connection of the client is closed.
+ */
+public class FriendlyFrameRelay implements AutoCloseable {
+
+    private final static byte[] NO_ROUTE_FRAME = FriendlyForkedSocketTransferProtocolWriter.encodeFrame(new Message<>(ERROR_INVALID_STATUS, null));
+
+    private final Map<String, InetSocketAddress> routes;
+    private final InetSocketAddress defaultRoute;
+    private final int bufferBytes;
+
+    private final ServerSocketChannel serverChannel;
+    private final Set<SocketChannel> openChannels = ConcurrentHashMap.newKeySet();
+    private final Thread acceptorThread;
+    private final LongAdder forwardedFrames = new LongAdder();
+    private final LongAdder forwardedBytes = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * @param bindAddress  to accept client connections on, the port may be 0 to pick any free port
+     * @param routes       backend addresses by request status
+     * @param defaultRoute backend address for requests with other statuses, may be null
+     * @param bufferBytes  size of a direct buffer allocated for every client and backend connection,
+     *                     which must fit the header, status and length of a frame
+     */
+    public FriendlyFrameRelay(InetSocketAddress bindAddress, Map<String, InetSocketAddress> routes, InetSocketAddress defaultRoute, int bufferBytes) {
+        if (bufferBytes < NO_ROUTE_FRAME.length) {
+            throw new IllegalArgumentException("buffer of " + bufferBytes + " bytes cannot fit a frame header");
+        }
+        this.routes = Collections.unmodifiableMap(new HashMap<>(routes));
+        this.defaultRoute = defaultRoute;
+        this.bufferBytes = bufferBytes;
+        try {
+            this.serverChannel = ServerSocketChannel.open();
+            this.serverChannel.bind(bindAddress);
+        } catch (IOException exception) {
+            throw new RethrownException(exception);
+        }
+        this.acceptorThread = new Thread(this::acceptWhileOpen, "ffstp-relay-acceptor");
+        this.acceptorThread.setDaemon(true);
+        this.acceptorThread.start();
+    }
+
+    /**
+     * @return the address the relay accepts client connections on
+     */
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException exception) {
+            throw new RethrownException(exception);
+        }
+    }
+
+    /**
+     * @return amount of requests and responses forwarded so far
+     */
+    public long getForwardedFrames() {
+        return forwardedFrames.sum();
+    }
+
+    /**
+     * @return total size of the requests and responses forwarded so far
+     */
+    public long getForwardedBytes() {
+        return forwardedBytes.sum();
+    }
+
+    private void acceptWhileOpen() {
+        while (!closed) {
+            try {
+                final SocketChannel clientChannel = serverChannel.accept();
+                openChannels.add(clientChannel);
+                final Thread connectionThread = new Thread(() -> relayWhileOpen(clientChannel), "ffstp-relay-connection");
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            } catch (IOException exception) {
+                // the relay keeps accepting until it is closed, a failed connection is dropped by its client
+            }
+        }
+    }
+
+    private void relayWhileOpen(SocketChannel clientChannel) {
+        final FrameChannel client = new FrameChannel(clientChannel, bufferBytes);
+        final Map<InetSocketAddress, FrameChannel> backends = new HashMap<>();
+        try {
+            int requestLength;
+            while (!closed && (requestLength = client.awaitFrame()) >= 0) {
+                final InetSocketAddress backendAddress = routes.getOrDefault(client.status(), defaultRoute);
+                if (backendAddress == null) {
+                    client.forwardFrame(requestLength, null);
+                    client.write(ByteBuffer.wrap(NO_ROUTE_FRAME));
+                    continue;
+                }
+                FrameChannel backend = backends.get(backendAddress);
+                if (backend == null) {
+                    final SocketChannel backendChannel = SocketChannel.open(backendAddress);
+                    openChannels.add(backendChannel);
+                    backend = new FrameChannel(backendChannel, bufferBytes);
+                    backends.put(backendAddress, backend);
+                }
+                client.forwardFrame(requestLength, backend);
+                final int responseLength = backend.awaitFrame();
+                if (responseLength < 0) {
+                    throw new MissingDataException(0);
+                }
+                backend.forwardFrame(responseLength, client);
+            }
+        } catch (IOException | RuntimeException exception) {
+            // the client learns about the failure from its connection being closed
+        } finally {
+            client.close();
+            backends.values()
+                    .forEach(FrameChannel::close);
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes all relayed connections.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        try {
+            serverChannel.close();
+        } catch (IOException exception) {
+            // nothing more to be done, the acceptor thread stops either way
+        }
+        openChannels.forEach(channel -> {
+            try {
+                channel.close();
+            } catch (IOException exception) {
+                // the connection is dropped either way
+            }
+        });
+        acceptorThread.join();
+    }
+
+    /**
+     * A blocking channel with a direct buffer, which is kept in read mode and may hold the beginning of the next frame.
+     */
+    private final class FrameChannel {
+        private final SocketChannel channel;
+        private final ByteBuffer buffer;
+
+        private FrameChannel(SocketChannel channel, int bufferBytes) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+            this.buffer.limit(0);
+        }
+
+        /**
+         * Reads until the header, status and length of the next frame are in the buffer.
+         *
+         * @return the length of the whole frame or -1 if the channel was closed in between frames
+         */
+        private int awaitFrame() throws IOException {
+            int frameLength;
+            while ((frameLength = FrameDecoder.frameLength(buffer)) < 0) {
+                if (buffer.remaining() == buffer.capacity()) {
+                    throw new IllegalStateException("frame header does not fit a buffer of " + buffer.capacity() + " bytes");
+                }
+                if (!fill()) {
+                    if (buffer.hasRemaining()) {
+                        throw new MissingDataException(buffer.remaining());
+                    }
+                    return -1;
+                }
+            }
+            return frameLength;
+        }
+
+        private String status() {
+            return FrameDecoder.status(buffer);
+        }
+
+        /**
+         * Passes the frame at the position of the buffer to the target, reading the rest of it from this channel.
+         *
+         * @param target to write the frame to, if null the frame is discarded
+         */
+        private void forwardFrame(int frameLength, FrameChannel target) throws IOException {
+            int remainingBytes = frameLength;
+            while (true) {
+                final int forwardedBytes = Math.min(remainingBytes, buffer.remaining());
+                final int limit = buffer.limit();
+                buffer.limit(buffer.position() + forwardedBytes);
+                if (target != null) {
+                    target.write(buffer);
+                }
+                buffer.position(buffer.limit());
+                buffer.limit(limit);
+                remainingBytes -= forwardedBytes;
+                if (remainingBytes == 0) {
+                    break;
+                }
+                if (!fill()) {
+                    throw new MissingDataException(frameLength - remainingBytes);
+                }
+            }
+            if (target != null) {
+                forwardedFrames.increment();
+                FriendlyFrameRelay.this.forwardedBytes.add(frameLength);
+            }
+        }
+
+        private void write(ByteBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+
+        /**
+         * @return false if the channel has been closed by the other side
+         */
+        private boolean fill() throws IOException {
+            buffer.compact();
+            try {
+                return channel.read(buffer) >= 0;
+            } finally {
+                buffer.flip();
+            }
+        }
+
+        private void close() {
+            openChannels.remove(channel);
+            try {
+                channel.close();
+            } catch (IOException exception) {
+                // the connection is dropped either way
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package jezorko.ffstp;
+
+import jezorko.ffstp.exception.MissingDataException;
+import jezorko.ffstp.exception.NoAvailableEndpointException;
+import jezorko.ffstp.exception.RethrownException;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * A load-balancing alternative to {@link FriendlyClientTemplate}.
+ * Keeps a connection to each of the given endpoints and routes every request
+ * using the power-of-two-choices rule: two random available endpoints are picked
+ * and the one with fewer outstanding requests wins, ties being broken by the lower
+ * moving average of response latency.
+ * <br>
+ * Endpoints failing with {@link RethrownException} or {@link MissingDataException}
+ * are ejected and brought back after an exponentially growing backoff.
+ * The request that caused the ejection is <b>not</b> retried, since it might not be idempotent.
+ * <br>
+ * Unlike the other templates, this one is safe to be used by multiple threads.
+ * Provides methods that allow for send-and-receive flow:
+ * <li>{@link #sendAndAwaitResponse(Message)}</li>
+ * <li>{@link #sendAndAwaitResponse(Message, Class)}</li>
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+public class FriendlyLoadBalancingClientTemplate<T> implements AutoCloseable {
+
+    private final static long DEFAULT_INITIAL_BACKOFF_MILLIS = 100;
+    private final static long DEFAULT_MAX_BACKOFF_MILLIS = 30_000;
+
+    private final List<LoadBalancedEndpoint<T>> endpoints;
+
+    public FriendlyLoadBalancingClientTemplate(List<InetSocketAddress> addresses, Serializer<T> serializer) {
+        this(addresses, serializer, DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * Connects to all given endpoints.
+     * Endpoints that cannot be connected to are ejected right away.
+     *
+     * @param addresses            of the endpoints to balance the requests between
+     * @param serializer           to be used for serializing request and response messages
+     * @param initialBackoffMillis time for which an endpoint is ejected after its first failure
+     * @param maxBackoffMillis     upper bound of the ejection time after consecutive failures
+     */
+    public FriendlyLoadBalancingClientTemplate(List<InetSocketAddress> addresses, Serializer<T> serializer,
+                                               long initialBackoffMillis, long maxBackoffMillis) {
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("at least one endpoint address must be given");
+        }
+        final List<LoadBalancedEndpoint<T>> endpoints = new ArrayList<>(addresses.size());
+        for (InetSocketAddress address : addresses) {
+            final LoadBalancedEndpoint<T> endpoint = new LoadBalancedEndpoint<>(address, serializer,
+                                                                                MILLISECONDS.toNanos(initialBackoffMillis),
+                                                                                MILLISECONDS.toNanos(maxBackoffMillis));
+            endpoint.connect();
+            endpoints.add(endpoint);
+        }
+        this.endpoints = unmodifiableList(endpoints);
+    }
+
+    /**
+     * To be used for implementing two-way communication system.
+     * An endpoint is chosen, the message is sent to it and a blocking-read
+     * operation awaits the response and deserializes it.
+     *
+     * @param requestMessage to be sent to the chosen endpoint
+     * @param responseClass  that response will be deserialized to
+     * @param <Y>            type of the response message
+     *
+     * @return deserialized message
+     *
+     * @throws NoAvailableEndpointException if all endpoints are ejected
+     */
+    public <Y extends T> Message<Y> sendAndAwaitResponse(Message<? extends T> requestMessage, Class<Y> responseClass) {
+        return chooseEndpoint().exchange(client -> client.sendAndAwaitResponse(requestMessage, responseClass));
+    }
+
+    /**
+     * Same as {@link #sendAndAwaitResponse(Message, Class)} but uses the
+     * simple deserialization method {@link Serializer#deserialize(byte[])}.
+     * Keep in mind that not every serializer will implement this method.
+     */
+    public Message<T> sendAndAwaitResponse(Message<? extends T> requestMessage) {
+        return chooseEndpoint().exchange(client -> client.sendAndAwaitResponse(requestMessage));
+    }
+
+    /**
+     * @return the amount of endpoints that are currently not ejected or have finished their backoff period
+     */
+    public int getAvailableEndpointsAmount() {
+        int available = 0;
+        for (LoadBalancedEndpoint<T> endpoint : endpoints) {
+            if (endpoint.isAvailable()) {
+                ++available;
+            }
+        }
+        return available;
+    }
+
+    private LoadBalancedEndpoint<T> chooseEndpoint() {
+        final List<LoadBalancedEndpoint<T>> candidates = new ArrayList<>(endpoints.size());
+        for (LoadBalancedEndpoint<T> endpoint : endpoints) {
+            if (endpoint.isAvailable()) {
+                candidates.add(endpoint);
+            }
+        }
+        if (candidates.isEmpty()) {
+            throw new NoAvailableEndpointException(endpoints.size());
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int firstIndex = random.nextInt(candidates.size());
+        final int secondIndex = (firstIndex + 1 + random.nextInt(candidates.size() - 1)) % candidates.size();
+        final LoadBalancedEndpoint<T> first = candidates.get(firstIndex);
+        final LoadBalancedEndpoint<T> second = candidates.get(secondIndex);
+
+        final int outstandingComparison = Integer.compare(first.getOutstandingRequests(), second.getOutstandingRequests());
+        if (outstandingComparison != 0) {
+            return outstandingComparison < 0 ? first : second;
+        }
+        return first.getLatencyEwmaNanos() <= second.getLatencyEwmaNanos() ? first : second;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (LoadBalancedEndpoint<T> endpoint : endpoints) {
+            endpoint.close();
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package jezorko.ffstp;
+
+import jezorko.ffstp.exception.RethrownException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.lang.System.nanoTime;
+import static jezorko.ffstp.Status.HEARTBEAT;
+
+/**
+ * A server that answers requests of many mostly idle connections with a single selector thread.
+ * Unlike {@link FriendlyServerTemplate}, which needs a thread, a reader and a writer per connection,
+ * an idle connection costs only its channel, its selection key and a small object with its last activity time.
+ * Buffers are borrowed from a shared pool only while a connection has unread or unsent bytes,
+ * and buffers grown for unusually large frames are dropped once the frame is handled,
+ * see {@link IdleConnectionPolicy}.
+ * <br>
+ * Requests with the {@link Status#HEARTBEAT} status are answered with a heartbeat without calling the handler.
+ * Connections that send nothing, not even a heartbeat, and read none of a pending response
+ * for longer than the idle timeout are closed.
+ * Connections that send malformed or too long frames or whose requests make the handler throw are closed as well.
+ * <br>
+ * The request handler is called on the selector thread, so it must not block.
+ * Requests of a single connection are answered in order, and no further requests of a connection are
+ * handled until the previous response has been written entirely.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+public class FriendlyMultiplexedServer<T> implements AutoCloseable {
+
+    private final static byte[] HEARTBEAT_FRAME = FriendlyForkedSocketTransferProtocolWriter.encodeFrame(Message.heartbeat());
+
+    private final Serializer<T> serializer;
+    private final Function<byte[], ? extends T> deserializationFunction;
+    private final Function<Message<? extends T>, Message<? extends T>> requestHandler;
+    private final IdleConnectionPolicy policy;
+    private final BufferPool bufferPool;
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final Thread selectorThread;
+
+    private volatile boolean closed;
+    private volatile int connectionCount;
+    private volatile long retainedBufferBytes;
+    private volatile long reapedCount;
+    private volatile IOException selectorFailure;
+
+    /**
+     * Uses the simple deserialization method {@link Serializer#deserialize(byte[])}.
+     * Keep in mind that not every serializer will implement this method.
+     *
+     * @param bindAddress    to accept connections on, the port may be 0 to pick any free port
+     * @param serializer     to be used for serializing request and response messages
+     * @param policy         deciding about buffers and idle connections
+     * @param requestHandler that will be used to produce the responses, called on the selector thread
+     */
+    public FriendlyMultiplexedServer(InetSocketAddress bindAddress, Serializer<T> serializer, IdleConnectionPolicy policy,
+                                     Function<Message<? extends T>, Message<? extends T>> requestHandler) {
+        this(bindAddress, serializer, serializer::deserialize, policy, requestHandler);
+    }
+
+    /**
+     * @param bindAddress    to accept connections on, the port may be 0 to pick any free port
+     * @param serializer     to be used for serializing request and response messages
+     * @param requestClass   expected class of the incoming messages
+     * @param policy         deciding about buffers and idle connections
+     * @param requestHandler that will be used to produce the responses, called on the selector thread
+     * @param <Y>            expected type of the request messages
+     *
+     * @return a started server deserializing requests to the given class
+     */
+    public static <T, Y extends T> FriendlyMultiplexedServer<T> of(InetSocketAddress bindAddress, Serializer<T> serializer, Class<Y> requestClass,
+                                                                  IdleConnectionPolicy policy,
+                                                                  Function<Message<? extends T>, Message<? extends T>> requestHandler) {
+        return new FriendlyMultiplexedServer<>(bindAddress, serializer, data -> serializer.deserialize(data, requestClass), policy, requestHandler);
+    }
+
+    private FriendlyMultiplexedServer(InetSocketAddress bindAddress, Serializer<T> serializer, Function<byte[], ? extends T> deserializationFunction,
+                                      IdleConnectionPolicy policy, Function<Message<? extends T>, Message<? extends T>> requestHandler) {
+        this.serializer = serializer;
+        this.deserializationFunction = deserializationFunction;
+        this.requestHandler = requestHandler;
+        this.policy = policy;
+        this.bufferPool = new BufferPool(policy.getPooledBufferBytes(), policy.getMaxPooledBuffers());
+        try {
+            this.selector = Selector.open();
+            this.serverChannel = ServerSocketChannel.open();
+            this.serverChannel.bind(bindAddress);
+            this.serverChannel.configureBlocking(false);
+            this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException exception) {
+            throw new RethrownException(exception);
+        }
+        this.selectorThread = new Thread(this::selectWhileOpen, "ffstp-multiplexed-server");
+        this.selectorThread.setDaemon(true);
+        this.selectorThread.start();
+    }
+
+    /**
+     * @return the address the server accepts connections on
+     */
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException exception) {
+            throw new RethrownException(exception);
+        }
+    }
+
+    /**
+     * @return amount of currently open connections
+     */
+    public int getConnectionCount() {
+        return connectionCount;
+    }
+
+    /**
+     * Memory held on behalf of connections, which is zero when all connections are at rest.
+     *
+     * @return total capacity of the buffers currently borrowed by connections
+     */
+    public long getRetainedBufferBytes() {
+        return retainedBufferBytes;
+    }
+
+    /**
+     * @return total capacity of the buffers waiting in the pool
+     */
+    public long getPooledBufferBytes() {
+        return (long) bufferPool.getPooledCount() * bufferPool.getBufferBytes();
+    }
+
+    /**
+     * @return amount of connections closed because they stayed silent for longer than the idle timeout
+     */
+    public long getReapedCount() {
+        return reapedCount;
+    }
+
+    private void selectWhileOpen() {
+        final long sweepIntervalNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), policy.getIdleTimeoutNanos() / 4);
+        long nextSweep = nanoTime() + sweepIntervalNanos;
+        try {
+            while (!closed) {
+                selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextSweep - nanoTime())));
+                final Iterator<SelectionKey> selectedKeys = selector.selectedKeys()
+                                                                    .iterator();
+                while (selectedKeys.hasNext()) {
+                    final SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if (key.isValid()) {
+                        handle(key);
+                    }
+                }
+                final long now = nanoTime();
+                if (now - nextSweep >= 0) {
+                    reapIdleConnections(now);
+                    nextSweep = now + sweepIntervalNanos;
+                }
+            }
+        } catch (IOException exception) {
+            selectorFailure = exception;
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    closeConnection(key);
+                }
+            }
+            closeQuietly(serverChannel);
+            closeQuietly(selector);
+        }
+    }
+
+    private void handle(SelectionKey key) throws IOException {
+        if (key.isAcceptable()) {
+            acceptConnections();
+            return;
+        }
+        try {
+            if (key.isWritable()) {
+                flushPendingResponse(key);
+            }
+            if (key.isValid() && key.isReadable()) {
+                readRequests(key);
+            }
+        } catch (IOException | RuntimeException exception) {
+            // the client learns about the failure from its connection being closed
+            closeConnection(key);
+        }
+    }
+
+    private void acceptConnections() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new Connection(nanoTime()));
+            ++connectionCount;
+        }
+    }
+
+    private void readRequests(SelectionKey key) throws IOException {
+        final Connection connection = (Connection) key.attachment();
+        if (connection.readBuffer == null) {
+            connection.readBuffer = borrowBuffer(0);
+        }
+        final int read = ((SocketChannel) key.channel()).read(connection.readBuffer);
+        if (read < 0) {
+            closeConnection(key);
+            return;
+        }
+        connection.lastActivityNanos = nanoTime();
+        handleBufferedRequests(key, connection);
+    }
+
+    /**
+     * Answers the requests fully received into the read buffer and resizes the buffer to fit the rest.
+     * The read buffer is kept in write mode in between.
+     */
+    private void handleBufferedRequests(SelectionKey key, Connection connection) throws IOException {
+        final ByteBuffer readBuffer = connection.readBuffer;
+        readBuffer.flip();
+        int frameLength;
+        while ((frameLength = FrameDecoder.frameLength(readBuffer)) >= 0 && frameLength <= readBuffer.remaining()) {
+            respond(key, connection, FrameDecoder.decode(readBuffer, frameLength));
+            if (connection.writeBuffer != null) {
+                // stop reading until the response is sent
+                frameLength = FrameDecoder.frameLength(readBuffer);
+                break;
+            }
+        }
+        retainPartialRequest(connection, frameLength);
+    }
+
+    private void retainPartialRequest(Connection connection, int frameLength) {
+        final ByteBuffer readBuffer = connection.readBuffer;
+        if (!readBuffer.hasRemaining()) {
+            releaseBuffer(readBuffer);
+            connection.readBuffer = null;
+            return;
+        }
+        final int requiredBytes;
+        if (frameLength >= 0) {
+            requiredBytes = frameLength;
+        }
+        else if (readBuffer.remaining() < readBuffer.capacity()) {
+            requiredBytes = readBuffer.remaining();
+        }
+        else {
+            // the status has not ended yet, there is no way to know how much more is coming
+            requiredBytes = (int) Math.min((long) readBuffer.capacity() * 2, policy.getMaxFrameBytes() + 1L);
+        }
+        if (requiredBytes > policy.getMaxFrameBytes()) {
+            throw new IllegalStateException("frame exceeds the limit of " + policy.getMaxFrameBytes() + " bytes");
+        }
+        final boolean pooledSizeFits = requiredBytes <= bufferPool.getBufferBytes();
+        final boolean isPooledSize = readBuffer.capacity() == bufferPool.getBufferBytes();
+        if (requiredBytes <= readBuffer.capacity() && pooledSizeFits == isPooledSize) {
+            readBuffer.compact();
+            return;
+        }
+        // grows the buffer for a large frame or shrinks it back to the pooled size
+        final ByteBuffer resizedBuffer = borrowBuffer(requiredBytes);
+        resizedBuffer.put(readBuffer);
+        releaseBuffer(readBuffer);
+        connection.readBuffer = resizedBuffer;
+    }
+
+    private void respond(SelectionKey key, Connection connection, Message<byte[]> serializedRequest) throws IOException {
+        final byte[] responseFrame;
+        if (Status.fromString(serializedRequest.getStatus()) == HEARTBEAT) {
+            responseFrame = HEARTBEAT_FRAME;
+        }
+        else {
+            final Message<? extends T> request = new Message<>(serializedRequest.getStatus(), deserializationFunction.apply(serializedRequest.getData()),
+                                                               serializedRequest.getDataBytesLength());
+            final Message<? extends T> response = requestHandler.apply(request);
+            responseFrame = FriendlyForkedSocketTransferProtocolWriter.encodeFrame(new Message<>(response.getStatus(),
+                                                                                                 serializer.serialize(response.getData())));
+        }
+        final ByteBuffer response = ByteBuffer.wrap(responseFrame);
+        ((SocketChannel) key.channel()).write(response);
+        if (response.hasRemaining()) {
+            connection.writeBuffer = borrowBuffer(response.remaining());
+            connection.writeBuffer.put(response);
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void flushPendingResponse(SelectionKey key) throws IOException {
+        final Connection connection = (Connection) key.attachment();
+        final ByteBuffer writeBuffer = connection.writeBuffer;
+        writeBuffer.flip();
+        if (((SocketChannel) key.channel()).write(writeBuffer) > 0) {
+            // a client slowly reading a large response is not idle
+            connection.lastActivityNanos = nanoTime();
+        }
+        if (writeBuffer.hasRemaining()) {
+            writeBuffer.compact();
+            return;
+        }
+        releaseBuffer(writeBuffer);
+        connection.writeBuffer = null;
+        key.interestOps(SelectionKey.OP_READ);
+        if (connection.readBuffer != null) {
+            handleBufferedRequests(key, connection);
+        }
+    }
+
+    private void reapIdleConnections(long now) {
+        for (SelectionKey key : selector.keys()) {
+            if (!(key.attachment() instanceof Connection)) {
+                continue;
+            }
+            final Connection connection = (Connection) key.attachment();
+            if (!isIdle(connection, now)) {
+                continue;
+            }
+            if (connection.writeBuffer != null) {
+                // the selector reports a connection as writable only once much of its socket buffer is free,
+                // so a client slowly reading a large response would otherwise look idle
+                try {
+                    flushPendingResponse(key);
+                } catch (IOException | RuntimeException exception) {
+                    closeConnection(key);
+                    continue;
+                }
+            }
+            if (key.isValid() && isIdle(connection, now)) {
+                closeConnection(key);
+                ++reapedCount;
+            }
+        }
+    }
+
+    private boolean isIdle(Connection connection, long now) {
+        return now - connection.lastActivityNanos > policy.getIdleTimeoutNanos();
+    }
+
+    private ByteBuffer borrowBuffer(int minimumBytes) {
+        final ByteBuffer buffer = bufferPool.borrow(minimumBytes);
+        retainedBufferBytes += buffer.capacity();
+        return buffer;
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        retainedBufferBytes -= buffer.capacity();
+        bufferPool.release(buffer);
+    }
+
+    private void closeConnection(SelectionKey key) {
+        final Connection connection = (Connection) key.attachment();
+        if (connection.readBuffer != null) {
+            releaseBuffer(connection.readBuffer);
+            connection.readBuffer = null;
+        }
+        if (connection.writeBuffer != null) {
+            releaseBuffer(connection.writeBuffer);
+            connection.writeBuffer = null;
+        }
+        key.attach(null);
+        key.cancel();
+        closeQuietly(key.channel());
+        --connectionCount;
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception exception) {
+            // the channel is dropped either way
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes all open connections.
+     *
+     * @throws RethrownException if the server had already stopped because its selector failed
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        selector.wakeup();
+        selectorThread.join();
+        if (selectorFailure != null) {
+            throw new RethrownException(selectorFailure);
+        }
+    }
+
+    /**
+     * All that is kept for a connection at rest, the buffers are only set while data is in flight.
+     */
+    private final static class Connection {
+        private long lastActivityNanos;
+        private ByteBuffer readBuffer;
+        private ByteBuffer writeBuffer;
+
+        private Connection(long lastActivityNanos) {
+            this.lastActivityNanos = lastActivityNanos;
+        }
+    }
+}
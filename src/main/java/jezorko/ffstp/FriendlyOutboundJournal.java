@@ -0,0 +1,479 @@
+package jezorko.ffstp;
+
+import jezorko.ffstp.exception.RethrownException;
+import jezorko.ffstp.exception.SenderClosedException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.lang.Math.min;
+import static java.lang.System.nanoTime;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A client-side, store-and-forward alternative to writing messages directly to a {@link FriendlyTemplate}.
+ * Messages are appended to a journal of memory-mapped segment files and delivered to the server
+ * asynchronously, in the order in which they were enqueued. Producers never wait for the network,
+ * so a server that is down or slow does not stall them and does not cause messages to be lost.
+ * <br>
+ * Appended messages are flushed to the disk by a background thread in groups, at most once per sync interval,
+ * and the future returned by {@link #enqueue(Message)} completes once the message is durable.
+ * A message is acknowledged, and eventually truncated from the journal, once the server has responded to it.
+ * The content of the responses is ignored. If the connection fails, it is opened again after a backoff period
+ * and the unacknowledged message is sent again, so messages are delivered at least once.
+ * <br>
+ * Messages that have not been acknowledged before {@link #close()} stay in the journal
+ * and are delivered by the next journal created in the same directory and with the same name.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+public class FriendlyOutboundJournal<T> implements AutoCloseable {
+
+    private final static long INITIAL_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private final static long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private final static String SEGMENT_SUFFIX = ".ffjournal";
+
+    private final InetSocketAddress address;
+    private final Serializer<T> serializer;
+    private final Path directory;
+    private final String name;
+    private final int segmentBytes;
+    private final long syncIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition journalChanged = lock.newCondition();
+    private final Deque<JournalSegment> segments = new ArrayDeque<>();
+    private final List<PendingSync> pendingSyncs = new ArrayList<>();
+    private final List<JournalSegment> retiredSegments = new ArrayList<>();
+    private JournalSegment spareSegment;
+    private final MappedByteBuffer checkpoint;
+    private long nextSequence;
+    private int nextSegmentIndex;
+
+    private volatile long acknowledgedSequence;
+    private volatile boolean closed;
+
+    private JournalSegment readSegment;
+    private int readPosition;
+    private volatile Socket socket;
+    private FriendlyTemplate<T> friendlyTemplate;
+
+    private final Thread syncThread;
+    private final Thread deliveryThread;
+
+    /**
+     * Recovers the journal from the given directory, if it exists, and starts delivering its messages.
+     *
+     * @param address          of the server to deliver the messages to
+     * @param serializer       to be used for serializing the messages
+     * @param directory        to keep the journal in
+     * @param name             of the journal, used as a prefix of its files
+     * @param segmentBytes     size of a single segment file
+     * @param syncInterval     maximum time between appending a message and flushing it to the disk
+     * @param syncIntervalUnit unit of the sync interval
+     */
+    public FriendlyOutboundJournal(InetSocketAddress address, Serializer<T> serializer, Path directory, String name,
+                                   int segmentBytes, long syncInterval, TimeUnit syncIntervalUnit) {
+        if (segmentBytes <= JournalSegment.HEADER_BYTES + JournalSegment.RECORD_HEADER_BYTES || syncInterval <= 0) {
+            throw new IllegalArgumentException("segments must fit at least one record and sync interval must be positive");
+        }
+        this.address = address;
+        this.serializer = serializer;
+        this.directory = directory;
+        this.name = name;
+        this.segmentBytes = segmentBytes;
+        this.syncIntervalNanos = syncIntervalUnit.toNanos(syncInterval);
+        try {
+            this.checkpoint = mapCheckpoint();
+            recover();
+        } catch (IOException exception) {
+            throw new RethrownException(exception);
+        }
+        this.syncThread = new Thread(this::syncWhileOpen, "ffstp-journal-sync");
+        this.syncThread.setDaemon(true);
+        this.syncThread.start();
+        this.deliveryThread = new Thread(this::deliverWhileOpen, "ffstp-journal-delivery");
+        this.deliveryThread.setDaemon(true);
+        this.deliveryThread.start();
+    }
+
+    /**
+     * Appends the message to the journal. This method never waits for the network or the disk.
+     * The next segment is prepared in the background, only a message larger than a segment
+     * makes this method create a segment file on its own.
+     *
+     * @param message to be serialized and delivered
+     *
+     * @return a future completed with the sequence number of the message once it is flushed to the disk
+     *
+     * @throws SenderClosedException if this journal has been closed
+     */
+    public CompletableFuture<Long> enqueue(Message<? extends T> message) {
+        final byte[] frame = FriendlyForkedSocketTransferProtocolWriter.encodeFrame(new Message<>(message.getStatus(),
+                                                                                                  serializer.serialize(message.getData())));
+        final CompletableFuture<Long> durable = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new SenderClosedException();
+            }
+            JournalSegment currentSegment = segments.getLast();
+            if (!currentSegment.fits(frame.length)) {
+                // the sync thread flushes the retired segment before completing the futures of its messages
+                retiredSegments.add(currentSegment);
+                currentSegment = nextSegment(frame.length);
+            }
+            final long sequence = nextSequence++;
+            currentSegment.append(sequence, frame);
+            pendingSyncs.add(new PendingSync(sequence, durable));
+            journalChanged.signalAll();
+        } catch (IOException exception) {
+            throw new RethrownException(exception);
+        } finally {
+            lock.unlock();
+        }
+        return durable;
+    }
+
+    /**
+     * @return amount of enqueued messages that have not been acknowledged yet
+     */
+    public long getPendingCount() {
+        lock.lock();
+        try {
+            return nextSequence - 1 - acknowledgedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all messages enqueued so far are acknowledged by the server.
+     *
+     * @return true if all messages were acknowledged before the timeout
+     */
+    public boolean awaitDelivery(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = nanoTime() + unit.toNanos(timeout);
+        lock.lock();
+        try {
+            final long lastSequence = nextSequence - 1;
+            while (acknowledgedSequence < lastSequence) {
+                final long remaining = deadline - nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                journalChanged.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        acknowledgedSequence = checkpoint.getLong(0);
+        final Pattern segmentFileName = Pattern.compile(Pattern.quote(name) + "-(\\d+)" + Pattern.quote(SEGMENT_SUFFIX));
+        final List<Integer> segmentIndexes;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentIndexes = files.map(path -> segmentFileName.matcher(path.getFileName()
+                                                                           .toString()))
+                                  .filter(Matcher::matches)
+                                  .map(matcher -> Integer.parseInt(matcher.group(1)))
+                                  .sorted()
+                                  .collect(Collectors.toList());
+        }
+        final List<JournalSegment> recoveredSegments = new ArrayList<>();
+        for (int segmentIndex : segmentIndexes) {
+            recoveredSegments.add(JournalSegment.open(segmentPath(segmentIndex)));
+            nextSegmentIndex = segmentIndex + 1;
+        }
+        // the sync thread names the spare segment before creating it, so a producer rolling over in the meantime
+        // takes the following index and the spare ends up after it; the records, not the file names, tell the order
+        recoveredSegments.sort(Comparator.comparingLong(segment -> segment.getFirstSequence() == 0
+                                                                   ? Long.MAX_VALUE
+                                                                   : segment.getFirstSequence()));
+        segments.addAll(recoveredSegments);
+        if (segments.isEmpty()) {
+            createSegment(0);
+        }
+        // a segment prepared in advance may have been left empty at the end of the journal
+        final long lastSequence = segments.stream()
+                                          .mapToLong(JournalSegment::getLastSequence)
+                                          .max()
+                                          .orElse(0);
+        nextSequence = Math.max(lastSequence, acknowledgedSequence) + 1;
+        truncateAcknowledgedSegments();
+
+        readSegment = segments.getFirst();
+        readPosition = JournalSegment.HEADER_BYTES;
+        while (readPosition < readSegment.getWritePosition() && readSegment.sequenceAt(readPosition) <= acknowledgedSequence) {
+            readPosition = readSegment.nextPosition(readPosition);
+        }
+    }
+
+    /**
+     * Switches to the segment prepared by the sync thread. If there is none yet, or the frame does not fit in it,
+     * a segment is created right away. The index of a segment file then no longer follows the order of segments,
+     * which recovery restores from the sequences of their records.
+     */
+    private JournalSegment nextSegment(int frameLength) throws IOException {
+        final JournalSegment preparedSegment = spareSegment;
+        spareSegment = null;
+        LockSupport.unpark(syncThread);
+        if (preparedSegment != null) {
+            segments.add(preparedSegment);
+            if (preparedSegment.fits(frameLength)) {
+                return preparedSegment;
+            }
+        }
+        return createSegment(frameLength);
+    }
+
+    /**
+     * Creates the segment used after the current one is full, so that producers do not have to.
+     */
+    private void prepareSpareSegment() {
+        final Path path;
+        lock.lock();
+        try {
+            if (spareSegment != null || closed) {
+                return;
+            }
+            path = segmentPath(nextSegmentIndex++);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            final JournalSegment segment = JournalSegment.create(path, segmentBytes);
+            lock.lock();
+            try {
+                spareSegment = segment;
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException exception) {
+            // the producer creates the segment itself and reports the failure if it happens again
+        }
+    }
+
+    private JournalSegment createSegment(int frameLength) throws IOException {
+        final int size = Math.max(segmentBytes, JournalSegment.HEADER_BYTES + JournalSegment.RECORD_HEADER_BYTES + frameLength);
+        final JournalSegment segment = JournalSegment.create(segmentPath(nextSegmentIndex++), size);
+        segments.add(segment);
+        return segment;
+    }
+
+    private void syncWhileOpen() {
+        final List<PendingSync> syncedMessages = new ArrayList<>();
+        final List<JournalSegment> syncedSegments = new ArrayList<>();
+        while (true) {
+            prepareSpareSegment();
+            final boolean closing = closed;
+            if (!closing) {
+                LockSupport.parkNanos(this, syncIntervalNanos);
+            }
+            lock.lock();
+            try {
+                syncedMessages.addAll(pendingSyncs);
+                pendingSyncs.clear();
+                syncedSegments.addAll(retiredSegments);
+                retiredSegments.clear();
+                syncedSegments.add(segments.getLast());
+            } finally {
+                lock.unlock();
+            }
+            if (!syncedMessages.isEmpty()) {
+                // messages may have been appended to segments that were retired since the last sync
+                syncedSegments.forEach(JournalSegment::force);
+                syncedMessages.forEach(PendingSync::complete);
+                syncedMessages.clear();
+            }
+            syncedSegments.clear();
+            if (closing) {
+                return;
+            }
+        }
+    }
+
+    private void deliverWhileOpen() {
+        while (true) {
+            final JournalSegment segment;
+            final int position;
+            lock.lock();
+            try {
+                while (!closed && !advanceToNextRecord()) {
+                    journalChanged.awaitUninterruptibly();
+                }
+                if (closed) {
+                    break;
+                }
+                segment = readSegment;
+                position = readPosition;
+            } finally {
+                lock.unlock();
+            }
+            if (!deliver(segment.frameAt(position))) {
+                break;
+            }
+            acknowledge(segment.sequenceAt(position), segment.nextPosition(position));
+        }
+        closeConnection();
+    }
+
+    /**
+     * @return true if there is a record to deliver at the read position, moving it to the next segment if needed
+     */
+    private boolean advanceToNextRecord() {
+        while (readPosition >= readSegment.getWritePosition()) {
+            if (readSegment == segments.getLast()) {
+                return false;
+            }
+            final Iterator<JournalSegment> iterator = segments.iterator();
+            while (iterator.next() != readSegment) {
+                // skip the segments that have been read
+            }
+            readSegment = iterator.next();
+            readPosition = JournalSegment.HEADER_BYTES;
+        }
+        return true;
+    }
+
+    private boolean deliver(byte[] frame) {
+        long backoffNanos = INITIAL_BACKOFF_NANOS;
+        while (!closed) {
+            try {
+                if (friendlyTemplate == null) {
+                    socket = new Socket(address.getAddress(), address.getPort());
+                    friendlyTemplate = new FriendlyTemplate<>(socket, serializer);
+                }
+                friendlyTemplate.writeFrame(frame);
+                friendlyTemplate.readSerializedMessage();
+                return true;
+            } catch (IOException | RuntimeException exception) {
+                closeConnection();
+                LockSupport.parkNanos(this, backoffNanos);
+                backoffNanos = min(MAX_BACKOFF_NANOS, backoffNanos * 2);
+            }
+        }
+        return false;
+    }
+
+    private void acknowledge(long sequence, int nextPosition) {
+        lock.lock();
+        try {
+            acknowledgedSequence = sequence;
+            checkpoint.putLong(0, sequence);
+            readPosition = nextPosition;
+            truncateAcknowledgedSegments();
+            journalChanged.signalAll();
+        } catch (IOException exception) {
+            // the checkpoint already covers the segment, so recovery skips its messages
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void truncateAcknowledgedSegments() throws IOException {
+        while (segments.size() > 1 && segments.getFirst() != readSegment && segments.getFirst()
+                                                                                    .getLastSequence() <= acknowledgedSequence) {
+            checkpoint.force();
+            segments.removeFirst()
+                    .delete();
+        }
+    }
+
+    private void closeConnection() {
+        final Socket currentSocket = socket;
+        friendlyTemplate = null;
+        socket = null;
+        if (currentSocket != null) {
+            try {
+                currentSocket.close();
+            } catch (IOException exception) {
+                // the connection is dropped either way
+            }
+        }
+    }
+
+    private Path segmentPath(int segmentIndex) {
+        return directory.resolve(String.format("%s-%06d%s", name, segmentIndex, SEGMENT_SUFFIX));
+    }
+
+    private MappedByteBuffer mapCheckpoint() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve(name + ".ffack"), CREATE, READ, WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+        }
+    }
+
+    /**
+     * Stops accepting new messages, flushes the journal to the disk and stops the delivery.
+     * A message that is being delivered at that moment may be delivered again by the next journal.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            journalChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        LockSupport.unpark(syncThread);
+        LockSupport.unpark(deliveryThread);
+        final Socket currentSocket = socket;
+        if (currentSocket != null) {
+            try {
+                // unblocks the delivery thread if it is waiting for a response
+                currentSocket.close();
+            } catch (IOException exception) {
+                // the connection is dropped either way
+            }
+        }
+        syncThread.join();
+        deliveryThread.join();
+        checkpoint.force();
+        if (spareSegment != null) {
+            try {
+                spareSegment.delete();
+            } catch (IOException exception) {
+                // an empty segment holds no messages to be delivered by the next journal
+            }
+        }
+    }
+
+    private final static class PendingSync {
+        private final long sequence;
+        private final CompletableFuture<Long> durable;
+
+        private PendingSync(long sequence, CompletableFuture<Long> durable) {
+            this.sequence = sequence;
+            this.durable = durable;
+        }
+
+        private void complete() {
+            durable.complete(sequence);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package jezorko.ffstp;
+
+import jezorko.ffstp.exception.ReaderClosedException;
+import jezorko.ffstp.exception.RethrownException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Reads messages of a {@link FriendlyTemplate} in a pipelined fashion.
+ * A dedicated thread only decodes frames from the socket, while payloads are deserialized
+ * in parallel by the given executor. Messages are still returned by {@link #readMessage()}
+ * in the order in which they arrived.
+ * Useful with expensive serializers, where deserialization on the reading thread
+ * would otherwise stall the reading of subsequent frames.
+ * <br>
+ * At most {@code maxMessagesInFlight} messages are decoded ahead of the consumer,
+ * after that the decoding thread stops reading from the socket.
+ * If decoding fails, the exception is thrown by {@link #readMessage()} in place
+ * of the message that could not be decoded and no more messages are read.
+ * <br>
+ * Closing the reader makes {@link #readMessage()} throw {@link ReaderClosedException},
+ * including in threads that are already waiting for a message.
+ * This class does not take ownership over the template. Closing the template
+ * unblocks the decoding thread if it is waiting for data.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+public class FriendlyPipelinedReader<T> implements AutoCloseable {
+
+    private final BlockingQueue<CompletableFuture<Message<T>>> messagesInFlight;
+    private final Thread decodingThread;
+    private final CompletableFuture<Message<T>> closedFailure = new CompletableFuture<>();
+    private volatile CompletableFuture<Message<T>> decodingFailure;
+    private volatile boolean closed;
+
+    /**
+     * Uses the simple deserialization method {@link Serializer#deserialize(byte[])}
+     * and the common {@link ForkJoinPool} for deserialization.
+     * Keep in mind that not every serializer will implement this method.
+     *
+     * @param friendlyTemplate    to read messages from
+     * @param maxMessagesInFlight amount of messages that can be decoded ahead of the consumer
+     */
+    public FriendlyPipelinedReader(FriendlyTemplate<T> friendlyTemplate, int maxMessagesInFlight) {
+        this(friendlyTemplate, ForkJoinPool.commonPool(), maxMessagesInFlight);
+    }
+
+    /**
+     * Uses the simple deserialization method {@link Serializer#deserialize(byte[])}.
+     * Keep in mind that not every serializer will implement this method.
+     *
+     * @param friendlyTemplate        to read messages from
+     * @param deserializationExecutor to deserialize payloads with
+     * @param maxMessagesInFlight     amount of messages that can be decoded ahead of the consumer
+     */
+    public FriendlyPipelinedReader(FriendlyTemplate<T> friendlyTemplate, Executor deserializationExecutor, int maxMessagesInFlight) {
+        this(friendlyTemplate, data -> friendlyTemplate.getSerializer()
+                                                       .deserialize(data), deserializationExecutor, maxMessagesInFlight);
+    }
+
+    /**
+     * @param friendlyTemplate        to read messages from
+     * @param messageClass            to deserialize the messages to
+     * @param deserializationExecutor to deserialize payloads with
+     * @param maxMessagesInFlight     amount of messages that can be decoded ahead of the consumer
+     * @param <Y>                     type of the messages
+     *
+     * @return a reader of messages deserialized to the given class
+     */
+    public static <T, Y extends T> FriendlyPipelinedReader<Y> of(FriendlyTemplate<T> friendlyTemplate, Class<Y> messageClass,
+                                                                Executor deserializationExecutor, int maxMessagesInFlight) {
+        return new FriendlyPipelinedReader<>(friendlyTemplate, data -> friendlyTemplate.getSerializer()
+                                                                                       .deserialize(data, messageClass),
+                                             deserializationExecutor, maxMessagesInFlight);
+    }
+
+    private FriendlyPipelinedReader(FriendlyTemplate<?> friendlyTemplate, Function<byte[], T> deserializationFunction,
+                                    Executor deserializationExecutor, int maxMessagesInFlight) {
+        if (maxMessagesInFlight <= 0) {
+            throw new IllegalArgumentException("amount of messages in flight must be positive, got " + maxMessagesInFlight);
+        }
+        this.messagesInFlight = new ArrayBlockingQueue<>(maxMessagesInFlight);
+        this.decodingThread = new Thread(() -> decodeWhileOpen(friendlyTemplate, deserializationFunction, deserializationExecutor),
+                                         "ffstp-pipelined-reader");
+        this.decodingThread.setDaemon(true);
+        this.decodingThread.start();
+    }
+
+    /**
+     * Returns the next message in the order of arrival.
+     * This method blocks until the message is decoded and deserialized.
+     *
+     * @return the next incoming message
+     *
+     * @throws ReaderClosedException if the reader has been closed before or while waiting
+     */
+    public Message<T> readMessage() {
+        if (closed) {
+            return Futures.join(closedFailure);
+        }
+        CompletableFuture<Message<T>> nextMessage = messagesInFlight.poll();
+        if (nextMessage == null) {
+            // once decoding has failed, the failure is kept for any subsequent reads
+            nextMessage = decodingFailure != null ? decodingFailure : awaitNextMessage();
+        }
+        if (nextMessage == closedFailure) {
+            // passed on to wake up the next thread waiting for a message
+            messagesInFlight.offer(closedFailure);
+        }
+        else if (!nextMessage.isDone()) {
+            // closing reaches only the messages still queued, this one has already been taken
+            nextMessage = nextMessage.applyToEither(closedFailure, Function.identity());
+        }
+        return Futures.join(nextMessage);
+    }
+
+    private CompletableFuture<Message<T>> awaitNextMessage() {
+        try {
+            return messagesInFlight.take();
+        } catch (InterruptedException exception) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new RethrownException(exception);
+        }
+    }
+
+    private void decodeWhileOpen(FriendlyTemplate<?> friendlyTemplate, Function<byte[], T> deserializationFunction, Executor deserializationExecutor) {
+        while (!closed) {
+            CompletableFuture<Message<T>> nextMessage;
+            boolean decodingFailed = false;
+            try {
+                final Message<byte[]> serializedMessage = friendlyTemplate.readSerializedMessage();
+                nextMessage = CompletableFuture.supplyAsync(() -> deserialize(serializedMessage, deserializationFunction), deserializationExecutor);
+            } catch (RuntimeException exception) {
+                nextMessage = new CompletableFuture<>();
+                nextMessage.completeExceptionally(exception);
+                decodingFailure = nextMessage;
+                decodingFailed = true;
+            }
+            try {
+                messagesInFlight.put(nextMessage);
+            } catch (InterruptedException exception) {
+                return;
+            }
+            if (decodingFailed) {
+                return;
+            }
+        }
+    }
+
+    private Message<T> deserialize(Message<byte[]> serializedMessage, Function<byte[], T> deserializationFunction) {
+        return new Message<>(serializedMessage.getStatus(), deserializationFunction.apply(serializedMessage.getData()),
+                             serializedMessage.getDataBytesLength());
+    }
+
+    /**
+     * Stops decoding of further messages. Messages that have not been read yet are discarded,
+     * and threads waiting in {@link #readMessage()} are woken up with a {@link ReaderClosedException}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        closedFailure.completeExceptionally(new ReaderClosedException());
+        decodingThread.interrupt();
+        for (CompletableFuture<Message<T>> pendingMessage : messagesInFlight) {
+            pendingMessage.completeExceptionally(new ReaderClosedException());
+        }
+        messagesInFlight.offer(closedFailure);
+    }
+}
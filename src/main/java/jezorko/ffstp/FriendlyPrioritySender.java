@@ -0,0 +1,214 @@
+package jezorko.ffstp;
+
+import jezorko.ffstp.exception.SenderClosedException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Allows many threads to send messages through a single {@link FriendlyTemplate} in two lanes,
+ * so that urgent messages never wait for a large message to be written entirely.
+ * Messages with one of the urgent statuses are written as soon as the current frame is written.
+ * Other messages with payloads longer than the fragment size are split into fragments,
+ * and urgent messages are written in between the fragments.
+ * <br>
+ * All fragments but the last one have the {@link #FRAGMENT_STATUS} status. The last fragment has
+ * the original status prefixed with {@link #LAST_FRAGMENT_STATUS_PREFIX}. Fragments of different messages
+ * are never interleaved, and messages that fit into a single fragment are written unchanged.
+ * Messages must not use the fragment statuses themselves, since the reader could not tell them apart.
+ * Use {@link FriendlyReassemblingReader} to read the messages on the other side.
+ * <br>
+ * Messages of a single thread in a single lane are written in the order in which they were sent.
+ * The template must not be written to directly while this sender is in use.
+ * After a write fails, all pending and subsequent sends fail with the same exception.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+public class FriendlyPrioritySender<T> implements AutoCloseable {
+
+    /**
+     * Status of every fragment of a split message except the last one.
+     */
+    public final static String FRAGMENT_STATUS = "FRAGMENT";
+
+    /**
+     * Prefix of the status of the last fragment of a split message, followed by the status of the message.
+     */
+    public final static String LAST_FRAGMENT_STATUS_PREFIX = "LAST_FRAGMENT:";
+
+    private final FriendlyTemplate<T> friendlyTemplate;
+    private final int maxFragmentBytes;
+    private final Set<String> urgentStatuses;
+
+    private final Queue<PendingMessage> urgentMessages = new ConcurrentLinkedQueue<>();
+    private final Queue<PendingMessage> bulkMessages = new ConcurrentLinkedQueue<>();
+    private final Thread writerThread;
+    private PendingMessage currentBulkMessage;
+    private int currentBulkOffset;
+
+    private volatile boolean writerWaiting;
+    private volatile boolean closed;
+    private volatile RuntimeException writeFailure;
+
+    /**
+     * Starts the writer thread. The sender does not take ownership over the template.
+     *
+     * @param friendlyTemplate to write messages to
+     * @param maxFragmentBytes maximum payload size of a single fragment, which bounds how long an urgent message may wait
+     * @param urgentStatuses   statuses of messages that overtake all other messages
+     */
+    public FriendlyPrioritySender(FriendlyTemplate<T> friendlyTemplate, int maxFragmentBytes, String... urgentStatuses) {
+        if (maxFragmentBytes <= 0) {
+            throw new IllegalArgumentException("fragment size must be positive, got " + maxFragmentBytes);
+        }
+        this.friendlyTemplate = friendlyTemplate;
+        this.maxFragmentBytes = maxFragmentBytes;
+        this.urgentStatuses = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(urgentStatuses)));
+        this.writerThread = new Thread(this::writeWhileOpen, "ffstp-priority-sender");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues the message in the lane chosen by its status. This method never blocks on the socket.
+     *
+     * @param message to be serialized and sent
+     *
+     * @return a future completed once the whole message has been written
+     *
+     * @throws SenderClosedException    if this sender has been closed
+     * @throws IllegalArgumentException if the status of the message is reserved for fragments
+     */
+    public CompletableFuture<Void> send(Message<? extends T> message) {
+        if (closed) {
+            throw new SenderClosedException();
+        }
+        final Message<byte[]> serializedMessage = friendlyTemplate.serialize(message);
+        final String status = FriendlyForkedSocketTransferProtocolWriter.validStatusOf(serializedMessage);
+        if (FRAGMENT_STATUS.equals(status) || status.startsWith(LAST_FRAGMENT_STATUS_PREFIX)) {
+            throw new IllegalArgumentException("status " + status + " is reserved for fragments");
+        }
+        final byte[] data = serializedMessage.getData() != null ? serializedMessage.getData() : new byte[0];
+        final boolean urgent = urgentStatuses.contains(status);
+
+        final PendingMessage pendingMessage = urgent || data.length <= maxFragmentBytes
+                                              ? new PendingMessage(FriendlyForkedSocketTransferProtocolWriter.encodeFrame(serializedMessage), null, null)
+                                              : new PendingMessage(null, status, data);
+        final RuntimeException failure = writeFailure;
+        if (failure != null) {
+            pendingMessage.sent.completeExceptionally(failure);
+            return pendingMessage.sent;
+        }
+        final Queue<PendingMessage> lane = urgent ? urgentMessages : bulkMessages;
+        lane.offer(pendingMessage);
+        if (closed && lane.remove(pendingMessage)) {
+            // raced with close(), the writer thread might not pick this message up anymore
+            throw new SenderClosedException();
+        }
+        if (writerWaiting) {
+            LockSupport.unpark(writerThread);
+        }
+        return pendingMessage.sent;
+    }
+
+    private void writeWhileOpen() {
+        while (true) {
+            PendingMessage nextMessage = urgentMessages.poll();
+            if (nextMessage != null) {
+                write(nextMessage, nextMessage.frame, true);
+                continue;
+            }
+            if (currentBulkMessage == null) {
+                currentBulkMessage = bulkMessages.poll();
+                currentBulkOffset = 0;
+            }
+            if (currentBulkMessage != null) {
+                writeNextBulkFrame();
+                continue;
+            }
+            if (closed && urgentMessages.isEmpty() && bulkMessages.isEmpty()) {
+                return;
+            }
+            awaitMessages();
+        }
+    }
+
+    private void writeNextBulkFrame() {
+        final PendingMessage bulkMessage = currentBulkMessage;
+        if (bulkMessage.frame != null) {
+            currentBulkMessage = null;
+            write(bulkMessage, bulkMessage.frame, true);
+            return;
+        }
+        final int fragmentEnd = Math.min(bulkMessage.data.length, currentBulkOffset + maxFragmentBytes);
+        final boolean lastFragment = fragmentEnd == bulkMessage.data.length;
+        final String fragmentStatus = lastFragment ? LAST_FRAGMENT_STATUS_PREFIX + bulkMessage.status : FRAGMENT_STATUS;
+        final byte[] fragment = FriendlyForkedSocketTransferProtocolWriter.encodeFrame(
+                new Message<>(fragmentStatus, Arrays.copyOfRange(bulkMessage.data, currentBulkOffset, fragmentEnd)));
+        currentBulkOffset = fragmentEnd;
+        if (lastFragment) {
+            currentBulkMessage = null;
+        }
+        write(bulkMessage, fragment, lastFragment);
+    }
+
+    private void write(PendingMessage pendingMessage, byte[] frame, boolean lastFrame) {
+        try {
+            final RuntimeException failure = writeFailure;
+            if (failure != null) {
+                throw failure;
+            }
+            friendlyTemplate.writeFrame(frame);
+            if (lastFrame) {
+                pendingMessage.sent.complete(null);
+            }
+        } catch (RuntimeException exception) {
+            writeFailure = exception;
+            pendingMessage.sent.completeExceptionally(exception);
+            currentBulkMessage = null;
+        }
+    }
+
+    private void awaitMessages() {
+        writerWaiting = true;
+        if (urgentMessages.isEmpty() && bulkMessages.isEmpty() && !closed) {
+            LockSupport.park(this);
+        }
+        writerWaiting = false;
+    }
+
+    /**
+     * Stops accepting new messages and waits until all queued messages are written.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        LockSupport.unpark(writerThread);
+        writerThread.join();
+    }
+
+    private final static class PendingMessage {
+        /**
+         * Set if the message is written as a single frame.
+         */
+        private final byte[] frame;
+        /**
+         * Set if the message is split into fragments.
+         */
+        private final String status;
+        private final byte[] data;
+        private final CompletableFuture<Void> sent = new CompletableFuture<>();
+
+        private PendingMessage(byte[] frame, String status, byte[] data) {
+            this.frame = frame;
+            this.status = status;
+            this.data = data;
+        }
+    }
+}
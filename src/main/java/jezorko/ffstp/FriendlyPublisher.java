@@ -0,0 +1,210 @@
+package jezorko.ffstp;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Broadcasts messages to the subscribers of a topic.
+ * A published message is serialized and encoded into a frame once, and the same frame
+ * is written to every subscriber, so the cost of a broadcast is dominated by the socket writes.
+ * <br>
+ * Publishing never blocks on the sockets. Every subscriber has a bounded queue of frames waiting
+ * to be written, drained by the given executor, at most one task per subscriber at a time.
+ * When the queue of a slow subscriber is full, its {@link SlowSubscriberPolicy} decides what happens.
+ * A subscription whose write fails is closed together with the template of the subscriber.
+ * <br>
+ * The templates of subscribers must not be written to directly while they are subscribed.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+public class FriendlyPublisher<T> {
+
+    private final Serializer<T> serializer;
+    private final Executor writeExecutor;
+    private final ConcurrentMap<String, Set<Subscription>> subscriptionsByTopic = new ConcurrentHashMap<>();
+
+    /**
+     * @param serializer    to be used for serializing published messages
+     * @param writeExecutor to write frames to subscribers with, writes block until the socket accepts the frame
+     */
+    public FriendlyPublisher(Serializer<T> serializer, Executor writeExecutor) {
+        this.serializer = serializer;
+        this.writeExecutor = writeExecutor;
+    }
+
+    /**
+     * Subscribes the template to the topic. Does not take ownership over the template,
+     * unless it is closed because of a failed write or the {@link SlowSubscriberPolicy#DISCONNECT} policy.
+     *
+     * @param topic             to receive messages of
+     * @param subscriber        to write the messages to
+     * @param policy            deciding what happens when the subscriber cannot keep up
+     * @param maxQueuedMessages amount of messages that can wait to be written to the subscriber
+     *
+     * @return the subscription, which can be closed to unsubscribe
+     */
+    public Subscription subscribe(String topic, FriendlyTemplate<?> subscriber, SlowSubscriberPolicy policy, int maxQueuedMessages) {
+        if (maxQueuedMessages <= 0) {
+            throw new IllegalArgumentException("amount of queued messages must be positive, got " + maxQueuedMessages);
+        }
+        final Subscription subscription = new Subscription(topic, subscriber, policy, maxQueuedMessages);
+        subscriptionsByTopic.compute(topic, (key, subscriptions) -> {
+            final Set<Subscription> topicSubscriptions = subscriptions != null ? subscriptions : new CopyOnWriteArraySet<>();
+            topicSubscriptions.add(subscription);
+            return topicSubscriptions;
+        });
+        return subscription;
+    }
+
+    /**
+     * Encodes the message once and queues it for every current subscriber of the topic.
+     *
+     * @param topic   to publish the message to
+     * @param message to be serialized and sent
+     *
+     * @return amount of subscribers the message was queued for
+     */
+    public int publish(String topic, Message<? extends T> message) {
+        final Set<Subscription> subscriptions = subscriptionsByTopic.getOrDefault(topic, Collections.emptySet());
+        if (subscriptions.isEmpty()) {
+            return 0;
+        }
+        final byte[] frame = FriendlyForkedSocketTransferProtocolWriter.encodeFrame(new Message<>(message.getStatus(),
+                                                                                                  serializer.serialize(message.getData())));
+        int queued = 0;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.offer(frame)) {
+                ++queued;
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * @return amount of open subscriptions of the topic
+     */
+    public int getSubscriberCount(String topic) {
+        return subscriptionsByTopic.getOrDefault(topic, Collections.emptySet())
+                                   .size();
+    }
+
+    /**
+     * A subscriber of a single topic.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final String topic;
+        private final FriendlyTemplate<?> subscriber;
+        private final SlowSubscriberPolicy policy;
+        private final int maxQueuedMessages;
+
+        private final ArrayDeque<byte[]> queuedFrames = new ArrayDeque<>();
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+        private long droppedCount;
+        private volatile boolean closed;
+
+        private Subscription(String topic, FriendlyTemplate<?> subscriber, SlowSubscriberPolicy policy, int maxQueuedMessages) {
+            this.topic = topic;
+            this.subscriber = subscriber;
+            this.policy = policy;
+            this.maxQueuedMessages = maxQueuedMessages;
+        }
+
+        /**
+         * @return amount of messages dropped because the subscriber could not keep up
+         */
+        public synchronized long getDroppedCount() {
+            return droppedCount;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        private boolean offer(byte[] frame) {
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                if (queuedFrames.size() == maxQueuedMessages) {
+                    switch (policy) {
+                        case DROP_OLDEST:
+                            queuedFrames.pollFirst();
+                            ++droppedCount;
+                            break;
+                        case CONFLATE:
+                            droppedCount += queuedFrames.size();
+                            queuedFrames.clear();
+                            break;
+                        case DISCONNECT:
+                            droppedCount += queuedFrames.size() + 1;
+                            disconnect();
+                            return false;
+                    }
+                }
+                queuedFrames.addLast(frame);
+            }
+            if (drainScheduled.compareAndSet(false, true)) {
+                writeExecutor.execute(this::drain);
+            }
+            return true;
+        }
+
+        private void drain() {
+            while (true) {
+                final byte[] frame;
+                synchronized (this) {
+                    frame = closed ? null : queuedFrames.pollFirst();
+                }
+                if (frame == null) {
+                    drainScheduled.set(false);
+                    // a frame queued right before the flag was cleared would not be written otherwise
+                    if (!hasQueuedFrames() || !drainScheduled.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    subscriber.writeFrame(frame);
+                } catch (RuntimeException exception) {
+                    disconnect();
+                    return;
+                }
+            }
+        }
+
+        private synchronized boolean hasQueuedFrames() {
+            return !closed && !queuedFrames.isEmpty();
+        }
+
+        private void disconnect() {
+            close();
+            try {
+                subscriber.close();
+            } catch (Exception exception) {
+                // the subscription is closed either way
+            }
+        }
+
+        /**
+         * Unsubscribes from the topic. Messages that have not been written yet are dropped.
+         */
+        @Override
+        public void close() {
+            synchronized (this) {
+                closed = true;
+                queuedFrames.clear();
+            }
+            subscriptionsByTopic.computeIfPresent(topic, (key, subscriptions) -> {
+                subscriptions.remove(this);
+                return subscriptions.isEmpty() ? null : subscriptions;
+            });
+        }
+    }
+}
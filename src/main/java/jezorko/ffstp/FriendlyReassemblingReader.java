@@ -0,0 +1,76 @@
+package jezorko.ffstp;
+
+import java.io.ByteArrayOutputStream;
+import java.util.function.Function;
+
+import static jezorko.ffstp.FriendlyPrioritySender.FRAGMENT_STATUS;
+import static jezorko.ffstp.FriendlyPrioritySender.LAST_FRAGMENT_STATUS_PREFIX;
+
+/**
+ * Reads messages written by {@link FriendlyPrioritySender}, joining fragments of split messages back together.
+ * Messages that were not split are returned as they are, even if they arrived in between the fragments of another message.
+ * <br>
+ * This class does not take ownership over the template.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+public class FriendlyReassemblingReader<T> {
+
+    private final FriendlyTemplate<T> friendlyTemplate;
+    private ByteArrayOutputStream fragments = new ByteArrayOutputStream();
+
+    /**
+     * @param friendlyTemplate to read messages from
+     */
+    public FriendlyReassemblingReader(FriendlyTemplate<T> friendlyTemplate) {
+        this.friendlyTemplate = friendlyTemplate;
+    }
+
+    /**
+     * Returns the next complete message in the order in which its last frame arrived.
+     * This method blocks until all fragments of a split message have been read.
+     *
+     * @param messageClass to deserialize the message from
+     * @param <Y>          expected type of the message
+     *
+     * @return the next complete message
+     */
+    public <Y extends T> Message<Y> readMessage(Class<Y> messageClass) {
+        return readMessage(data -> friendlyTemplate.getSerializer()
+                                                   .deserialize(data, messageClass));
+    }
+
+    /**
+     * Same as {@link #readMessage(Class)} but uses
+     * the simple deserialization method {@link Serializer#deserialize(byte[])}.
+     * Keep in mind that not every serializer will implement this method.
+     */
+    public Message<T> readMessage() {
+        return readMessage(data -> friendlyTemplate.getSerializer()
+                                                   .deserialize(data));
+    }
+
+    private <Y extends T> Message<Y> readMessage(Function<byte[], Y> deserializationFunction) {
+        return friendlyTemplate.deserialize(readSerializedMessage(), deserializationFunction);
+    }
+
+    private Message<byte[]> readSerializedMessage() {
+        while (true) {
+            final Message<byte[]> serializedMessage = friendlyTemplate.readSerializedMessage();
+            final String status = serializedMessage.getStatus();
+            if (FRAGMENT_STATUS.equals(status)) {
+                fragments.write(serializedMessage.getData(), 0, serializedMessage.getData().length);
+            }
+            else if (status.startsWith(LAST_FRAGMENT_STATUS_PREFIX)) {
+                fragments.write(serializedMessage.getData(), 0, serializedMessage.getData().length);
+                final byte[] data = fragments.toByteArray();
+                // does not keep the buffer grown for a large message
+                fragments = new ByteArrayOutputStream();
+                return new Message<>(status.substring(LAST_FRAGMENT_STATUS_PREFIX.length()), data, data.length);
+            }
+            else {
+                return serializedMessage;
+            }
+        }
+    }
+}
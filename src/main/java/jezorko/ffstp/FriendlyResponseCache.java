@@ -0,0 +1,225 @@
+package jezorko.ffstp;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * An opt-in cache of responses for idempotent requests, meant to be passed to {@link FriendlyServerTemplate}.
+ * Requests are identified by their status and raw payload bytes, so a hit skips deserialization of the request,
+ * the request handler and serialization of the response. Responses are stored as encoded frames.
+ * <br>
+ * Only requests with one of the cacheable statuses given in the constructor are cached.
+ * Responses with an error status, {@link Status#ERROR} or one of the more specific error statuses, are never cached,
+ * so that a failure is not repeated to every client until the entry expires.
+ * Entries expire after the configured time to live and the cache is bounded by the total amount
+ * of bytes held by request keys and response frames. When the cache is full, the least recently
+ * used entry is evicted, but only if it has expired or the new entry has been requested more often
+ * than the victim (a TinyLFU-style admission filter), so that one-off requests do not flush out popular ones.
+ * <br>
+ * A single instance can be shared between server templates of many connections.
+ */
+public class FriendlyResponseCache {
+
+    private final static Set<Status> ERROR_STATUSES = EnumSet.of(Status.ERROR, Status.ERROR_INVALID_STATUS, Status.ERROR_INVALID_PAYLOAD);
+
+    private final long maximumSizeInBytes;
+    private final long timeToLiveNanos;
+    private final Set<String> cacheableStatuses;
+
+    private final LinkedHashMap<SerializedRequestKey, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch frequencySketch;
+    private long currentSizeInBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maximumSizeInBytes upper bound of the amount of bytes held by cached requests and responses
+     * @param timeToLiveMillis   time after which a cached response expires
+     * @param cacheableStatuses  statuses of requests whose responses may be cached
+     */
+    public FriendlyResponseCache(long maximumSizeInBytes, long timeToLiveMillis, String... cacheableStatuses) {
+        if (maximumSizeInBytes <= 0 || timeToLiveMillis <= 0) {
+            throw new IllegalArgumentException("cache size and time to live must be positive");
+        }
+        this.maximumSizeInBytes = maximumSizeInBytes;
+        this.timeToLiveNanos = MILLISECONDS.toNanos(timeToLiveMillis);
+        this.cacheableStatuses = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(cacheableStatuses)));
+        this.frequencySketch = new FrequencySketch(maximumSizeInBytes);
+    }
+
+    /**
+     * @return true if requests with given status may be answered from the cache
+     */
+    public boolean isCacheable(String status) {
+        return cacheableStatuses.contains(status);
+    }
+
+    /**
+     * @return true if a response with given status may be cached, which is any status but an error one
+     */
+    boolean isCacheableResponse(String status) {
+        return !ERROR_STATUSES.contains(Status.fromString(status));
+    }
+
+    /**
+     * @return the amount of requests answered from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the amount of requests with a cacheable status that had to be handled
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the amount of bytes currently held by the cache
+     */
+    public synchronized long getSizeInBytes() {
+        return currentSizeInBytes;
+    }
+
+    /**
+     * @return the amount of currently cached responses
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all cached responses, counters are left untouched.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        currentSizeInBytes = 0;
+    }
+
+    /**
+     * Looks up the encoded response frame for the given request.
+     *
+     * @return the cached frame or null if there is none or it has expired
+     */
+    synchronized byte[] get(SerializedRequestKey request) {
+        frequencySketch.increment(request.hashCode());
+        final CachedResponse cachedResponse = entries.get(request);
+        if (cachedResponse == null) {
+            misses.increment();
+            return null;
+        }
+        if (nanoTime() - cachedResponse.expiresAtNanos >= 0) {
+            remove(request);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cachedResponse.frame;
+    }
+
+    /**
+     * Caches the encoded response frame for the given request, unless it is not admitted.
+     */
+    synchronized void put(SerializedRequestKey request, byte[] responseFrame) {
+        final long weight = request.getWeight() + responseFrame.length;
+        if (weight > maximumSizeInBytes) {
+            return;
+        }
+        remove(request);
+
+        final int candidateFrequency = frequencySketch.frequency(request.hashCode());
+        while (currentSizeInBytes + weight > maximumSizeInBytes) {
+            final Map.Entry<SerializedRequestKey, CachedResponse> victim = entries.entrySet()
+                                                                                  .iterator()
+                                                                                  .next();
+            final boolean victimExpired = nanoTime() - victim.getValue().expiresAtNanos >= 0;
+            if (!victimExpired && candidateFrequency <= frequencySketch.frequency(victim.getKey().hashCode())) {
+                return;
+            }
+            remove(victim.getKey());
+        }
+
+        entries.put(request, new CachedResponse(responseFrame, nanoTime() + timeToLiveNanos, weight));
+        currentSizeInBytes += weight;
+    }
+
+    private void remove(SerializedRequestKey request) {
+        final CachedResponse removed = entries.remove(request);
+        if (removed != null) {
+            currentSizeInBytes -= removed.weight;
+        }
+    }
+
+    private final static class CachedResponse {
+        private final byte[] frame;
+        private final long expiresAtNanos;
+        private final long weight;
+
+        private CachedResponse(byte[] frame, long expiresAtNanos, long weight) {
+            this.frame = frame;
+            this.expiresAtNanos = expiresAtNanos;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A count-min sketch of small saturating counters, halved periodically so that old popularity fades.
+     */
+    private final static class FrequencySketch {
+
+        private final static int MAX_COUNT = 15;
+        private final static int[] SEEDS = {0x97cb3127, 0xb1a83721, 0x5ba2f6e1, 0x2c9277b5};
+
+        private final byte[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(long maximumSizeInBytes) {
+            final int width = Integer.highestOneBit((int) Math.max(1024, Math.min(1 << 20, maximumSizeInBytes / 64)));
+            this.counters = new byte[width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        private void increment(int hash) {
+            for (int seed : SEEDS) {
+                final int index = indexOf(hash, seed);
+                if (counters[index] < MAX_COUNT) {
+                    ++counters[index];
+                }
+            }
+            if (++additions == sampleSize) {
+                for (int i = 0; i < counters.length; ++i) {
+                    counters[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int seed : SEEDS) {
+                frequency = Math.min(frequency, counters[indexOf(hash, seed)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int hash, int seed) {
+            int mixed = (hash ^ seed) * 0x9e3779b9;
+            mixed ^= mixed >>> 16;
+            return mixed & mask;
+        }
+    }
+}
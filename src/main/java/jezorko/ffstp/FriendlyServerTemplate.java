@@ -2,7 +2,10 @@ package jezorko.ffstp;
 
 import java.net.Socket;
 import java.util.function.Function;
-import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static jezorko.ffstp.Status.END_OF_STREAM;
+import static jezorko.ffstp.Status.ERROR;
 
 /**
  * A decorator for {@link FriendlyTemplate}.
@@ -10,15 +13,41 @@ import java.util.function.Supplier;
  * Provides methods that allow for request handling flow:
  * <li>{@link #waitForRequestAndReply(Function)}</li>
  * <li>{@link #waitForRequestAndReply(Class, Function)}</li>
+ * and request handling flow with many responses to a single request:
+ * <li>{@link #waitForRequestAndStreamReplies(Function)}</li>
+ * <li>{@link #waitForRequestAndStreamReplies(Class, Function)}</li>
+ * Responses to repeated requests can be served from a {@link FriendlyResponseCache}.
  *
  * @param <T> defines the lower-bound type allowed as a message payload
  */
 public class FriendlyServerTemplate<T> implements AutoCloseable {
 
     private final FriendlyTemplate<T> friendlyTemplate;
+    private final FriendlyResponseCache responseCache;
 
     public FriendlyServerTemplate(Socket socket, Serializer<T> serializer) {
-        this.friendlyTemplate = new FriendlyTemplate<>(socket, serializer);
+        this(socket, serializer, null);
+    }
+
+    /**
+     * @param socket        to be used for communication
+     * @param serializer    to be used for serializing request and response messages
+     * @param responseCache to be consulted before calling the request handler, may be shared between connections
+     */
+    public FriendlyServerTemplate(Socket socket, Serializer<T> serializer, FriendlyResponseCache responseCache) {
+        this(new FriendlyTemplate<>(socket, serializer), responseCache);
+    }
+
+    /**
+     * Allows using a customized template, for example one that notifies a {@link FrameListener}.
+     * Takes the ownership over the template.
+     *
+     * @param friendlyTemplate to be used for communication
+     * @param responseCache    to be consulted before calling the request handler, may be null
+     */
+    public FriendlyServerTemplate(FriendlyTemplate<T> friendlyTemplate, FriendlyResponseCache responseCache) {
+        this.friendlyTemplate = friendlyTemplate;
+        this.responseCache = responseCache;
     }
 
     /**
@@ -31,7 +60,8 @@ public class FriendlyServerTemplate<T> implements AutoCloseable {
      * @param <Y>            expected type of the request message
      */
     public <Y extends T> void waitForRequestAndReply(Class<Y> requestClass, Function<Message<? extends T>, Message<? extends T>> requestHandler) {
-        waitForRequestAndReply(requestHandler, () -> friendlyTemplate.readMessage(requestClass));
+        waitForRequestAndReply(requestHandler, data -> friendlyTemplate.getSerializer()
+                                                                       .deserialize(data, requestClass));
     }
 
     /**
@@ -40,15 +70,96 @@ public class FriendlyServerTemplate<T> implements AutoCloseable {
      * Keep in mind that not every serializer will implement this method.
      */
     public void waitForRequestAndReply(Function<Message<? extends T>, Message<? extends T>> requestHandler) {
-        waitForRequestAndReply(requestHandler, friendlyTemplate::readMessage);
+        waitForRequestAndReply(requestHandler, data -> friendlyTemplate.getSerializer()
+                                                                       .deserialize(data));
     }
 
-    private void waitForRequestAndReply(Function<Message<? extends T>, Message<? extends T>> requestHandler, Supplier<Message<? extends T>> messageReader) {
-        final Message<? extends T> request = messageReader.get();
-        final Message<? extends T> response = requestHandler.apply(request);
+    private void waitForRequestAndReply(Function<Message<? extends T>, Message<? extends T>> requestHandler, Function<byte[], ? extends T> deserializationFunction) {
+        final Message<byte[]> serializedRequest = friendlyTemplate.readSerializedMessage();
+
+        if (responseCache == null || !responseCache.isCacheable(serializedRequest.getStatus())) {
+            final Message<? extends T> response = requestHandler.apply(friendlyTemplate.deserialize(serializedRequest, deserializationFunction));
+            friendlyTemplate.writeMessage(response);
+            return;
+        }
+
+        final SerializedRequestKey requestKey = new SerializedRequestKey(serializedRequest);
+        final byte[] cachedResponseFrame = responseCache.get(requestKey);
+        if (cachedResponseFrame != null) {
+            friendlyTemplate.writeFrame(cachedResponseFrame);
+            return;
+        }
+
+        final Message<? extends T> response = requestHandler.apply(friendlyTemplate.deserialize(serializedRequest, deserializationFunction));
+        final byte[] responseFrame = friendlyTemplate.encodeFrame(response);
+        if (responseCache.isCacheableResponse(response.getStatus())) {
+            responseCache.put(requestKey, responseFrame);
+        }
+        friendlyTemplate.writeFrame(responseFrame);
+    }
+
+    /**
+     * To be used for implementing two-way communication system with many responses to a single request.
+     * This method will block until enough data is available in the socket.
+     * Every response produced by the handler is sent back to the socket as soon as the stream yields it,
+     * followed by a message with {@link Status#END_OF_STREAM} status and no payload.
+     * The stream returned by the handler is closed afterwards.
+     * If the handler or the stream throws, a message with {@link Status#ERROR} status and no payload is sent
+     * before ending the stream, then the exception is rethrown.
+     * A response with {@link Status#END_OF_STREAM} status would end the stream early on the client side,
+     * so it fails the stream the same way with an {@link IllegalStateException}.
+     *
+     * @param requestClass   expected class of the incoming message
+     * @param requestHandler that will be used to produce the responses
+     * @param <Y>            expected type of the request message
+     */
+    public <Y extends T> void waitForRequestAndStreamReplies(Class<Y> requestClass, Function<Message<? extends T>, Stream<? extends Message<? extends T>>> requestHandler) {
+        waitForRequestAndStreamReplies(requestHandler, data -> friendlyTemplate.getSerializer()
+                                                                               .deserialize(data, requestClass));
+    }
+
+    /**
+     * Same as {@link #waitForRequestAndStreamReplies(Class, Function)} but uses the
+     * simple deserialization method {@link Serializer#deserialize(byte[])}.
+     * Keep in mind that not every serializer will implement this method.
+     */
+    public void waitForRequestAndStreamReplies(Function<Message<? extends T>, Stream<? extends Message<? extends T>>> requestHandler) {
+        waitForRequestAndStreamReplies(requestHandler, data -> friendlyTemplate.getSerializer()
+                                                                               .deserialize(data));
+    }
+
+    private void waitForRequestAndStreamReplies(Function<Message<? extends T>, Stream<? extends Message<? extends T>>> requestHandler, Function<byte[], ? extends T> deserializationFunction) {
+        final Message<? extends T> request = friendlyTemplate.deserialize(friendlyTemplate.readSerializedMessage(), deserializationFunction);
+        try (Stream<? extends Message<? extends T>> responses = requestHandler.apply(request)) {
+            responses.forEachOrdered(this::writeStreamedReply);
+        } catch (RuntimeException | Error failure) {
+            endStreamAfterFailure(failure);
+            throw failure;
+        }
+        friendlyTemplate.writeSerializedMessage(new Message<>(END_OF_STREAM, null));
+    }
+
+    private void writeStreamedReply(Message<? extends T> response) {
+        if (END_OF_STREAM.name()
+                         .equals(response.getStatus())) {
+            throw new IllegalStateException("request handler must not produce responses with " + END_OF_STREAM + " status");
+        }
         friendlyTemplate.writeMessage(response);
     }
 
+    /**
+     * Lets the client know that the stream has failed and ends it, so that the client does not wait forever
+     * and the connection stays usable. If the failure was caused by the connection itself, this will most likely fail too.
+     */
+    private void endStreamAfterFailure(Throwable failure) {
+        try {
+            friendlyTemplate.writeSerializedMessage(new Message<>(ERROR, null));
+            friendlyTemplate.writeSerializedMessage(new Message<>(END_OF_STREAM, null));
+        } catch (RuntimeException exception) {
+            failure.addSuppressed(exception);
+        }
+    }
+
     @Override
     public void close() throws Exception {
         friendlyTemplate.close();
@@ -0,0 +1,46 @@
+package jezorko.ffstp;
+
+/**
+ * Reads messages of a {@link FriendlyTemplate} without letting large or bogus payloads exhaust the heap.
+ * Payloads are kept in memory only within the limits of the given {@link SpillPolicy}
+ * and are streamed to temporary files otherwise. Nothing is allocated up front from the declared
+ * payload length, memory buffers grow as the payload arrives and files are written in bounded chunks.
+ * <br>
+ * Payloads are returned raw, as {@link BufferedMessage}s, which must be closed to release their memory or files.
+ * Spilled payloads are not passed to the {@link FrameListener} of the template.
+ * This class does not take ownership over the template.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+public class FriendlySpillingReader<T> {
+
+    private final FriendlyTemplate<T> friendlyTemplate;
+    private final SpillPolicy spillPolicy;
+    private final MemoryBudget connectionBudget;
+
+    /**
+     * @param friendlyTemplate to read messages from
+     * @param spillPolicy      deciding which payloads are kept in memory, may be shared between connections
+     */
+    public FriendlySpillingReader(FriendlyTemplate<T> friendlyTemplate, SpillPolicy spillPolicy) {
+        this.friendlyTemplate = friendlyTemplate;
+        this.spillPolicy = spillPolicy;
+        this.connectionBudget = new MemoryBudget(spillPolicy.getConnectionMemoryBytes());
+    }
+
+    /**
+     * Reads the next message. This method blocks until the whole payload has been received.
+     *
+     * @return the next message, which must be closed once its payload is no longer needed
+     */
+    public BufferedMessage readMessage() {
+        return friendlyTemplate.readBufferedMessage(spillPolicy, connectionBudget);
+    }
+
+    /**
+     * @return amount of payload bytes kept in memory by messages of this connection that have not been closed yet
+     */
+    public long getReservedBytes() {
+        return connectionBudget.getReservedBytes();
+    }
+}
@@ -0,0 +1,209 @@
+package jezorko.ffstp;
+
+import jezorko.ffstp.exception.InvalidSegmentException;
+import jezorko.ffstp.exception.RethrownException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+import static jezorko.ffstp.FriendlyStripedSender.SEGMENT_HEADER_BYTES;
+import static jezorko.ffstp.FriendlyStripedSender.SEGMENT_STATUS_PREFIX;
+
+/**
+ * Reads messages written by {@link FriendlyStripedSender}, putting the segments of split messages back together.
+ * Every connection is read by its own thread. Segments are kept as they arrive, in any order,
+ * and copied into a single payload once the last of them arrives, so that a length announced by the peer
+ * is never allocated up front. A message therefore takes about twice its size in memory while it is being put together.
+ * Messages are returned by {@link #readMessage()} in the order in which they were completed.
+ * <br>
+ * If reading any of the connections fails, or a segment does not fit its message,
+ * the exception is thrown by {@link #readMessage()}
+ * once all messages completed before the failure have been read.
+ * This class does not take ownership over the templates. Closing the templates unblocks the reading threads.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+public class FriendlyStripedReceiver<T> implements AutoCloseable {
+
+    private final FriendlyTemplate<T> firstStripe;
+    private final Map<Long, Transfer> transfers = new ConcurrentHashMap<>();
+    private final BlockingQueue<CompletableFuture<Message<byte[]>>> completedMessages = new LinkedBlockingQueue<>();
+    private final List<Thread> readingThreads = new ArrayList<>();
+    private volatile CompletableFuture<Message<byte[]>> readingFailure;
+    private volatile boolean closed;
+
+    /**
+     * Starts a reading thread for every connection.
+     *
+     * @param stripes connections from the same peer to read segments from
+     */
+    public FriendlyStripedReceiver(List<FriendlyTemplate<T>> stripes) {
+        if (stripes.isEmpty()) {
+            throw new IllegalArgumentException("at least one connection is required");
+        }
+        this.firstStripe = stripes.get(0);
+        for (FriendlyTemplate<T> stripe : stripes) {
+            final Thread readingThread = new Thread(() -> readWhileOpen(stripe), "ffstp-striped-receiver");
+            readingThread.setDaemon(true);
+            readingThreads.add(readingThread);
+        }
+        readingThreads.forEach(Thread::start);
+    }
+
+    /**
+     * Returns the next complete message. This method blocks until all segments of the message have been read.
+     *
+     * @param messageClass to deserialize the message from
+     * @param <Y>          expected type of the message
+     *
+     * @return the next complete message
+     */
+    public <Y extends T> Message<Y> readMessage(Class<Y> messageClass) {
+        return readMessage(data -> firstStripe.getSerializer()
+                                              .deserialize(data, messageClass));
+    }
+
+    /**
+     * Same as {@link #readMessage(Class)} but uses
+     * the simple deserialization method {@link Serializer#deserialize(byte[])}.
+     * Keep in mind that not every serializer will implement this method.
+     */
+    public Message<T> readMessage() {
+        return readMessage(data -> firstStripe.getSerializer()
+                                              .deserialize(data));
+    }
+
+    private <Y extends T> Message<Y> readMessage(Function<byte[], Y> deserializationFunction) {
+        CompletableFuture<Message<byte[]>> nextMessage = completedMessages.poll();
+        if (nextMessage == null) {
+            nextMessage = readingFailure != null ? readingFailure : awaitNextMessage();
+        }
+        return firstStripe.deserialize(Futures.join(nextMessage), deserializationFunction);
+    }
+
+    private CompletableFuture<Message<byte[]>> awaitNextMessage() {
+        try {
+            return completedMessages.take();
+        } catch (InterruptedException exception) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new RethrownException(exception);
+        }
+    }
+
+    private void readWhileOpen(FriendlyTemplate<T> stripe) {
+        while (!closed) {
+            try {
+                final Message<byte[]> serializedMessage = stripe.readSerializedMessage();
+                final String status = serializedMessage.getStatus();
+                if (!status.startsWith(SEGMENT_STATUS_PREFIX)) {
+                    completedMessages.add(CompletableFuture.completedFuture(serializedMessage));
+                    continue;
+                }
+                final Message<byte[]> completedMessage = addSegment(status.substring(SEGMENT_STATUS_PREFIX.length()), serializedMessage.getData());
+                if (completedMessage != null) {
+                    completedMessages.add(CompletableFuture.completedFuture(completedMessage));
+                }
+            } catch (RuntimeException exception) {
+                reportFailure(exception);
+                return;
+            }
+        }
+    }
+
+    private void reportFailure(RuntimeException exception) {
+        final CompletableFuture<Message<byte[]>> failure = new CompletableFuture<>();
+        failure.completeExceptionally(exception);
+        synchronized (this) {
+            // only the first failure is reported, the other connections usually fail because of it
+            if (readingFailure == null && !closed) {
+                readingFailure = failure;
+                completedMessages.add(failure);
+            }
+        }
+    }
+
+    /**
+     * @return the message if the given segment was the last missing one
+     *
+     * @throws InvalidSegmentException if the header of the segment does not fit the transfer
+     */
+    private Message<byte[]> addSegment(String status, byte[] segment) {
+        if (segment.length < SEGMENT_HEADER_BYTES) {
+            throw new InvalidSegmentException("expected at least " + SEGMENT_HEADER_BYTES + " bytes, got " + segment.length);
+        }
+        final ByteBuffer segmentBuffer = ByteBuffer.wrap(segment);
+        final long transferId = segmentBuffer.getLong();
+        final int dataLength = segmentBuffer.getInt();
+        final int offset = segmentBuffer.getInt();
+        final int length = segment.length - SEGMENT_HEADER_BYTES;
+        if (dataLength < 0 || offset < 0 || (long) offset + length > dataLength) {
+            throw new InvalidSegmentException(length + " bytes at offset " + offset + " do not fit in " + dataLength + " bytes");
+        }
+        final Transfer transfer = transfers.computeIfAbsent(transferId, id -> new Transfer(dataLength));
+        if (!transfer.add(dataLength, offset, segment)) {
+            return null;
+        }
+        transfers.remove(transferId);
+        return new Message<>(status, transfer.assemble(), dataLength);
+    }
+
+    /**
+     * Stops reading further messages. The templates have to be closed to unblock the reading threads.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        readingThreads.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Keeps the received segments until all of them have arrived, so that only received data takes up memory,
+     * whatever the length announced by the segments.
+     */
+    private final static class Transfer {
+        private final int dataLength;
+        private final TreeMap<Integer, byte[]> segments = new TreeMap<>();
+        private int missingBytes;
+
+        private Transfer(int dataLength) {
+            this.dataLength = dataLength;
+            this.missingBytes = dataLength;
+        }
+
+        /**
+         * @return true if the transfer is complete
+         *
+         * @throws InvalidSegmentException if the segment overlaps another one or announces a different length
+         */
+        private synchronized boolean add(int announcedDataLength, int offset, byte[] segment) {
+            if (announcedDataLength != dataLength) {
+                throw new InvalidSegmentException("announced " + announcedDataLength + " bytes, other segments announced " + dataLength);
+            }
+            final int length = segment.length - SEGMENT_HEADER_BYTES;
+            final Map.Entry<Integer, byte[]> previous = segments.floorEntry(offset);
+            final Map.Entry<Integer, byte[]> next = segments.ceilingEntry(offset);
+            if (previous != null && previous.getKey() + previous.getValue().length - SEGMENT_HEADER_BYTES > offset ||
+                next != null && (next.getKey() < offset + length || next.getKey() == offset)) {
+                throw new InvalidSegmentException(length + " bytes at offset " + offset + " overlap another segment");
+            }
+            segments.put(offset, segment);
+            missingBytes -= length;
+            return missingBytes == 0;
+        }
+
+        private synchronized byte[] assemble() {
+            final byte[] data = new byte[dataLength];
+            segments.forEach((offset, segment) -> System.arraycopy(segment, SEGMENT_HEADER_BYTES, data, offset, segment.length - SEGMENT_HEADER_BYTES));
+            return data;
+        }
+    }
+}
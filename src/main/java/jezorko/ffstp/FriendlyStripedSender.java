@@ -0,0 +1,121 @@
+package jezorko.ffstp;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends large messages over several connections to the same peer at once, so that a single
+ * message is not limited by the congestion window of a single connection.
+ * The payload of a message longer than the segment size is split into segments, which are written
+ * in parallel, every connection taking every n-th segment.
+ * Use {@link FriendlyStripedReceiver} on the other side to put the segments back together.
+ * <br>
+ * Every segment is a frame with the original status prefixed with {@link #SEGMENT_STATUS_PREFIX}.
+ * Its payload starts with {@link #SEGMENT_HEADER_BYTES} bytes holding the transfer identifier,
+ * the length of the whole payload and the offset of the segment, followed by the segment itself.
+ * Messages that fit into a single segment are written unchanged through the first connection.
+ * Messages must not use the segment status prefix themselves, since the receiver could not tell them apart.
+ * <br>
+ * This class is thread-safe, segments of concurrently sent messages may be interleaved.
+ * It does not take ownership over the templates.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+public class FriendlyStripedSender<T> {
+
+    /**
+     * Prefix of the status of every segment, followed by the status of the message.
+     */
+    public final static String SEGMENT_STATUS_PREFIX = "SEGMENT:";
+
+    /**
+     * Size of the transfer identifier, the payload length and the segment offset at the beginning of a segment.
+     */
+    public final static int SEGMENT_HEADER_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private final List<FriendlyTemplate<T>> stripes;
+    private final int segmentBytes;
+    private final Executor writeExecutor;
+    private final AtomicLong nextTransferId = new AtomicLong(ThreadLocalRandom.current()
+                                                                               .nextLong());
+
+    /**
+     * @param stripes       connections to the same peer to write segments to
+     * @param segmentBytes  maximum size of a single segment of the payload
+     * @param writeExecutor to write to all connections but the first one with, the first one is written to by the sending thread
+     */
+    public FriendlyStripedSender(List<FriendlyTemplate<T>> stripes, int segmentBytes, Executor writeExecutor) {
+        if (stripes.isEmpty() || segmentBytes <= 0) {
+            throw new IllegalArgumentException("at least one connection and a positive segment size are required");
+        }
+        this.stripes = new ArrayList<>(stripes);
+        this.segmentBytes = segmentBytes;
+        this.writeExecutor = writeExecutor;
+    }
+
+    /**
+     * Writes the message, splitting it into segments if it is long enough.
+     * This method blocks until all segments have been written.
+     *
+     * @param message to be serialized and sent
+     *
+     * @throws IllegalArgumentException if the status of the message is reserved for segments
+     */
+    public void send(Message<? extends T> message) {
+        final FriendlyTemplate<T> firstStripe = stripes.get(0);
+        final Message<byte[]> serializedMessage = firstStripe.serialize(message);
+        final String status = FriendlyForkedSocketTransferProtocolWriter.validStatusOf(serializedMessage);
+        if (status.startsWith(SEGMENT_STATUS_PREFIX)) {
+            throw new IllegalArgumentException("status " + status + " is reserved for segments");
+        }
+        final byte[] data = serializedMessage.getData();
+        if (data == null || data.length <= segmentBytes) {
+            final byte[] frame = FriendlyForkedSocketTransferProtocolWriter.encodeFrame(serializedMessage);
+            writeFrame(firstStripe, frame);
+            return;
+        }
+
+        final String segmentStatus = SEGMENT_STATUS_PREFIX + status;
+        final long transferId = nextTransferId.getAndIncrement();
+        final int segmentCount = (data.length + segmentBytes - 1) / segmentBytes;
+        final int usedStripes = Math.min(stripes.size(), segmentCount);
+
+        final List<CompletableFuture<Void>> stripesWritten = new ArrayList<>(usedStripes - 1);
+        for (int stripe = 1; stripe < usedStripes; ++stripe) {
+            final int firstSegment = stripe;
+            stripesWritten.add(CompletableFuture.runAsync(() -> writeSegments(firstSegment, usedStripes, segmentCount, transferId, segmentStatus, data),
+                                                          writeExecutor));
+        }
+        writeSegments(0, usedStripes, segmentCount, transferId, segmentStatus, data);
+        stripesWritten.forEach(Futures::join);
+    }
+
+    /**
+     * Writes every n-th segment, starting with the given one, to the connection with the same index.
+     */
+    private void writeSegments(int firstSegment, int usedStripes, int segmentCount, long transferId, String segmentStatus, byte[] data) {
+        final FriendlyTemplate<T> stripe = stripes.get(firstSegment);
+        for (int segment = firstSegment; segment < segmentCount; segment += usedStripes) {
+            final int offset = segment * segmentBytes;
+            final int length = Math.min(segmentBytes, data.length - offset);
+            final ByteBuffer segmentPayload = ByteBuffer.allocate(SEGMENT_HEADER_BYTES + length);
+            segmentPayload.putLong(transferId)
+                          .putInt(data.length)
+                          .putInt(offset)
+                          .put(data, offset, length);
+            writeFrame(stripe, FriendlyForkedSocketTransferProtocolWriter.encodeFrame(new Message<>(segmentStatus, segmentPayload.array())));
+        }
+    }
+
+    private static void writeFrame(FriendlyTemplate<?> stripe, byte[] frame) {
+        // frames of concurrently sent messages must not be mixed within a connection
+        synchronized (stripe) {
+            stripe.writeFrame(frame);
+        }
+    }
+}
@@ -29,6 +29,7 @@ public class FriendlyTemplate<T> implements AutoCloseable {
     private final FriendlyForkedSocketTransferProtocolReader reader;
     private final FriendlyForkedSocketTransferProtocolWriter writer;
     private final Serializer<T> serializer;
+    private final FrameListener frameListener;
 
     /**
      * Creates instances of reader and writer classes.
@@ -39,6 +40,19 @@ public class FriendlyTemplate<T> implements AutoCloseable {
      * @param serializer to be used for serializing request and response messages
      */
     public FriendlyTemplate(Socket socket, Serializer<T> serializer) {
+        this(socket, serializer, null);
+    }
+
+    /**
+     * Same as {@link #FriendlyTemplate(Socket, Serializer)}, but every frame read or written
+     * is also passed to the given listener. Incoming frames have to be encoded again for the listener,
+     * so allocation-free reads with {@link #readMessageInto(MessageHolder)} do allocate while a listener is set.
+     *
+     * @param socket        to be used for communication
+     * @param serializer    to be used for serializing request and response messages
+     * @param frameListener to be notified about every frame, may be null
+     */
+    public FriendlyTemplate(Socket socket, Serializer<T> serializer, FrameListener frameListener) {
         try {
             DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
             writer = new FriendlyForkedSocketTransferProtocolWriter(outputStream);
@@ -52,6 +66,7 @@ public class FriendlyTemplate<T> implements AutoCloseable {
             throw new ProtocolReaderInitializationException(e);
         }
         this.serializer = serializer;
+        this.frameListener = frameListener;
     }
 
     /**
@@ -78,9 +93,56 @@ public class FriendlyTemplate<T> implements AutoCloseable {
     }
 
     private <Y extends T> Message<Y> readMessage(Function<byte[], Y> deserializationFunction) {
-        final Message<byte[]> serializedMessage = reader.readMessageRethrowErrors();
-        final Y message = deserializationFunction.apply(serializedMessage.getData());
-        return new Message<>(serializedMessage.getStatus(), message, serializedMessage.getDataBytesLength());
+        return deserialize(readSerializedMessage(), deserializationFunction);
+    }
+
+    /**
+     * Same as {@link #readMessage(Class)}, but the payload is deserialized on the first call
+     * to {@link Message#getData()} of the returned message, which also throws any deserialization errors.
+     * Consumers that only look at the status of a message never pay for its deserialization.
+     *
+     * @param messageClass to deserialize the message from
+     * @param <Y>          expected type of the message
+     *
+     * @return incoming message with a lazily deserialized payload
+     */
+    public <Y extends T> Message<Y> readMessageLazily(Class<Y> messageClass) {
+        return new LazyMessage<>(readSerializedMessage(), data -> serializer.deserialize(data, messageClass));
+    }
+
+    /**
+     * Same as {@link #readMessageLazily(Class)} but uses
+     * the simple deserialization method {@link Serializer#deserialize(byte[])}.
+     * Keep in mind that not every serializer will implement this method.
+     */
+    public Message<T> readMessageLazily() {
+        return new LazyMessage<>(readSerializedMessage(), serializer::deserialize);
+    }
+
+    /**
+     * Reads only the status and the payload length of the next message.
+     * The payload can then be read or skipped straight from the socket, see {@link IncomingMessage}.
+     * This method will block until the status and length are available in the socket.
+     *
+     * @return incoming message with its payload still in the socket
+     */
+    public IncomingMessage<T> readIncomingMessage() {
+        return reader.readIncomingMessageRethrowErrors(serializer, frameListener);
+    }
+
+    /**
+     * Allocation-free alternative to {@link #readMessage()} for hot receive loops.
+     * Reads the next message into the given holder without deserializing its payload,
+     * overwriting the previous contents of the holder.
+     * This method will block until there is enough data available in the socket.
+     *
+     * @param holder to be filled with the incoming message
+     */
+    public void readMessageInto(MessageHolder holder) {
+        reader.readMessageRethrowErrors(holder);
+        if (frameListener != null) {
+            notifyInbound(holder.toMessage());
+        }
     }
 
     /**
@@ -91,10 +153,72 @@ public class FriendlyTemplate<T> implements AutoCloseable {
      * @param message to be serialized and send through the socket
      */
     public void writeMessage(Message<? extends T> message) {
-        final Message<byte[]> serializedMessage = new Message<>(message.getStatus(), serializer.serialize(message.getData()));
+        writeSerializedMessage(serialize(message));
+    }
+
+    /**
+     * Reads a message without deserializing its payload.
+     */
+    Message<byte[]> readSerializedMessage() {
+        final Message<byte[]> serializedMessage = reader.readMessageRethrowErrors();
+        if (frameListener != null) {
+            notifyInbound(serializedMessage);
+        }
+        return serializedMessage;
+    }
+
+    BufferedMessage readBufferedMessage(SpillPolicy spillPolicy, MemoryBudget connectionBudget) {
+        final BufferedMessage bufferedMessage = reader.readBufferedMessageRethrowErrors(spillPolicy, connectionBudget);
+        if (frameListener != null && !bufferedMessage.isSpilled()) {
+            notifyInbound(new Message<>(bufferedMessage.getStatus(), bufferedMessage.toByteArray(), bufferedMessage.getDataBytesLength()));
+        }
+        return bufferedMessage;
+    }
+
+    <Y extends T> Message<Y> deserialize(Message<byte[]> serializedMessage, Function<byte[], Y> deserializationFunction) {
+        final Y message = deserializationFunction.apply(serializedMessage.getData());
+        return new Message<>(serializedMessage.getStatus(), message, serializedMessage.getDataBytesLength());
+    }
+
+    Message<byte[]> serialize(Message<? extends T> message) {
+        return new Message<>(message.getStatus(), serializer.serialize(message.getData()));
+    }
+
+    void writeSerializedMessage(Message<byte[]> serializedMessage) {
+        if (frameListener != null) {
+            writeFrame(FriendlyForkedSocketTransferProtocolWriter.encodeFrame(serializedMessage));
+            return;
+        }
         writer.writeMessage(serializedMessage);
     }
 
+    /**
+     * Serializes the given message and encodes it into a frame that can be sent with {@link #writeFrame(byte[])}.
+     */
+    byte[] encodeFrame(Message<? extends T> message) {
+        return FriendlyForkedSocketTransferProtocolWriter.encodeFrame(serialize(message));
+    }
+
+    void writeFrame(byte[] frame) {
+        writeFrames(frame, 0, frame.length);
+    }
+
+    void writeFrames(byte[] frames, int offset, int length) {
+        writer.writeFrames(frames, offset, length);
+        if (frameListener != null) {
+            frameListener.onFrames(FrameDirection.OUTBOUND, frames, offset, length);
+        }
+    }
+
+    private void notifyInbound(Message<byte[]> serializedMessage) {
+        final byte[] frame = FriendlyForkedSocketTransferProtocolWriter.encodeReceivedFrame(serializedMessage);
+        frameListener.onFrames(FrameDirection.INBOUND, frame, 0, frame.length);
+    }
+
+    Serializer<T> getSerializer() {
+        return serializer;
+    }
+
     @Override
     public void close() throws Exception {
         try {
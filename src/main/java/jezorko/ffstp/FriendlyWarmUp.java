@@ -0,0 +1,120 @@
+package jezorko.ffstp;
+
+import jezorko.ffstp.serializers.ByteArraySerializer;
+import jezorko.ffstp.serializers.ByteArraySerializer.ByteArray;
+import jezorko.ffstp.serializers.StringSerializer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs the hot paths of the library before a service starts accepting connections, so that
+ * the first requests are not handled by interpreted code. Frames are encoded, written, read, decoded,
+ * serialized and deserialized by the regular templates, through an in-memory loopback instead of a network.
+ * <pre>
+ * FriendlyWarmUp.warmUp(serializer, MyMessage.class, sampleMessages, FriendlyWarmUp.DEFAULT_ITERATIONS);
+ * serverSocket.accept();
+ * </pre>
+ * Sample messages should resemble the real traffic, both in statuses and in payload sizes,
+ * as the JIT compiler optimizes for what it has seen. Warm-up cannot tell when compilation has finished,
+ * the default amount of iterations is chosen to get past the compilation thresholds of the HotSpot JVM.
+ * <br>
+ * Can also be run from the command line, see {@link #main(String[])}, for example to record
+ * a class-data sharing archive of the library, as done by the {@code appcds} Maven profile.
+ */
+public final class FriendlyWarmUp {
+
+    /**
+     * Amount of round trips per sample message, above the invocation count after which
+     * HotSpot compiles a method with its optimizing compiler.
+     */
+    public final static int DEFAULT_ITERATIONS = 20_000;
+
+    private FriendlyWarmUp() {
+    }
+
+    /**
+     * Warms up the protocol with the built-in {@link StringSerializer} and {@link ByteArraySerializer},
+     * using small and medium-sized payloads.
+     *
+     * @param iterations amount of round trips per sample message
+     */
+    public static void warmUp(int iterations) {
+        warmUp(new StringSerializer(), String.class,
+               Arrays.asList(Message.ok("warm-up"), new Message<>("GET", repeat('x', 4096))), iterations);
+        warmUp(new ByteArraySerializer(), ByteArray.class,
+               Arrays.asList(Message.ok(new ByteArray(new byte[64])), new Message<>("PUT", new ByteArray(new byte[16 * 1024]))), iterations);
+    }
+
+    /**
+     * Every iteration sends each sample message as a request, echoes it back as a response
+     * and reads it again without allocating, exercising the client, server and writer and reader paths.
+     *
+     * @param serializer     that will be used by the service
+     * @param messageClass   to deserialize the messages to
+     * @param sampleMessages resembling the real traffic
+     * @param iterations     amount of round trips per sample message
+     */
+    public static <T, Y extends T> void warmUp(Serializer<T> serializer, Class<Y> messageClass,
+                                               List<? extends Message<? extends Y>> sampleMessages, int iterations) {
+        warmUp(serializer, sampleMessages, iterations,
+               server -> server.waitForRequestAndReply(messageClass, Function.identity()),
+               client -> client.readMessage(messageClass));
+    }
+
+    /**
+     * Same as {@link #warmUp(Serializer, Class, List, int)} but uses the
+     * simple deserialization method {@link Serializer#deserialize(byte[])}.
+     * Keep in mind that not every serializer will implement this method.
+     */
+    public static <T> void warmUp(Serializer<T> serializer, List<? extends Message<? extends T>> sampleMessages, int iterations) {
+        warmUp(serializer, sampleMessages, iterations,
+               server -> server.waitForRequestAndReply(Function.identity()),
+               FriendlyTemplate::readMessage);
+    }
+
+    private static <T> void warmUp(Serializer<T> serializer, List<? extends Message<? extends T>> sampleMessages, int iterations,
+                                   Consumer<FriendlyServerTemplate<T>> replyOnce, Consumer<FriendlyTemplate<T>> readOnce) {
+        if (iterations < 0 || sampleMessages.isEmpty()) {
+            throw new IllegalArgumentException("at least one sample message is required and iterations must not be negative");
+        }
+        // both templates share the loopback, so the server reads what the client wrote and the other way around
+        final LoopbackSocket loopback = new LoopbackSocket();
+        final FriendlyTemplate<T> client = new FriendlyTemplate<>(loopback, serializer);
+        final FriendlyServerTemplate<T> server = new FriendlyServerTemplate<>(new FriendlyTemplate<>(loopback, serializer), null);
+        final MessageHolder holder = new MessageHolder();
+
+        for (int i = 0; i < iterations; ++i) {
+            for (Message<? extends T> sampleMessage : sampleMessages) {
+                client.writeMessage(sampleMessage);
+                replyOnce.accept(server);
+                readOnce.accept(client);
+
+                client.writeMessage(sampleMessage);
+                client.readMessageInto(holder);
+            }
+        }
+    }
+
+    private static String repeat(char character, int times) {
+        final char[] characters = new char[times];
+        Arrays.fill(characters, character);
+        return new String(characters);
+    }
+
+    /**
+     * Runs the warm-up with the built-in serializers.
+     * Usage:
+     * <pre>
+     *     FriendlyWarmUp [iterations]
+     * </pre>
+     */
+    public static void main(String[] args) {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        final long start = System.nanoTime();
+        warmUp(iterations);
+        System.out.println("warm-up of " + iterations + " iterations took " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
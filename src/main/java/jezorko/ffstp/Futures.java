@@ -0,0 +1,33 @@
+package jezorko.ffstp;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helper methods for waiting on results produced by other threads.
+ */
+final class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * Waits for the future to complete.
+     * If it completed exceptionally with an unchecked exception or an error, that failure is rethrown as-is.
+     *
+     * @return the value of the completed future
+     */
+    static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            if (exception.getCause() instanceof Error) {
+                throw (Error) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+}
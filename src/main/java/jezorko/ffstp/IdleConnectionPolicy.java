@@ -0,0 +1,51 @@
+package jezorko.ffstp;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how much memory {@link FriendlyMultiplexedServer} spends on its connections
+ * and how long a connection may stay silent before it is closed.
+ * Connections borrow a pooled buffer only while they have unread or unsent bytes.
+ * A frame that does not fit a pooled buffer gets a buffer of its own, which is dropped once the frame is handled.
+ */
+public final class IdleConnectionPolicy {
+
+    private final int pooledBufferBytes;
+    private final int maxPooledBuffers;
+    private final int maxFrameBytes;
+    private final long idleTimeoutNanos;
+
+    /**
+     * @param pooledBufferBytes size of a buffer lent to a connection that has data in flight
+     * @param maxPooledBuffers  amount of unused buffers kept for reuse
+     * @param maxFrameBytes     size of the largest frame accepted, connections sending larger frames are closed
+     * @param idleTimeout       time after which a connection that sent nothing, not even a heartbeat,
+     *                          and read none of a pending response, is closed
+     * @param idleTimeoutUnit   unit of the idle timeout
+     */
+    public IdleConnectionPolicy(int pooledBufferBytes, int maxPooledBuffers, int maxFrameBytes, long idleTimeout, TimeUnit idleTimeoutUnit) {
+        if (pooledBufferBytes <= 0 || maxPooledBuffers < 0 || maxFrameBytes < pooledBufferBytes || idleTimeout <= 0) {
+            throw new IllegalArgumentException("buffer sizes and idle timeout must be positive and frames must be allowed to fill a pooled buffer");
+        }
+        this.pooledBufferBytes = pooledBufferBytes;
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.maxFrameBytes = maxFrameBytes;
+        this.idleTimeoutNanos = idleTimeoutUnit.toNanos(idleTimeout);
+    }
+
+    public int getPooledBufferBytes() {
+        return pooledBufferBytes;
+    }
+
+    public int getMaxPooledBuffers() {
+        return maxPooledBuffers;
+    }
+
+    public int getMaxFrameBytes() {
+        return maxFrameBytes;
+    }
+
+    public long getIdleTimeoutNanos() {
+        return idleTimeoutNanos;
+    }
+}
@@ -0,0 +1,108 @@
+package jezorko.ffstp;
+
+import java.util.function.Function;
+
+/**
+ * A message of which only the status and the payload length have been read so far.
+ * Allows consumers that only look at the status, for example to route, reject or acknowledge messages,
+ * to decide whether the payload is worth reading at all.
+ * The payload has to be consumed at most once with one of the following methods:
+ * <li>{@link #read()}</li>
+ * <li>{@link #read(Class)}</li>
+ * <li>{@link #skip()}</li>
+ * A payload that has not been consumed is skipped as soon as the next message is read from the same template.
+ * After that, consuming it throws an {@link IllegalStateException}.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ *
+ * @see FriendlyTemplate#readIncomingMessage()
+ */
+public final class IncomingMessage<T> {
+
+    private final FriendlyForkedSocketTransferProtocolReader reader;
+    private final Serializer<T> serializer;
+    private final FrameListener frameListener;
+    private final String status;
+    private final int dataBytesLength;
+
+    IncomingMessage(FriendlyForkedSocketTransferProtocolReader reader, Serializer<T> serializer, FrameListener frameListener,
+                    String status, int dataBytesLength) {
+        this.reader = reader;
+        this.serializer = serializer;
+        this.frameListener = frameListener;
+        this.status = status;
+        this.dataBytesLength = dataBytesLength;
+    }
+
+    /**
+     * @return the status of this message
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the status of this message translated with {@link Status#fromString(String)}
+     */
+    public Status getStatusAsEnum() {
+        return Status.fromString(status);
+    }
+
+    /**
+     * @return amount of bytes of the payload, regardless of whether it has been read
+     */
+    public int getDataBytesLength() {
+        return dataBytesLength;
+    }
+
+    /**
+     * Reads the payload and deserializes it to the given class.
+     *
+     * @param messageClass to deserialize the message from
+     * @param <Y>          expected type of the message
+     *
+     * @return the complete message
+     */
+    public <Y extends T> Message<Y> read(Class<Y> messageClass) {
+        return read(data -> serializer.deserialize(data, messageClass));
+    }
+
+    /**
+     * Same as {@link #read(Class)} but uses the
+     * simple deserialization method {@link Serializer#deserialize(byte[])}.
+     * Keep in mind that not every serializer will implement this method.
+     */
+    public Message<T> read() {
+        return read(serializer::deserialize);
+    }
+
+    /**
+     * Discards the payload straight from the socket, without buffering or deserializing it.
+     * If the template notifies a {@link FrameListener}, the payload is read anyway, so that the whole frame can be observed.
+     */
+    public void skip() {
+        if (frameListener != null) {
+            readPayload();
+            return;
+        }
+        reader.skipPayload(this);
+    }
+
+    private <Y extends T> Message<Y> read(Function<byte[], Y> deserializationFunction) {
+        return new Message<>(status, deserializationFunction.apply(readPayload()), dataBytesLength);
+    }
+
+    private byte[] readPayload() {
+        final byte[] payload = reader.readPayload(this);
+        if (frameListener != null) {
+            final byte[] frame = FriendlyForkedSocketTransferProtocolWriter.encodeReceivedFrame(new Message<>(status, payload));
+            frameListener.onFrames(FrameDirection.INBOUND, frame, 0, frame.length);
+        }
+        return payload;
+    }
+
+    @Override
+    public String toString() {
+        return "IncomingMessage(" + dataBytesLength + ")[" + status + "]";
+    }
+}
@@ -0,0 +1,149 @@
+package jezorko.ffstp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A single memory-mapped file of the {@link FriendlyOutboundJournal}.
+ * Records are appended one after another, each consisting of the frame length, the sequence number and the frame.
+ * The unused tail of the file is filled with zeros, which marks the end of the records.
+ * <br>
+ * Records are appended by a single thread at a time. Other threads may read records below {@link #getWritePosition()}.
+ */
+final class JournalSegment {
+
+    final static long MAGIC = 0x4646_5354_504A_524EL;
+    final static int HEADER_BYTES = Long.BYTES;
+    final static int RECORD_HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private volatile int writePosition;
+    private volatile long firstSequence;
+    private volatile long lastSequence;
+
+    private JournalSegment(Path path, MappedByteBuffer buffer, int writePosition, long firstSequence, long lastSequence) {
+        this.path = path;
+        this.buffer = buffer;
+        this.writePosition = writePosition;
+        this.firstSequence = firstSequence;
+        this.lastSequence = lastSequence;
+    }
+
+    /**
+     * Creates a new, empty segment file.
+     */
+    static JournalSegment create(Path path, int size) throws IOException {
+        final MappedByteBuffer buffer = map(path, size);
+        buffer.putLong(0, MAGIC);
+        return new JournalSegment(path, buffer, HEADER_BYTES, 0, 0);
+    }
+
+    /**
+     * Maps an existing segment file and finds the end of its records.
+     */
+    static JournalSegment open(Path path) throws IOException {
+        final MappedByteBuffer buffer = map(path, Files.size(path));
+        if (buffer.capacity() < HEADER_BYTES || buffer.getLong(0) != MAGIC) {
+            throw new IOException(path + " is not a journal segment");
+        }
+        int position = HEADER_BYTES;
+        long firstSequence = 0;
+        long lastSequence = 0;
+        while (buffer.capacity() - position >= RECORD_HEADER_BYTES) {
+            final int length = buffer.getInt(position);
+            if (length <= 0 || buffer.capacity() - position - RECORD_HEADER_BYTES < length) {
+                break;
+            }
+            lastSequence = buffer.getLong(position + Integer.BYTES);
+            if (firstSequence == 0) {
+                firstSequence = lastSequence;
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return new JournalSegment(path, buffer, position, firstSequence, lastSequence);
+    }
+
+    /**
+     * @return true if a record with a frame of the given length fits in the remaining space
+     */
+    boolean fits(int frameLength) {
+        return buffer.capacity() - writePosition >= RECORD_HEADER_BYTES + frameLength;
+    }
+
+    /**
+     * Appends a record, must only be called if the record {@link #fits(int)}.
+     */
+    void append(long sequence, byte[] frame) {
+        final ByteBuffer view = buffer.duplicate();
+        view.position(writePosition + RECORD_HEADER_BYTES);
+        view.put(frame);
+        view.putLong(writePosition + Integer.BYTES, sequence);
+        // the length is written last, so that a partially written record is never recovered
+        view.putInt(writePosition, frame.length);
+        if (firstSequence == 0) {
+            firstSequence = sequence;
+        }
+        lastSequence = sequence;
+        writePosition += RECORD_HEADER_BYTES + frame.length;
+    }
+
+    long sequenceAt(int position) {
+        return buffer.getLong(position + Integer.BYTES);
+    }
+
+    byte[] frameAt(int position) {
+        final byte[] frame = new byte[buffer.getInt(position)];
+        final ByteBuffer view = buffer.duplicate();
+        view.position(position + RECORD_HEADER_BYTES);
+        view.get(frame);
+        return frame;
+    }
+
+    /**
+     * @return position of the record following the one at the given position
+     */
+    int nextPosition(int position) {
+        return position + RECORD_HEADER_BYTES + buffer.getInt(position);
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    /**
+     * @return sequence of the first record, or 0 if the segment is empty
+     */
+    long getFirstSequence() {
+        return firstSequence;
+    }
+
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Flushes the appended records to the disk.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package jezorko.ffstp;
+
+import java.util.function.Function;
+
+/**
+ * A message that deserializes its payload on the first call to {@link #getData()}.
+ * The result is cached, so the payload is deserialized at most once,
+ * and the serialized payload is released afterwards.
+ * Any exception thrown by the deserialization is thrown by {@link #getData()}.
+ *
+ * @param <T> type of the payload
+ */
+final class LazyMessage<T> extends Message<T> {
+
+    private byte[] serializedData;
+    private Function<byte[], ? extends T> deserializationFunction;
+    private volatile boolean deserialized;
+    private T data;
+
+    LazyMessage(Message<byte[]> serializedMessage, Function<byte[], ? extends T> deserializationFunction) {
+        super(serializedMessage.getStatus(), null, serializedMessage.getDataBytesLength());
+        this.serializedData = serializedMessage.getData();
+        this.deserializationFunction = deserializationFunction;
+    }
+
+    @Override
+    public T getData() {
+        if (!deserialized) {
+            synchronized (this) {
+                if (!deserialized) {
+                    data = deserializationFunction.apply(serializedData);
+                    serializedData = null;
+                    deserializationFunction = null;
+                    deserialized = true;
+                }
+            }
+        }
+        return data;
+    }
+
+    /**
+     * @return true if the payload has already been deserialized
+     */
+    boolean isDeserialized() {
+        return deserialized;
+    }
+}
@@ -0,0 +1,165 @@
+package jezorko.ffstp;
+
+import jezorko.ffstp.exception.MissingDataException;
+import jezorko.ffstp.exception.RethrownException;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import static java.lang.Math.min;
+import static java.lang.System.nanoTime;
+
+/**
+ * A single endpoint of the {@link FriendlyLoadBalancingClientTemplate}.
+ * Owns the connection to the endpoint and keeps track of its load and health.
+ * Exchanges going through the same endpoint are serialized, since one connection
+ * can carry only a single request-response exchange at a time.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ */
+final class LoadBalancedEndpoint<T> implements AutoCloseable {
+
+    /**
+     * Weight of the newest sample in the latency moving average.
+     */
+    private final static double LATENCY_EWMA_WEIGHT = 0.2;
+
+    private final InetSocketAddress address;
+    private final Serializer<T> serializer;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private final ReentrantLock exchangeLock = new ReentrantLock();
+    private final AtomicInteger outstandingRequests = new AtomicInteger();
+
+    private volatile double latencyEwmaNanos;
+    private volatile long ejectedUntilNanos;
+    private volatile boolean ejected;
+
+    private Socket socket;
+    private FriendlyClientTemplate<T> client;
+    private int consecutiveFailures;
+
+    LoadBalancedEndpoint(InetSocketAddress address, Serializer<T> serializer, long initialBackoffNanos, long maxBackoffNanos) {
+        this.address = address;
+        this.serializer = serializer;
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+    }
+
+    /**
+     * Opens the connection eagerly, ejecting the endpoint if that is not possible.
+     */
+    void connect() {
+        exchangeLock.lock();
+        try {
+            ensureConnected();
+        } catch (RethrownException exception) {
+            eject();
+        } finally {
+            exchangeLock.unlock();
+        }
+    }
+
+    /**
+     * Performs a single exchange using the connection of this endpoint.
+     * If the exchange fails with {@link RethrownException} or {@link MissingDataException}
+     * the endpoint is ejected and the exception is rethrown.
+     *
+     * @param exchange to be performed with the client template
+     * @param <Y>      type of the response message
+     *
+     * @return the response returned by the exchange
+     */
+    <Y extends T> Message<Y> exchange(Function<FriendlyClientTemplate<T>, Message<Y>> exchange) {
+        outstandingRequests.incrementAndGet();
+        exchangeLock.lock();
+        try {
+            ensureConnected();
+            final long start = nanoTime();
+            final Message<Y> response = exchange.apply(client);
+            recordLatency(nanoTime() - start);
+            consecutiveFailures = 0;
+            ejected = false;
+            return response;
+        } catch (RethrownException | MissingDataException exception) {
+            eject();
+            throw exception;
+        } finally {
+            exchangeLock.unlock();
+            outstandingRequests.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return true if the endpoint is healthy or its backoff period has already passed
+     */
+    boolean isAvailable() {
+        return !ejected || nanoTime() - ejectedUntilNanos >= 0;
+    }
+
+    int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+
+    double getLatencyEwmaNanos() {
+        return latencyEwmaNanos;
+    }
+
+    private void ensureConnected() {
+        if (client != null) {
+            return;
+        }
+        try {
+            socket = new Socket();
+            socket.connect(address);
+            client = new FriendlyClientTemplate<>(socket, serializer);
+        } catch (Exception exception) {
+            closeQuietly();
+            throw new RethrownException(exception);
+        }
+    }
+
+    private void recordLatency(long latencyNanos) {
+        latencyEwmaNanos = latencyEwmaNanos == 0
+                           ? latencyNanos
+                           : LATENCY_EWMA_WEIGHT * latencyNanos + (1 - LATENCY_EWMA_WEIGHT) * latencyEwmaNanos;
+    }
+
+    private void eject() {
+        closeQuietly();
+        ++consecutiveFailures;
+        final long backoffNanos = min(maxBackoffNanos, initialBackoffNanos << min(consecutiveFailures - 1, 20));
+        ejectedUntilNanos = nanoTime() + backoffNanos;
+        ejected = true;
+    }
+
+    private void closeQuietly() {
+        try {
+            if (client != null) {
+                client.close();
+            }
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (Exception exception) {
+            // the connection is dropped either way
+        } finally {
+            client = null;
+            socket = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        exchangeLock.lock();
+        try {
+            closeQuietly();
+        } finally {
+            exchangeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package jezorko.ffstp;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * An unconnected socket whose input stream returns whatever was written to its output stream.
+ * Meant for a single thread that writes frames and then reads them back, so reads never block:
+ * once everything written has been read, the input stream reports the end of the stream.
+ */
+final class LoopbackSocket extends Socket {
+
+    private byte[] buffer = new byte[1024];
+    private int writePosition;
+    private int readPosition;
+
+    private final InputStream inputStream = new InputStream() {
+        @Override
+        public int read() {
+            if (readPosition == writePosition) {
+                return -1;
+            }
+            final int nextByte = buffer[readPosition++] & 0xFF;
+            compact();
+            return nextByte;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (readPosition == writePosition) {
+                return -1;
+            }
+            final int readBytes = Math.min(length, writePosition - readPosition);
+            System.arraycopy(buffer, readPosition, bytes, offset, readBytes);
+            readPosition += readBytes;
+            compact();
+            return readBytes;
+        }
+
+        @Override
+        public int available() {
+            return writePosition - readPosition;
+        }
+    };
+
+    private final OutputStream outputStream = new OutputStream() {
+        @Override
+        public void write(int oneByte) {
+            ensureCapacity(1);
+            buffer[writePosition++] = (byte) oneByte;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, writePosition, length);
+            writePosition += length;
+        }
+    };
+
+    @Override
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    private void ensureCapacity(int additionalBytes) {
+        if (writePosition + additionalBytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, writePosition + additionalBytes));
+        }
+    }
+
+    private void compact() {
+        if (readPosition == writePosition) {
+            readPosition = 0;
+            writePosition = 0;
+        }
+    }
+}
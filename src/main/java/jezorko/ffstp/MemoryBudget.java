@@ -0,0 +1,55 @@
+package jezorko.ffstp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A limit of payload bytes that may be kept in memory at the same time, shared by everything that reserves from it.
+ * Used by {@link FriendlySpillingReader} to decide whether a payload fits into memory or has to be spilled to a file.
+ */
+public final class MemoryBudget {
+
+    private final long capacityBytes;
+    private final AtomicLong reservedBytes = new AtomicLong();
+
+    /**
+     * @param capacityBytes amount of bytes that may be reserved at the same time
+     */
+    public MemoryBudget(long capacityBytes) {
+        if (capacityBytes < 0) {
+            throw new IllegalArgumentException("capacity must not be negative, got " + capacityBytes);
+        }
+        this.capacityBytes = capacityBytes;
+    }
+
+    /**
+     * Reserves the given amount of bytes if they fit into the remaining capacity.
+     *
+     * @return true if the bytes have been reserved and have to be released later
+     */
+    public boolean tryReserve(long bytes) {
+        while (true) {
+            final long currentlyReserved = reservedBytes.get();
+            if (currentlyReserved + bytes > capacityBytes) {
+                return false;
+            }
+            if (reservedBytes.compareAndSet(currentlyReserved, currentlyReserved + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back bytes reserved with {@link #tryReserve(long)}.
+     */
+    public void release(long bytes) {
+        reservedBytes.addAndGet(-bytes);
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+}
@@ -109,6 +109,13 @@ public class Message<T> {
         return new Message<>(DIE, data);
     }
 
+    /**
+     * Convenient method for sending a message with a {@link Status#HEARTBEAT} status
+     */
+    public static <T> Message<T> heartbeat() {
+        return new Message<>(HEARTBEAT, null);
+    }
+
     public Message(Status status, T data) {
         this(status.name(), data, UNKNOWN_MESSAGE_DATA_BYTES_LENGTH);
     }
@@ -165,6 +172,7 @@ public class Message<T> {
      */
     @Override
     public String toString() {
+        final T data = getData();
         String dataAsString;
         if (data == null) {
             dataAsString = "";
@@ -203,7 +211,7 @@ public class Message<T> {
     public boolean equals(Object other) {
         return other instanceof Message &&
                Objects.equals(status, ((Message) other).status) &&
-               Objects.equals(data, ((Message) other).data);
+               Objects.equals(getData(), ((Message) other).getData());
     }
 
 }
@@ -0,0 +1,173 @@
+package jezorko.ffstp;
+
+import java.util.Arrays;
+
+import static jezorko.ffstp.Constants.DEFAULT_CHARSET;
+import static jezorko.ffstp.Constants.INITIAL_PAYLOAD_BUFFER_BYTES;
+
+/**
+ * A reusable, mutable counterpart of {@link Message} with a raw payload.
+ * Filled by {@link FriendlyTemplate#readMessageInto(MessageHolder)}, which reuses the status
+ * and payload buffers of the holder, so a receive loop that keeps using the same holder
+ * does not allocate anything once the buffers have grown to fit the largest message.
+ * <br>
+ * The contents of the holder are overwritten by every read, the payload buffer in particular
+ * must not be kept around. Use {@link #toMessage()} to make a copy.
+ * Methods that do allocate are marked as such.
+ */
+public final class MessageHolder {
+
+    private final static int INITIAL_STATUS_CAPACITY = 32;
+    private final static Status[] STATUSES = Status.values();
+    private final static byte[][] STATUS_NAMES = new byte[STATUSES.length][];
+
+    static {
+        for (int i = 0; i < STATUSES.length; ++i) {
+            STATUS_NAMES[i] = STATUSES[i].name()
+                                         .getBytes(DEFAULT_CHARSET);
+        }
+    }
+
+    private byte[] status = new byte[INITIAL_STATUS_CAPACITY];
+    private int statusLength;
+    private Status statusAsEnum = Status.UNKNOWN;
+
+    private byte[] payload;
+    private int payloadLength;
+
+    public MessageHolder() {
+        this(0);
+    }
+
+    /**
+     * @param initialPayloadCapacity size of the payload buffer allocated up front
+     */
+    public MessageHolder(int initialPayloadCapacity) {
+        this.payload = new byte[initialPayloadCapacity];
+    }
+
+    /**
+     * @return the status of the last message translated as with {@link Status#fromString(String)}, does not allocate
+     */
+    public Status getStatusAsEnum() {
+        return statusAsEnum;
+    }
+
+    /**
+     * Compares the status of the last message with the given one without allocating.
+     *
+     * @return true if the status is exactly equal to the given one
+     */
+    public boolean hasStatus(String expectedStatus) {
+        if (expectedStatus.length() != statusLength) {
+            return false;
+        }
+        for (int i = 0; i < statusLength; ++i) {
+            if (status[i] != expectedStatus.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <b>Allocates</b> a new {@link String} every time it is called.
+     *
+     * @return the status of the last message
+     */
+    public String getStatus() {
+        return new String(status, 0, statusLength, DEFAULT_CHARSET);
+    }
+
+    /**
+     * The buffer is shared between reads and may be longer than the payload,
+     * see {@link #getPayloadLength()}.
+     *
+     * @return the buffer containing the payload of the last message
+     */
+    public byte[] getPayloadBuffer() {
+        return payload;
+    }
+
+    /**
+     * @return the amount of payload bytes of the last message
+     */
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * <b>Allocates</b> a copy of the contents of this holder.
+     *
+     * @return an immutable message with a copy of the status and payload
+     */
+    public Message<byte[]> toMessage() {
+        return new Message<>(getStatus(), Arrays.copyOf(payload, payloadLength), payloadLength);
+    }
+
+    void clearStatus() {
+        statusLength = 0;
+    }
+
+    void appendStatusByte(byte statusByte) {
+        if (statusLength == status.length) {
+            status = Arrays.copyOf(status, status.length * 2);
+        }
+        status[statusLength++] = statusByte;
+    }
+
+    /**
+     * Resolves the status enum once the whole status has been read.
+     */
+    void completeStatus() {
+        statusAsEnum = Status.UNKNOWN;
+        for (int i = 0; i < STATUS_NAMES.length; ++i) {
+            if (statusEqualsIgnoreCase(STATUS_NAMES[i])) {
+                statusAsEnum = STATUSES[i];
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sets the payload length. The payload buffer is not grown to the whole length up front,
+     * as the length has not been verified yet, see {@link #growPayload()}.
+     *
+     * @return the payload buffer to be filled
+     */
+    byte[] preparePayload(int length) {
+        final int initialLength = Math.min(length, INITIAL_PAYLOAD_BUFFER_BYTES);
+        if (payload.length < initialLength) {
+            payload = new byte[initialLength];
+        }
+        payloadLength = length;
+        return payload;
+    }
+
+    /**
+     * Doubles the payload buffer, up to the payload length, keeping the bytes received so far.
+     * Called once the buffer is full and more payload bytes have arrived.
+     *
+     * @return the grown payload buffer
+     */
+    byte[] growPayload() {
+        payload = Arrays.copyOf(payload, (int) Math.min(payloadLength, Math.max(INITIAL_PAYLOAD_BUFFER_BYTES, payload.length * 2L)));
+        return payload;
+    }
+
+    private boolean statusEqualsIgnoreCase(byte[] name) {
+        if (name.length != statusLength) {
+            return false;
+        }
+        for (int i = 0; i < statusLength; ++i) {
+            if (toUpperCase(status[i]) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte toUpperCase(byte asciiByte) {
+        return asciiByte >= 'a' && asciiByte <= 'z' ? (byte) (asciiByte - ('a' - 'A')) : asciiByte;
+    }
+}
@@ -0,0 +1,51 @@
+package jezorko.ffstp;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Identifies a request by its status and raw payload bytes.
+ * The content hash is computed once, equality is verified byte by byte.
+ */
+final class SerializedRequestKey {
+
+    private final String status;
+    private final byte[] payload;
+    private final int hash;
+
+    SerializedRequestKey(Message<byte[]> serializedRequest) {
+        this(serializedRequest.getStatus(), serializedRequest.getData());
+    }
+
+    SerializedRequestKey(String status, byte[] payload) {
+        this.status = status;
+        this.payload = payload != null ? payload : new byte[0];
+        this.hash = 31 * Objects.hashCode(status) + Arrays.hashCode(this.payload);
+    }
+
+    /**
+     * @return amount of bytes retained by this key
+     */
+    int getWeight() {
+        return payload.length + (status != null ? status.length() : 0);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SerializedRequestKey)) {
+            return false;
+        }
+        final SerializedRequestKey otherKey = (SerializedRequestKey) other;
+        return hash == otherKey.hash &&
+               Objects.equals(status, otherKey.status) &&
+               Arrays.equals(payload, otherKey.payload);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
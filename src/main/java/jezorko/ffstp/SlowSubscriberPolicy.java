@@ -0,0 +1,23 @@
+package jezorko.ffstp;
+
+/**
+ * Decides what {@link FriendlyPublisher} does when a subscriber cannot keep up
+ * and its queue of messages waiting to be written is full.
+ */
+public enum SlowSubscriberPolicy {
+
+    /**
+     * Drops the oldest queued message to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Drops all queued messages and keeps only the new one, for subscribers interested only in the latest state.
+     */
+    CONFLATE,
+
+    /**
+     * Closes the subscription and the template of the subscriber.
+     */
+    DISCONNECT
+}
@@ -0,0 +1,48 @@
+package jezorko.ffstp;
+
+import java.nio.file.Path;
+
+/**
+ * Decides which payloads {@link FriendlySpillingReader} keeps in memory and which are streamed to temporary files.
+ * A payload is kept in memory only if it is not longer than the spill threshold and fits both into the budget
+ * of its connection and the budget shared by all connections.
+ */
+public final class SpillPolicy {
+
+    private final int spillThresholdBytes;
+    private final long connectionMemoryBytes;
+    private final MemoryBudget sharedBudget;
+    private final Path spillDirectory;
+
+    /**
+     * @param spillThresholdBytes   length of the longest payload kept in memory
+     * @param connectionMemoryBytes amount of payload bytes a single connection may keep in memory at the same time
+     * @param sharedBudget          for payloads kept in memory by all connections
+     * @param spillDirectory        to create the temporary files in
+     */
+    public SpillPolicy(int spillThresholdBytes, long connectionMemoryBytes, MemoryBudget sharedBudget, Path spillDirectory) {
+        if (spillThresholdBytes < 0 || connectionMemoryBytes < 0) {
+            throw new IllegalArgumentException("spill threshold and connection budget must not be negative");
+        }
+        this.spillThresholdBytes = spillThresholdBytes;
+        this.connectionMemoryBytes = connectionMemoryBytes;
+        this.sharedBudget = sharedBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public int getSpillThresholdBytes() {
+        return spillThresholdBytes;
+    }
+
+    public long getConnectionMemoryBytes() {
+        return connectionMemoryBytes;
+    }
+
+    public MemoryBudget getSharedBudget() {
+        return sharedBudget;
+    }
+
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+}
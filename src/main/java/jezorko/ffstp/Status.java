@@ -32,6 +32,18 @@ public enum Status {
      */
     DIE,
 
+    /**
+     * Indicates that a stream of response messages has ended.
+     * Used by {@link FriendlyServerTemplate} and {@link FriendlyClientTemplate} for streamed responses.
+     */
+    END_OF_STREAM,
+
+    /**
+     * Indicates that the sender is still alive, but has nothing to say.
+     * Answered directly by {@link FriendlyMultiplexedServer}, which closes connections that stay silent for too long.
+     */
+    HEARTBEAT,
+
     /**
      * Indicates that the received status is a custom one.
      */
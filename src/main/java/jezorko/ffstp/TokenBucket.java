@@ -0,0 +1,77 @@
+package jezorko.ffstp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * A rate limit that allows bursts of up to the given amount of permits and refills at a constant rate.
+ * Threads waiting for permits are parked, so a connection thread waiting for a permit
+ * stops reading from its socket, which throttles the client through TCP flow control.
+ */
+public final class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double burstPermits;
+    private double availablePermits;
+    private long lastRefillNanos;
+
+    /**
+     * @param permitsPerSecond rate at which permits are refilled
+     * @param burstPermits     maximum amount of permits available at once, the bucket starts full
+     */
+    public TokenBucket(double permitsPerSecond, int burstPermits) {
+        if (permitsPerSecond <= 0 || burstPermits <= 0) {
+            throw new IllegalArgumentException("rate and burst must be positive");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burstPermits = burstPermits;
+        this.availablePermits = burstPermits;
+        this.lastRefillNanos = nanoTime();
+    }
+
+    /**
+     * Takes the given amount of permits if they are available right now.
+     *
+     * @return true if the permits have been taken
+     */
+    public synchronized boolean tryAcquire(int permits) {
+        refill();
+        if (availablePermits < permits) {
+            return false;
+        }
+        availablePermits -= permits;
+        return true;
+    }
+
+    /**
+     * Takes the given amount of permits, waiting until they become available.
+     * Permits are reserved in the order of the calls, so requests larger than the burst do not starve.
+     * If the thread is interrupted, it stops waiting and returns with its interrupt status still set.
+     * The permits stay reserved, so the callers that follow still wait for them.
+     */
+    public void acquire(int permits) {
+        final long waitNanos;
+        synchronized (this) {
+            refill();
+            availablePermits -= permits;
+            // a negative balance makes later callers wait for this one as well
+            waitNanos = availablePermits >= 0 ? 0 : (long) Math.ceil(-availablePermits / permitsPerNano);
+        }
+        final long deadline = nanoTime() + waitNanos;
+        long remainingNanos = waitNanos;
+        // parking returns at once while the interrupt status is set, so waiting on would only spin
+        while (remainingNanos > 0 && !Thread.currentThread()
+                                           .isInterrupted()) {
+            LockSupport.parkNanos(this, remainingNanos);
+            remainingNanos = deadline - nanoTime();
+        }
+    }
+
+    private void refill() {
+        final long now = nanoTime();
+        availablePermits = Math.min(burstPermits, availablePermits + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,77 @@
+package jezorko.ffstp;
+
+/**
+ * A snapshot of the traffic observed by {@link FriendlyAdaptiveTuner} and the settings it has chosen for it.
+ */
+public final class TuningSettings {
+
+    private final boolean requestResponse;
+    private final long averageFrameBytes;
+    private final long largestFrameBytes;
+    private final long bytesPerSecond;
+    private final int sendBufferBytes;
+    private final int receiveBufferBytes;
+    private final boolean tcpNoDelay;
+    private final FlushPolicy flushPolicy;
+
+    TuningSettings(boolean requestResponse, long averageFrameBytes, long largestFrameBytes, long bytesPerSecond,
+                   int sendBufferBytes, int receiveBufferBytes, boolean tcpNoDelay, FlushPolicy flushPolicy) {
+        this.requestResponse = requestResponse;
+        this.averageFrameBytes = averageFrameBytes;
+        this.largestFrameBytes = largestFrameBytes;
+        this.bytesPerSecond = bytesPerSecond;
+        this.sendBufferBytes = sendBufferBytes;
+        this.receiveBufferBytes = receiveBufferBytes;
+        this.tcpNoDelay = tcpNoDelay;
+        this.flushPolicy = flushPolicy;
+    }
+
+    /**
+     * @return true if frames mostly alternate between directions, as in request and response exchanges
+     */
+    public boolean isRequestResponse() {
+        return requestResponse;
+    }
+
+    public long getAverageFrameBytes() {
+        return averageFrameBytes;
+    }
+
+    public long getLargestFrameBytes() {
+        return largestFrameBytes;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public int getSendBufferBytes() {
+        return sendBufferBytes;
+    }
+
+    public int getReceiveBufferBytes() {
+        return receiveBufferBytes;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    /**
+     * @return a flush policy suited to the traffic, for a {@link FriendlyConcurrentSender} created for this connection
+     */
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    @Override
+    public String toString() {
+        return "TuningSettings{requestResponse=" + requestResponse +
+               ", averageFrameBytes=" + averageFrameBytes +
+               ", largestFrameBytes=" + largestFrameBytes +
+               ", bytesPerSecond=" + bytesPerSecond +
+               ", sendBufferBytes=" + sendBufferBytes +
+               ", receiveBufferBytes=" + receiveBufferBytes +
+               ", tcpNoDelay=" + tcpNoDelay + '}';
+    }
+}
@@ -0,0 +1,16 @@
+package jezorko.ffstp.exception;
+
+/**
+ * Indicates that a payload could not be encoded or decoded by one of the binary serializers,
+ * such as {@link jezorko.ffstp.serializers.BinarySerializer}, either because the data
+ * is not supported or because the payload is malformed.
+ */
+public final class BinarySerializationException extends RuntimeException {
+    public BinarySerializationException(String message) {
+        super(message);
+    }
+
+    public BinarySerializationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
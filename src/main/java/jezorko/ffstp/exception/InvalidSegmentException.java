@@ -0,0 +1,11 @@
+package jezorko.ffstp.exception;
+
+/**
+ * Indicates that a segment of a striped message does not fit the message it claims to belong to.
+ */
+public final class InvalidSegmentException extends RuntimeException {
+
+    public InvalidSegmentException(String reason) {
+        super("invalid segment of a striped message: " + reason);
+    }
+}
@@ -9,6 +9,7 @@ public final class MissingDataException extends RuntimeException {
 
     private final byte[] receivedData;
     private final int receivedDataLength;
+    private final boolean endOfStream;
 
     public MissingDataException(int receivedDataLength) {
         this(receivedDataLength, null);
@@ -18,12 +19,28 @@ public final class MissingDataException extends RuntimeException {
         super("not enough data in the buffer, retrieved " + receivedDataLength + " characters");
         this.receivedData = receivedData;
         this.receivedDataLength = receivedDataLength;
+        this.endOfStream = false;
     }
 
     public MissingDataException(int bufferSize, int actualSize) {
         super("not enough data in the buffer, expected " + bufferSize + " but received " + actualSize + " character(s)");
         receivedData = null;
         receivedDataLength = actualSize;
+        endOfStream = false;
+    }
+
+    private MissingDataException() {
+        super("the stream has ended before the next message");
+        receivedData = null;
+        receivedDataLength = 0;
+        endOfStream = true;
+    }
+
+    /**
+     * @return an exception indicating that the stream has ended cleanly, between two messages
+     */
+    public static MissingDataException endOfStream() {
+        return new MissingDataException();
     }
 
     /**
@@ -39,4 +56,11 @@ public final class MissingDataException extends RuntimeException {
     public int getReceivedDataLength() {
         return receivedDataLength;
     }
+
+    /**
+     * @return true if the stream has ended before the first byte of a message, rather than in the middle of one
+     */
+    public boolean isEndOfStream() {
+        return endOfStream;
+    }
 }
@@ -0,0 +1,11 @@
+package jezorko.ffstp.exception;
+
+/**
+ * Indicates that every endpoint of a load-balancing client is currently ejected
+ * and none of them has finished its backoff period yet.
+ */
+public final class NoAvailableEndpointException extends RuntimeException {
+    public NoAvailableEndpointException(int endpointsAmount) {
+        super("none of the " + endpointsAmount + " endpoint(s) is available, all of them are backing off after failures");
+    }
+}
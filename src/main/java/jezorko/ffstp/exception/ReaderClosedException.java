@@ -0,0 +1,10 @@
+package jezorko.ffstp.exception;
+
+/**
+ * Indicates that a message was read through a reader that has already been closed.
+ */
+public final class ReaderClosedException extends RuntimeException {
+    public ReaderClosedException() {
+        super("reader has been closed and no longer returns messages");
+    }
+}
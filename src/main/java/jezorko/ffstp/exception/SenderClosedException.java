@@ -0,0 +1,10 @@
+package jezorko.ffstp.exception;
+
+/**
+ * Indicates that a message was sent through a sender that has already been closed.
+ */
+public final class SenderClosedException extends RuntimeException {
+    public SenderClosedException() {
+        super("sender has been closed and no longer accepts messages");
+    }
+}
@@ -0,0 +1,111 @@
+package jezorko.ffstp.serializers;
+
+import jezorko.ffstp.exception.BinarySerializationException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads the encodings written by {@link BinaryOutput}.
+ * Throws {@link BinarySerializationException} if the data ends prematurely or is malformed.
+ */
+final class BinaryInput {
+
+    private final byte[] data;
+    private int position;
+
+    BinaryInput(byte[] data) {
+        this.data = data;
+    }
+
+    boolean hasRemaining() {
+        return position < data.length;
+    }
+
+    byte readByte() {
+        require(1);
+        return data[position++];
+    }
+
+    byte[] readBytes(int length) {
+        require(length);
+        final byte[] bytes = new byte[length];
+        System.arraycopy(data, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    int readVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final byte currentByte = readByte();
+            value |= (currentByte & 0x7F) << shift;
+            if (currentByte >= 0) {
+                return value;
+            }
+        }
+        throw new BinarySerializationException("malformed varint at position " + position);
+    }
+
+    long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            final byte currentByte = readByte();
+            value |= (long) (currentByte & 0x7F) << shift;
+            if (currentByte >= 0) {
+                return value;
+            }
+        }
+        throw new BinarySerializationException("malformed varint at position " + position);
+    }
+
+    int readSignedVarInt() {
+        final int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    long readSignedVarLong() {
+        final long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    float readFloat() {
+        return Float.intBitsToFloat(readFixedInt());
+    }
+
+    double readDouble() {
+        final long lowBits = readFixedInt() & 0xFFFFFFFFL;
+        return Double.longBitsToDouble(((long) readFixedInt() << 32) | lowBits);
+    }
+
+    String readString() {
+        final int lengthPlusOne = readVarInt();
+        if (lengthPlusOne == 0) {
+            return null;
+        }
+        final int length = lengthPlusOne - 1;
+        require(length);
+        final String value = new String(data, position, length, UTF_8);
+        position += length;
+        return value;
+    }
+
+    byte[] readNullableBytes() {
+        final int lengthPlusOne = readVarInt();
+        return lengthPlusOne == 0 ? null : readBytes(lengthPlusOne - 1);
+    }
+
+    private int readFixedInt() {
+        require(4);
+        return (data[position++] & 0xFF) |
+               (data[position++] & 0xFF) << 8 |
+               (data[position++] & 0xFF) << 16 |
+               (data[position++] & 0xFF) << 24;
+    }
+
+    private void require(int length) {
+        if (length < 0 || data.length - position < length) {
+            throw new BinarySerializationException("payload ends prematurely, expected " + length +
+                                                   " more byte(s) at position " + position + " of " + data.length);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package jezorko.ffstp.serializers;
+
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A growable buffer for the binary encodings of serializers in this package.
+ * Integers are written as base 128 varints, signed ones after zig-zag encoding,
+ * so that small absolute values take a single byte.
+ * Floating point numbers are written in full, in little-endian byte order.
+ */
+final class BinaryOutput {
+
+    private byte[] buffer;
+    private int position;
+
+    BinaryOutput(int initialCapacity) {
+        this.buffer = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Writes the value as an unsigned varint, negative values always take five bytes.
+     */
+    void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Writes the value as an unsigned varint, negative values always take ten bytes.
+     */
+    void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    void writeSignedVarInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeFloat(float value) {
+        writeFixedInt(Float.floatToRawIntBits(value));
+    }
+
+    void writeDouble(double value) {
+        final long bits = Double.doubleToRawLongBits(value);
+        writeFixedInt((int) bits);
+        writeFixedInt((int) (bits >>> 32));
+    }
+
+    /**
+     * Writes a nullable string as its UTF-8 bytes, prefixed with their amount increased by one.
+     * A null string is written as a zero length.
+     */
+    void writeString(String value) {
+        writeNullableBytes(value == null ? null : value.getBytes(UTF_8));
+    }
+
+    /**
+     * Writes nullable bytes prefixed with their amount increased by one, a null array is written as a zero length.
+     */
+    void writeNullableBytes(byte[] bytes) {
+        if (bytes == null) {
+            writeVarInt(0);
+            return;
+        }
+        writeVarInt(bytes.length + 1);
+        writeBytes(bytes);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void writeFixedInt(int value) {
+        ensureCapacity(4);
+        buffer[position++] = (byte) value;
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 24);
+    }
+
+    private void ensureCapacity(int additionalBytes) {
+        if (buffer.length - position < additionalBytes) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + additionalBytes));
+        }
+    }
+}
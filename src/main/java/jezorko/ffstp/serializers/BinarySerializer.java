@@ -0,0 +1,125 @@
+package jezorko.ffstp.serializers;
+
+import jezorko.ffstp.Serializer;
+import jezorko.ffstp.exception.BinarySerializationException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compact, binary alternative to reflective JSON serializers for plain classes and records.
+ * The fields are accessed through {@link java.lang.invoke.MethodHandle}s resolved once per class.
+ * Integers are encoded as varints, strings as length-prefixed UTF-8.
+ * <br>
+ * Every class that is sent, including the classes of nested objects, must be registered.
+ * Registered classes are identified in the payload by their position in the registry,
+ * so both sides of the connection must register the same classes in the same order.
+ * Thanks to that, payloads can be deserialized without class information
+ * and {@link #deserialize(byte[], Class)} accepts any registered subtype of the given class.
+ * <br>
+ * Supported field types are primitives and their wrappers, {@link String}, enums, <b>byte[]</b>
+ * and registered classes. Fields declared with an interface or an abstract type may hold any registered class.
+ * Other types, such as collections, are not supported.
+ */
+public final class BinarySerializer implements Serializer<Object> {
+
+    private final static int NULL_CLASS_ID = 0;
+
+    private final Class<?>[] classesById;
+    private final Map<Class<?>, Integer> idsByClass = new HashMap<>();
+
+    /**
+     * Resolves the accessors of the given classes up front.
+     *
+     * @param registeredClasses classes that can be serialized, in the same order on both sides of the connection
+     *
+     * @throws BinarySerializationException if any of the classes cannot be serialized
+     */
+    public BinarySerializer(Class<?>... registeredClasses) {
+        this.classesById = registeredClasses.clone();
+        for (int i = 0; i < registeredClasses.length; ++i) {
+            final Class<?> registeredClass = registeredClasses[i];
+            if (!ValueCodec.isNestedObject(registeredClass)) {
+                throw new BinarySerializationException(registeredClass.getName() + " is a field type, it cannot be registered");
+            }
+            if (idsByClass.putIfAbsent(registeredClass, i + 1) != null) {
+                throw new BinarySerializationException(registeredClass.getName() + " is registered more than once");
+            }
+            ClassCodec.forClass(registeredClass);
+        }
+    }
+
+    @Override
+    public byte[] serialize(Object data) {
+        if (data == null) {
+            return null;
+        }
+        final BinaryOutput output = new BinaryOutput(64);
+        writeObject(data, output);
+        return output.toByteArray();
+    }
+
+    @Override
+    public <Y> Y deserialize(byte[] data, Class<Y> clazz) {
+        final Object result = deserialize(data);
+        if (result != null && !clazz.isInstance(result)) {
+            throw new BinarySerializationException("payload contains " + result.getClass()
+                                                                            .getName() + " which is not a " + clazz.getName());
+        }
+        return clazz.cast(result);
+    }
+
+    @Override
+    public Object deserialize(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        final BinaryInput input = new BinaryInput(data);
+        final Object result = readObject(input);
+        if (input.hasRemaining()) {
+            throw new BinarySerializationException("payload contains unexpected data after the encoded object");
+        }
+        return result;
+    }
+
+    void writeObject(Object value, BinaryOutput output) {
+        if (value == null) {
+            output.writeVarInt(NULL_CLASS_ID);
+            return;
+        }
+        final Integer classId = idsByClass.get(value.getClass());
+        if (classId == null) {
+            throw new BinarySerializationException(value.getClass()
+                                                        .getName() + " is not registered");
+        }
+        output.writeVarInt(classId);
+        try {
+            ClassCodec.forClass(value.getClass())
+                      .write(value, output, this);
+        } catch (BinarySerializationException exception) {
+            throw exception;
+        } catch (Throwable throwable) {
+            throw new BinarySerializationException("could not serialize " + value.getClass()
+                                                                                 .getName(), throwable);
+        }
+    }
+
+    Object readObject(BinaryInput input) {
+        final int classId = input.readVarInt();
+        if (classId == NULL_CLASS_ID) {
+            return null;
+        }
+        if (classId < 0 || classId > classesById.length) {
+            throw new BinarySerializationException("unknown class id " + classId);
+        }
+        final Class<?> type = classesById[classId - 1];
+        try {
+            return ClassCodec.forClass(type)
+                             .read(input, this);
+        } catch (BinarySerializationException exception) {
+            throw exception;
+        } catch (Throwable throwable) {
+            throw new BinarySerializationException("could not deserialize " + type.getName(), throwable);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package jezorko.ffstp.serializers;
+
+import jezorko.ffstp.exception.BinarySerializationException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Encodes the fields of instances of a single class for {@link BinarySerializer}.
+ * Accessors are resolved once per class into {@link MethodHandle}s and cached in {@link #forClass(Class)}.
+ * <br>
+ * Plain classes require a no-argument constructor of any visibility. Their non-static, non-transient fields,
+ * including the inherited ones, are encoded in the order of the class hierarchy and then by name.
+ * Records are encoded component by component and created through their canonical constructor.
+ * Values of primitive types, whether fields or record components, are read and written without boxing.
+ */
+abstract class ClassCodec {
+
+    private final static MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final static ClassValue<ClassCodec> CODECS = new ClassValue<ClassCodec>() {
+        @Override
+        protected ClassCodec computeValue(Class<?> type) {
+            try {
+                return Records.isRecord(type) ? new RecordCodec(type) : new PojoCodec(type);
+            } catch (BinarySerializationException exception) {
+                throw exception;
+            } catch (Exception | LinkageError exception) {
+                throw new BinarySerializationException("cannot access the fields of " + type.getName(), exception);
+            }
+        }
+    };
+
+    static ClassCodec forClass(Class<?> type) {
+        return CODECS.get(type);
+    }
+
+    abstract void write(Object value, BinaryOutput output, BinarySerializer serializer) throws Throwable;
+
+    abstract Object read(BinaryInput input, BinarySerializer serializer) throws Throwable;
+
+    private final static class PojoCodec extends ClassCodec {
+        private final MethodHandle constructor;
+        private final FieldCodec[] fields;
+
+        private PojoCodec(Class<?> type) throws ReflectiveOperationException {
+            if (type.isInterface() || type.isArray() || type.isPrimitive() || Modifier.isAbstract(type.getModifiers())) {
+                throw new BinarySerializationException(type.getName() + " is not a concrete class");
+            }
+            final Constructor<?> noArgumentsConstructor;
+            try {
+                noArgumentsConstructor = type.getDeclaredConstructor();
+            } catch (NoSuchMethodException exception) {
+                throw new BinarySerializationException(type.getName() + " has neither a no-argument constructor nor is a record");
+            }
+            noArgumentsConstructor.setAccessible(true);
+            this.constructor = LOOKUP.unreflectConstructor(noArgumentsConstructor)
+                                     .asType(MethodType.methodType(Object.class));
+
+            final List<FieldCodec> fieldCodecs = new ArrayList<>();
+            final List<Class<?>> hierarchy = new ArrayList<>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                hierarchy.add(0, current);
+            }
+            for (Class<?> declaringClass : hierarchy) {
+                final Field[] declaredFields = declaringClass.getDeclaredFields();
+                Arrays.sort(declaredFields, Comparator.comparing(Field::getName));
+                for (Field field : declaredFields) {
+                    final int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                        field.setAccessible(true);
+                        fieldCodecs.add(new FieldCodec(field.getType(), LOOKUP.unreflectGetter(field), LOOKUP.unreflectSetter(field)));
+                    }
+                }
+            }
+            this.fields = fieldCodecs.toArray(new FieldCodec[0]);
+        }
+
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) throws Throwable {
+            for (FieldCodec field : fields) {
+                field.write(value, output, serializer);
+            }
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) throws Throwable {
+            final Object value = (Object) constructor.invokeExact();
+            for (FieldCodec field : fields) {
+                field.read(value, input, serializer);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Reads and writes a single field, or writes a single record component. Values of primitive types are accessed without boxing.
+     */
+    private final static class FieldCodec {
+        private final Class<?> type;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final ValueCodec valueCodec;
+
+        /**
+         * @param setter of the field, null for a record component, which is only set through the canonical constructor
+         */
+        private FieldCodec(Class<?> type, MethodHandle getter, MethodHandle setter) {
+            this.type = type;
+            final Class<?> accessedType = type.isPrimitive() ? type : Object.class;
+            this.getter = getter.asType(MethodType.methodType(accessedType, Object.class));
+            this.setter = setter == null ? null : setter.asType(MethodType.methodType(void.class, Object.class, accessedType));
+            this.valueCodec = ValueCodec.of(type);
+        }
+
+        private void write(Object target, BinaryOutput output, BinarySerializer serializer) throws Throwable {
+            if (type == int.class) {
+                output.writeSignedVarInt((int) getter.invokeExact(target));
+            }
+            else if (type == long.class) {
+                output.writeSignedVarLong((long) getter.invokeExact(target));
+            }
+            else if (type == double.class) {
+                output.writeDouble((double) getter.invokeExact(target));
+            }
+            else if (type == float.class) {
+                output.writeFloat((float) getter.invokeExact(target));
+            }
+            else if (type == boolean.class) {
+                output.writeByte((boolean) getter.invokeExact(target) ? 1 : 0);
+            }
+            else if (type == byte.class) {
+                output.writeByte((byte) getter.invokeExact(target));
+            }
+            else if (type == short.class) {
+                output.writeSignedVarInt((short) getter.invokeExact(target));
+            }
+            else if (type == char.class) {
+                output.writeVarInt((char) getter.invokeExact(target));
+            }
+            else {
+                valueCodec.write((Object) getter.invokeExact(target), output, serializer);
+            }
+        }
+
+        private void read(Object target, BinaryInput input, BinarySerializer serializer) throws Throwable {
+            if (type == int.class) {
+                setter.invokeExact(target, readInt(input));
+            }
+            else if (type == long.class) {
+                setter.invokeExact(target, readLong(input));
+            }
+            else if (type == double.class) {
+                setter.invokeExact(target, readDouble(input));
+            }
+            else if (type == float.class) {
+                setter.invokeExact(target, readFloat(input));
+            }
+            else if (type == boolean.class) {
+                setter.invokeExact(target, readBoolean(input));
+            }
+            else if (type == byte.class) {
+                setter.invokeExact(target, readByte(input));
+            }
+            else if (type == short.class) {
+                setter.invokeExact(target, readShort(input));
+            }
+            else if (type == char.class) {
+                setter.invokeExact(target, readChar(input));
+            }
+            else {
+                setter.invokeExact(target, valueCodec.read(input, serializer));
+            }
+        }
+
+        /**
+         * @return a handle of (BinaryInput, BinarySerializer) returning the value of the exact type of the field
+         */
+        private MethodHandle reader() throws ReflectiveOperationException {
+            if (type.isPrimitive()) {
+                // the helpers are named after the primitive types, e.g. readInt
+                final String name = "read" + Character.toUpperCase(type.getName()
+                                                                       .charAt(0)) + type.getName()
+                                                                                         .substring(1);
+                return MethodHandles.dropArguments(LOOKUP.findStatic(ClassCodec.class, name, MethodType.methodType(type, BinaryInput.class)),
+                                                   1, BinarySerializer.class);
+            }
+            return LOOKUP.findVirtual(ValueCodec.class, "read", MethodType.methodType(Object.class, BinaryInput.class, BinarySerializer.class))
+                         .bindTo(valueCodec)
+                         .asType(MethodType.methodType(type, BinaryInput.class, BinarySerializer.class));
+        }
+    }
+
+    private static int readInt(BinaryInput input) {
+        return input.readSignedVarInt();
+    }
+
+    private static long readLong(BinaryInput input) {
+        return input.readSignedVarLong();
+    }
+
+    private static double readDouble(BinaryInput input) {
+        return input.readDouble();
+    }
+
+    private static float readFloat(BinaryInput input) {
+        return input.readFloat();
+    }
+
+    private static boolean readBoolean(BinaryInput input) {
+        return input.readByte() != 0;
+    }
+
+    private static byte readByte(BinaryInput input) {
+        return input.readByte();
+    }
+
+    private static short readShort(BinaryInput input) {
+        return (short) input.readSignedVarInt();
+    }
+
+    private static char readChar(BinaryInput input) {
+        return (char) input.readVarInt();
+    }
+
+    private final static class RecordCodec extends ClassCodec {
+        private final FieldCodec[] components;
+        private final MethodHandle reader;
+
+        private RecordCodec(Class<?> type) throws ReflectiveOperationException {
+            final Object[] recordComponents = Records.getRecordComponents(type);
+            final Class<?>[] componentTypes = new Class<?>[recordComponents.length];
+            this.components = new FieldCodec[recordComponents.length];
+            for (int i = 0; i < recordComponents.length; ++i) {
+                componentTypes[i] = Records.getType(recordComponents[i]);
+                final Method accessor = Records.getAccessor(recordComponents[i]);
+                accessor.setAccessible(true);
+                components[i] = new FieldCodec(componentTypes[i], LOOKUP.unreflect(accessor), null);
+            }
+            final Constructor<?> constructor = type.getDeclaredConstructor(componentTypes);
+            constructor.setAccessible(true);
+            this.reader = readingConstructor(LOOKUP.unreflectConstructor(constructor), componentTypes, components);
+        }
+
+        /**
+         * Turns the canonical constructor into a handle of (BinaryInput, BinarySerializer) that reads the components in order
+         * and passes them straight to the constructor, so that primitive components are neither boxed nor collected into an array.
+         * Each step folds the reader of the last component not read yet into the constructor,
+         * so the reader of the first component ends up outermost and is called first.
+         */
+        private static MethodHandle readingConstructor(MethodHandle constructor, Class<?>[] componentTypes, FieldCodec[] components)
+                throws ReflectiveOperationException {
+            final int count = componentTypes.length;
+            // (BinaryInput, BinarySerializer, component 0, ..., component n) -> record
+            MethodHandle handle = MethodHandles.dropArguments(constructor.asType(constructor.type()
+                                                                                            .changeReturnType(Object.class)),
+                                                              0, BinaryInput.class, BinarySerializer.class);
+            for (int i = count - 1; i >= 0; --i) {
+                // moves the component i in front of the input and the serializer, which is where its reader puts it
+                final Class<?>[] parameters = new Class<?>[i + 3];
+                final int[] reorder = new int[i + 3];
+                parameters[0] = componentTypes[i];
+                parameters[1] = BinaryInput.class;
+                parameters[2] = BinarySerializer.class;
+                reorder[0] = 1;
+                reorder[1] = 2;
+                for (int j = 0; j < i; ++j) {
+                    parameters[j + 3] = componentTypes[j];
+                    reorder[j + 2] = j + 3;
+                }
+                reorder[i + 2] = 0;
+                final MethodHandle permuted = MethodHandles.permuteArguments(handle, MethodType.methodType(Object.class, parameters), reorder);
+                handle = MethodHandles.foldArguments(permuted, components[i].reader());
+            }
+            return handle;
+        }
+
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) throws Throwable {
+            for (FieldCodec component : components) {
+                component.write(value, output, serializer);
+            }
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) throws Throwable {
+            return (Object) reader.invokeExact(input, serializer);
+        }
+    }
+
+    /**
+     * Accesses the record API reflectively, so that it can be used while still compiling for Java 8.
+     */
+    private final static class Records {
+        private final static Method IS_RECORD;
+        private final static Method GET_RECORD_COMPONENTS;
+        private final static Method GET_TYPE;
+        private final static Method GET_ACCESSOR;
+
+        static {
+            Method isRecord = null;
+            Method getRecordComponents = null;
+            Method getType = null;
+            Method getAccessor = null;
+            try {
+                isRecord = Class.class.getMethod("isRecord");
+                getRecordComponents = Class.class.getMethod("getRecordComponents");
+                final Class<?> recordComponentClass = Class.forName("java.lang.reflect.RecordComponent");
+                getType = recordComponentClass.getMethod("getType");
+                getAccessor = recordComponentClass.getMethod("getAccessor");
+            } catch (ReflectiveOperationException exception) {
+                // records are not supported by this runtime
+            }
+            IS_RECORD = isRecord;
+            GET_RECORD_COMPONENTS = getRecordComponents;
+            GET_TYPE = getType;
+            GET_ACCESSOR = getAccessor;
+        }
+
+        private static boolean isRecord(Class<?> type) throws ReflectiveOperationException {
+            return IS_RECORD != null && (Boolean) IS_RECORD.invoke(type);
+        }
+
+        private static Object[] getRecordComponents(Class<?> type) throws ReflectiveOperationException {
+            return (Object[]) GET_RECORD_COMPONENTS.invoke(type);
+        }
+
+        private static Class<?> getType(Object component) throws ReflectiveOperationException {
+            return (Class<?>) GET_TYPE.invoke(component);
+        }
+
+        private static Method getAccessor(Object component) throws ReflectiveOperationException {
+            return (Method) GET_ACCESSOR.invoke(component);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package jezorko.ffstp.serializers;
+
+import jezorko.ffstp.Serializer;
+import jezorko.ffstp.exception.BinarySerializationException;
+import jezorko.ffstp.serializers.IntArraySerializer.IntArray;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sends <b>int[]</b> payloads as differences between consecutive values, encoded as zig-zag varints.
+ * Best suited for sorted or slowly changing data, such as timestamps or identifiers,
+ * where most of the values take one or two bytes instead of four.
+ * Unsorted data is supported as well, but may take up to five bytes per value.
+ * Request data must be wrapped in a simple {@link IntArray} object.
+ */
+public final class DeltaIntArraySerializer implements Serializer<IntArray> {
+
+    @Override
+    public byte[] serialize(IntArray data) {
+        final int[] values = requireNonNull(data, "int array must not be null").getValues();
+        final BinaryOutput output = new BinaryOutput(values.length + 5);
+        output.writeVarInt(values.length);
+        int previous = 0;
+        for (int value : values) {
+            output.writeSignedVarInt(value - previous);
+            previous = value;
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <Y extends IntArray> Y deserialize(byte[] data, Class<Y> clazz) {
+        return (Y) deserialize(data);
+    }
+
+    @Override
+    public IntArray deserialize(byte[] data) {
+        if (data.length == 0) {
+            return new IntArray(new int[0]);
+        }
+        final BinaryInput input = new BinaryInput(data);
+        final int length = input.readVarInt();
+        if (length < 0 || length > data.length) {
+            throw new BinarySerializationException("invalid amount of values " + length);
+        }
+        final int[] values = new int[length];
+        int previous = 0;
+        for (int i = 0; i < length; ++i) {
+            previous += input.readSignedVarInt();
+            values[i] = previous;
+        }
+        if (input.hasRemaining()) {
+            throw new BinarySerializationException("payload contains unexpected data after " + length + " values");
+        }
+        return new IntArray(values);
+    }
+}
@@ -0,0 +1,58 @@
+package jezorko.ffstp.serializers;
+
+import jezorko.ffstp.Serializer;
+import jezorko.ffstp.exception.BinarySerializationException;
+import jezorko.ffstp.serializers.LongArraySerializer.LongArray;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sends <b>long[]</b> payloads as differences between consecutive values, encoded as zig-zag varints.
+ * Best suited for sorted or slowly changing data, such as timestamps or identifiers,
+ * where most of the values take one or two bytes instead of eight.
+ * Unsorted data is supported as well, but may take up to ten bytes per value.
+ * Request data must be wrapped in a simple {@link LongArray} object.
+ */
+public final class DeltaLongArraySerializer implements Serializer<LongArray> {
+
+    @Override
+    public byte[] serialize(LongArray data) {
+        final long[] values = requireNonNull(data, "long array must not be null").getValues();
+        final BinaryOutput output = new BinaryOutput(values.length + 5);
+        output.writeVarInt(values.length);
+        long previous = 0;
+        for (long value : values) {
+            output.writeSignedVarLong(value - previous);
+            previous = value;
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <Y extends LongArray> Y deserialize(byte[] data, Class<Y> clazz) {
+        return (Y) deserialize(data);
+    }
+
+    @Override
+    public LongArray deserialize(byte[] data) {
+        if (data.length == 0) {
+            return new LongArray(new long[0]);
+        }
+        final BinaryInput input = new BinaryInput(data);
+        final int length = input.readVarInt();
+        if (length < 0 || length > data.length) {
+            throw new BinarySerializationException("invalid amount of values " + length);
+        }
+        final long[] values = new long[length];
+        long previous = 0;
+        for (int i = 0; i < length; ++i) {
+            previous += input.readSignedVarLong();
+            values[i] = previous;
+        }
+        if (input.hasRemaining()) {
+            throw new BinarySerializationException("payload contains unexpected data after " + length + " values");
+        }
+        return new LongArray(values);
+    }
+}
@@ -0,0 +1,103 @@
+package jezorko.ffstp.serializers;
+
+import jezorko.ffstp.Serializer;
+import jezorko.ffstp.exception.BinarySerializationException;
+import jezorko.ffstp.serializers.DoubleArraySerializer.DoubleArray;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sends <b>double[]</b> payloads as raw 64-bit values in the given byte order, without boxing.
+ * Values are copied in bulk through a {@link java.nio.DoubleBuffer} view, so the cost is close to copying memory,
+ * especially when the byte order is {@link ByteOrder#nativeOrder()}.
+ * Both sides of the connection must use the same byte order.
+ * Request data must be wrapped in a simple {@link DoubleArray} object.
+ */
+public final class DoubleArraySerializer implements Serializer<DoubleArray> {
+
+    private final ByteOrder byteOrder;
+
+    /**
+     * Uses {@link ByteOrder#BIG_ENDIAN}, the network byte order.
+     */
+    public DoubleArraySerializer() {
+        this(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * @param byteOrder in which the values are encoded
+     */
+    public DoubleArraySerializer(ByteOrder byteOrder) {
+        this.byteOrder = byteOrder;
+    }
+
+    @Override
+    public byte[] serialize(DoubleArray data) {
+        final double[] values = requireNonNull(data, "double array must not be null").values;
+        if (values.length > Integer.MAX_VALUE / Double.BYTES) {
+            throw new BinarySerializationException("array of " + values.length + " values does not fit in a single message");
+        }
+        final byte[] serialized = new byte[values.length * Double.BYTES];
+        ByteBuffer.wrap(serialized)
+                  .order(byteOrder)
+                  .asDoubleBuffer()
+                  .put(values);
+        return serialized;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <Y extends DoubleArray> Y deserialize(byte[] data, Class<Y> clazz) {
+        return (Y) deserialize(data);
+    }
+
+    @Override
+    public DoubleArray deserialize(byte[] data) {
+        if (data.length % Double.BYTES != 0) {
+            throw new BinarySerializationException("payload of " + data.length + " bytes is not a multiple of " + Double.BYTES);
+        }
+        final double[] values = new double[data.length / Double.BYTES];
+        ByteBuffer.wrap(data)
+                  .order(byteOrder)
+                  .asDoubleBuffer()
+                  .get(values);
+        return new DoubleArray(values);
+    }
+
+    /**
+     * Simple wrapper for <b>double[]</b> type, since type parameters cannot be bound to arrays.
+     */
+    public final static class DoubleArray {
+
+        private final double[] values;
+
+        public DoubleArray(double[] values) {
+            this.values = values;
+        }
+
+        public double[] getValues() {
+            return values;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            DoubleArray doubleArray = (DoubleArray) other;
+            return Arrays.equals(values, doubleArray.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+}
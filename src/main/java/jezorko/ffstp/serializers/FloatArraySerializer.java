@@ -0,0 +1,103 @@
+package jezorko.ffstp.serializers;
+
+import jezorko.ffstp.Serializer;
+import jezorko.ffstp.exception.BinarySerializationException;
+import jezorko.ffstp.serializers.FloatArraySerializer.FloatArray;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sends <b>float[]</b> payloads as raw 32-bit values in the given byte order, without boxing.
+ * Values are copied in bulk through a {@link java.nio.FloatBuffer} view, so the cost is close to copying memory,
+ * especially when the byte order is {@link ByteOrder#nativeOrder()}.
+ * Both sides of the connection must use the same byte order.
+ * Request data must be wrapped in a simple {@link FloatArray} object.
+ */
+public final class FloatArraySerializer implements Serializer<FloatArray> {
+
+    private final ByteOrder byteOrder;
+
+    /**
+     * Uses {@link ByteOrder#BIG_ENDIAN}, the network byte order.
+     */
+    public FloatArraySerializer() {
+        this(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * @param byteOrder in which the values are encoded
+     */
+    public FloatArraySerializer(ByteOrder byteOrder) {
+        this.byteOrder = byteOrder;
+    }
+
+    @Override
+    public byte[] serialize(FloatArray data) {
+        final float[] values = requireNonNull(data, "float array must not be null").values;
+        if (values.length > Integer.MAX_VALUE / Float.BYTES) {
+            throw new BinarySerializationException("array of " + values.length + " values does not fit in a single message");
+        }
+        final byte[] serialized = new byte[values.length * Float.BYTES];
+        ByteBuffer.wrap(serialized)
+                  .order(byteOrder)
+                  .asFloatBuffer()
+                  .put(values);
+        return serialized;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <Y extends FloatArray> Y deserialize(byte[] data, Class<Y> clazz) {
+        return (Y) deserialize(data);
+    }
+
+    @Override
+    public FloatArray deserialize(byte[] data) {
+        if (data.length % Float.BYTES != 0) {
+            throw new BinarySerializationException("payload of " + data.length + " bytes is not a multiple of " + Float.BYTES);
+        }
+        final float[] values = new float[data.length / Float.BYTES];
+        ByteBuffer.wrap(data)
+                  .order(byteOrder)
+                  .asFloatBuffer()
+                  .get(values);
+        return new FloatArray(values);
+    }
+
+    /**
+     * Simple wrapper for <b>float[]</b> type, since type parameters cannot be bound to arrays.
+     */
+    public final static class FloatArray {
+
+        private final float[] values;
+
+        public FloatArray(float[] values) {
+            this.values = values;
+        }
+
+        public float[] getValues() {
+            return values;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            FloatArray floatArray = (FloatArray) other;
+            return Arrays.equals(values, floatArray.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package jezorko.ffstp.serializers;
+
+import jezorko.ffstp.Serializer;
+import jezorko.ffstp.exception.BinarySerializationException;
+import jezorko.ffstp.serializers.IntArraySerializer.IntArray;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sends <b>int[]</b> payloads as raw 32-bit values in the given byte order, without boxing.
+ * Values are copied in bulk through a {@link java.nio.IntBuffer} view, so the cost is close to copying memory,
+ * especially when the byte order is {@link ByteOrder#nativeOrder()}.
+ * Both sides of the connection must use the same byte order.
+ * Request data must be wrapped in a simple {@link IntArray} object.
+ */
+public final class IntArraySerializer implements Serializer<IntArray> {
+
+    private final ByteOrder byteOrder;
+
+    /**
+     * Uses {@link ByteOrder#BIG_ENDIAN}, the network byte order.
+     */
+    public IntArraySerializer() {
+        this(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * @param byteOrder in which the values are encoded
+     */
+    public IntArraySerializer(ByteOrder byteOrder) {
+        this.byteOrder = byteOrder;
+    }
+
+    @Override
+    public byte[] serialize(IntArray data) {
+        final int[] values = requireNonNull(data, "int array must not be null").values;
+        if (values.length > Integer.MAX_VALUE / Integer.BYTES) {
+            throw new BinarySerializationException("array of " + values.length + " values does not fit in a single message");
+        }
+        final byte[] serialized = new byte[values.length * Integer.BYTES];
+        ByteBuffer.wrap(serialized)
+                  .order(byteOrder)
+                  .asIntBuffer()
+                  .put(values);
+        return serialized;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <Y extends IntArray> Y deserialize(byte[] data, Class<Y> clazz) {
+        return (Y) deserialize(data);
+    }
+
+    @Override
+    public IntArray deserialize(byte[] data) {
+        if (data.length % Integer.BYTES != 0) {
+            throw new BinarySerializationException("payload of " + data.length + " bytes is not a multiple of " + Integer.BYTES);
+        }
+        final int[] values = new int[data.length / Integer.BYTES];
+        ByteBuffer.wrap(data)
+                  .order(byteOrder)
+                  .asIntBuffer()
+                  .get(values);
+        return new IntArray(values);
+    }
+
+    /**
+     * Simple wrapper for <b>int[]</b> type, since type parameters cannot be bound to arrays.
+     */
+    public final static class IntArray {
+
+        private final int[] values;
+
+        public IntArray(int[] values) {
+            this.values = values;
+        }
+
+        public int[] getValues() {
+            return values;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            IntArray intArray = (IntArray) other;
+            return Arrays.equals(values, intArray.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+}
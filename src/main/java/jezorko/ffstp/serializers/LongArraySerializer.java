@@ -0,0 +1,103 @@
+package jezorko.ffstp.serializers;
+
+import jezorko.ffstp.Serializer;
+import jezorko.ffstp.exception.BinarySerializationException;
+import jezorko.ffstp.serializers.LongArraySerializer.LongArray;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sends <b>long[]</b> payloads as raw 64-bit values in the given byte order, without boxing.
+ * Values are copied in bulk through a {@link java.nio.LongBuffer} view, so the cost is close to copying memory,
+ * especially when the byte order is {@link ByteOrder#nativeOrder()}.
+ * Both sides of the connection must use the same byte order.
+ * Request data must be wrapped in a simple {@link LongArray} object.
+ */
+public final class LongArraySerializer implements Serializer<LongArray> {
+
+    private final ByteOrder byteOrder;
+
+    /**
+     * Uses {@link ByteOrder#BIG_ENDIAN}, the network byte order.
+     */
+    public LongArraySerializer() {
+        this(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * @param byteOrder in which the values are encoded
+     */
+    public LongArraySerializer(ByteOrder byteOrder) {
+        this.byteOrder = byteOrder;
+    }
+
+    @Override
+    public byte[] serialize(LongArray data) {
+        final long[] values = requireNonNull(data, "long array must not be null").values;
+        if (values.length > Integer.MAX_VALUE / Long.BYTES) {
+            throw new BinarySerializationException("array of " + values.length + " values does not fit in a single message");
+        }
+        final byte[] serialized = new byte[values.length * Long.BYTES];
+        ByteBuffer.wrap(serialized)
+                  .order(byteOrder)
+                  .asLongBuffer()
+                  .put(values);
+        return serialized;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <Y extends LongArray> Y deserialize(byte[] data, Class<Y> clazz) {
+        return (Y) deserialize(data);
+    }
+
+    @Override
+    public LongArray deserialize(byte[] data) {
+        if (data.length % Long.BYTES != 0) {
+            throw new BinarySerializationException("payload of " + data.length + " bytes is not a multiple of " + Long.BYTES);
+        }
+        final long[] values = new long[data.length / Long.BYTES];
+        ByteBuffer.wrap(data)
+                  .order(byteOrder)
+                  .asLongBuffer()
+                  .get(values);
+        return new LongArray(values);
+    }
+
+    /**
+     * Simple wrapper for <b>long[]</b> type, since type parameters cannot be bound to arrays.
+     */
+    public final static class LongArray {
+
+        private final long[] values;
+
+        public LongArray(long[] values) {
+            this.values = values;
+        }
+
+        public long[] getValues() {
+            return values;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            LongArray longArray = (LongArray) other;
+            return Arrays.equals(values, longArray.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package jezorko.ffstp.serializers;
+
+import jezorko.ffstp.exception.BinarySerializationException;
+
+/**
+ * Encodes values of a single declared type for {@link BinarySerializer}.
+ * Values of primitive types are never null, values of all other types are nullable.
+ * Types not supported directly are treated as nested objects of registered classes.
+ */
+abstract class ValueCodec {
+
+    private final static ValueCodec BOOLEAN = new ValueCodec() {
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) {
+            output.writeByte((Boolean) value ? 1 : 0);
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) {
+            return input.readByte() != 0;
+        }
+    };
+
+    private final static ValueCodec BYTE = new ValueCodec() {
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) {
+            output.writeByte((Byte) value);
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) {
+            return input.readByte();
+        }
+    };
+
+    private final static ValueCodec SHORT = new ValueCodec() {
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) {
+            output.writeSignedVarInt((Short) value);
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) {
+            return (short) input.readSignedVarInt();
+        }
+    };
+
+    private final static ValueCodec CHAR = new ValueCodec() {
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) {
+            output.writeVarInt((Character) value);
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) {
+            return (char) input.readVarInt();
+        }
+    };
+
+    private final static ValueCodec INT = new ValueCodec() {
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) {
+            output.writeSignedVarInt((Integer) value);
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) {
+            return input.readSignedVarInt();
+        }
+    };
+
+    private final static ValueCodec LONG = new ValueCodec() {
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) {
+            output.writeSignedVarLong((Long) value);
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) {
+            return input.readSignedVarLong();
+        }
+    };
+
+    private final static ValueCodec FLOAT = new ValueCodec() {
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) {
+            output.writeFloat((Float) value);
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) {
+            return input.readFloat();
+        }
+    };
+
+    private final static ValueCodec DOUBLE = new ValueCodec() {
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) {
+            output.writeDouble((Double) value);
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) {
+            return input.readDouble();
+        }
+    };
+
+    private final static ValueCodec STRING = new ValueCodec() {
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) {
+            output.writeString((String) value);
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) {
+            return input.readString();
+        }
+    };
+
+    private final static ValueCodec BYTES = new ValueCodec() {
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) {
+            output.writeNullableBytes((byte[]) value);
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) {
+            return input.readNullableBytes();
+        }
+    };
+
+    private final static ValueCodec OBJECT = new ValueCodec() {
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) {
+            serializer.writeObject(value, output);
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) {
+            return serializer.readObject(input);
+        }
+    };
+
+    abstract void write(Object value, BinaryOutput output, BinarySerializer serializer);
+
+    abstract Object read(BinaryInput input, BinarySerializer serializer);
+
+    /**
+     * @param type declared type of the value
+     *
+     * @return codec for values of the given type
+     */
+    static ValueCodec of(Class<?> type) {
+        if (type == boolean.class) {
+            return BOOLEAN;
+        }
+        if (type == byte.class) {
+            return BYTE;
+        }
+        if (type == short.class) {
+            return SHORT;
+        }
+        if (type == char.class) {
+            return CHAR;
+        }
+        if (type == int.class) {
+            return INT;
+        }
+        if (type == long.class) {
+            return LONG;
+        }
+        if (type == float.class) {
+            return FLOAT;
+        }
+        if (type == double.class) {
+            return DOUBLE;
+        }
+        if (type == Boolean.class) {
+            return new NullableCodec(BOOLEAN);
+        }
+        if (type == Byte.class) {
+            return new NullableCodec(BYTE);
+        }
+        if (type == Short.class) {
+            return new NullableCodec(SHORT);
+        }
+        if (type == Character.class) {
+            return new NullableCodec(CHAR);
+        }
+        if (type == Integer.class) {
+            return new NullableCodec(INT);
+        }
+        if (type == Long.class) {
+            return new NullableCodec(LONG);
+        }
+        if (type == Float.class) {
+            return new NullableCodec(FLOAT);
+        }
+        if (type == Double.class) {
+            return new NullableCodec(DOUBLE);
+        }
+        if (type == String.class) {
+            return STRING;
+        }
+        if (type == byte[].class) {
+            return BYTES;
+        }
+        if (type.isEnum()) {
+            return new EnumCodec(type.getEnumConstants());
+        }
+        return OBJECT;
+    }
+
+    /**
+     * @return true if values of the given type are encoded as nested objects of registered classes
+     */
+    static boolean isNestedObject(Class<?> type) {
+        return of(type) == OBJECT;
+    }
+
+    /**
+     * Prefixes values with a single byte telling whether the value is present.
+     */
+    private final static class NullableCodec extends ValueCodec {
+        private final ValueCodec valueCodec;
+
+        private NullableCodec(ValueCodec valueCodec) {
+            this.valueCodec = valueCodec;
+        }
+
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) {
+            output.writeByte(value == null ? 0 : 1);
+            if (value != null) {
+                valueCodec.write(value, output, serializer);
+            }
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) {
+            return input.readByte() == 0 ? null : valueCodec.read(input, serializer);
+        }
+    }
+
+    /**
+     * Writes enum constants as their ordinal increased by one, null is written as zero.
+     */
+    private final static class EnumCodec extends ValueCodec {
+        private final Object[] constants;
+
+        private EnumCodec(Object[] constants) {
+            this.constants = constants;
+        }
+
+        @Override
+        void write(Object value, BinaryOutput output, BinarySerializer serializer) {
+            output.writeVarInt(value == null ? 0 : ((Enum<?>) value).ordinal() + 1);
+        }
+
+        @Override
+        Object read(BinaryInput input, BinarySerializer serializer) {
+            final int ordinalPlusOne = input.readVarInt();
+            if (ordinalPlusOne < 0 || ordinalPlusOne > constants.length) {
+                throw new BinarySerializationException("unknown enum ordinal " + (ordinalPlusOne - 1));
+            }
+            return ordinalPlusOne == 0 ? null : constants[ordinalPlusOne - 1];
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package jezorko.ffstp.tools;
+
+import jezorko.ffstp.FrameDirection;
+
+/**
+ * One or more frames written to or read from a socket at once, as recorded by {@link FrameCapture}.
+ */
+public final class CapturedFrame {
+
+    private final FrameDirection direction;
+    private final long capturedAtNanos;
+    private final byte[] frames;
+
+    CapturedFrame(FrameDirection direction, long capturedAtNanos, byte[] frames) {
+        this.direction = direction;
+        this.capturedAtNanos = capturedAtNanos;
+        this.frames = frames;
+    }
+
+    public FrameDirection getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return nanoseconds between the start of the capture and the moment the frames were observed
+     */
+    public long getCapturedAtNanos() {
+        return capturedAtNanos;
+    }
+
+    /**
+     * @return raw bytes of the frames, exactly as they were sent through the socket
+     */
+    public byte[] getFrames() {
+        return frames;
+    }
+}
@@ -0,0 +1,171 @@
+package jezorko.ffstp.tools;
+
+import jezorko.ffstp.FrameDirection;
+import jezorko.ffstp.FrameListener;
+import jezorko.ffstp.exception.RethrownException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.System.nanoTime;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Captures traffic of one or more templates into a rotating, memory-mapped binary log.
+ * Pass it as the {@link FrameListener} of a {@link jezorko.ffstp.FriendlyTemplate} and read the log back with {@link FrameLog}.
+ * <br>
+ * The reading and writing threads only copy the frames into a bounded queue.
+ * A background thread appends them to the log, so neither disk writes nor rotation ever delay the traffic.
+ * If the queue is full, frames are dropped and counted instead, see {@link #getDroppedCount()}.
+ * <br>
+ * The log consists of segment files of a fixed size. Once a segment is full, the next one is created
+ * and the oldest segments are deleted, so that at most the given amount of segments is kept.
+ * Each record holds the direction, the time elapsed since the capture started and the raw frames.
+ * Every capture starts a new log, appending to an existing one is not supported.
+ */
+public final class FrameCapture implements FrameListener, AutoCloseable {
+
+    private final Path directory;
+    private final String name;
+    private final int segmentBytes;
+    private final int maxSegments;
+
+    private final long startNanos = nanoTime();
+    private final BlockingQueue<CapturedFrame> pendingFrames;
+    private final Thread appenderThread;
+    private final LongAdder capturedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private volatile boolean closed;
+    private volatile RuntimeException appendFailure;
+
+    private MappedByteBuffer segment;
+    private int segmentIndex = -1;
+
+    /**
+     * Starts the background thread. The log is created lazily, when the first frame is captured.
+     *
+     * @param directory     to create the segment files in
+     * @param name          of the log, used as a prefix of the segment files
+     * @param segmentBytes  size of a single segment file
+     * @param maxSegments   amount of the most recent segments to be kept
+     * @param queueCapacity amount of frames that may wait to be appended before new frames are dropped
+     *
+     * @throws IllegalArgumentException if the directory already contains a log with the given name
+     */
+    public FrameCapture(Path directory, String name, int segmentBytes, int maxSegments, int queueCapacity) {
+        if (segmentBytes <= FrameLog.SEGMENT_HEADER_BYTES + FrameLog.RECORD_HEADER_BYTES || maxSegments <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("segments must fit at least one record, amounts of segments and queued frames must be positive");
+        }
+        // timestamps of a new capture start over, so its frames cannot be appended to an older log
+        if (FrameLog.oldestSegmentIndex(directory, name) >= 0) {
+            throw new IllegalArgumentException("a frame log named " + name + " already exists in " + directory);
+        }
+        this.directory = directory;
+        this.name = name;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.pendingFrames = new ArrayBlockingQueue<>(queueCapacity);
+        this.appenderThread = new Thread(this::appendWhileOpen, "ffstp-frame-capture");
+        this.appenderThread.setDaemon(true);
+        this.appenderThread.start();
+    }
+
+    @Override
+    public void onFrames(FrameDirection direction, byte[] frames, int offset, int length) {
+        final byte[] copy = new byte[length];
+        System.arraycopy(frames, offset, copy, 0, length);
+        if (closed || appendFailure != null || !pendingFrames.offer(new CapturedFrame(direction, nanoTime() - startNanos, copy))) {
+            droppedCount.increment();
+        }
+    }
+
+    /**
+     * @return amount of frame batches appended to the log
+     */
+    public long getCapturedCount() {
+        return capturedCount.sum();
+    }
+
+    /**
+     * @return amount of frame batches that were not captured, because the queue was full or appending failed
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    private void appendWhileOpen() {
+        try {
+            while (!closed || !pendingFrames.isEmpty()) {
+                final CapturedFrame capturedFrame = pendingFrames.poll(100, TimeUnit.MILLISECONDS);
+                if (capturedFrame != null) {
+                    append(capturedFrame);
+                    capturedCount.increment();
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread()
+                  .interrupt();
+        } catch (IOException exception) {
+            appendFailure = new RethrownException(exception);
+        } catch (RuntimeException exception) {
+            appendFailure = exception;
+        }
+        if (appendFailure != null) {
+            droppedCount.add(pendingFrames.size());
+            pendingFrames.clear();
+        }
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    private void append(CapturedFrame capturedFrame) throws IOException {
+        final int recordBytes = FrameLog.RECORD_HEADER_BYTES + capturedFrame.getFrames().length;
+        if (segment == null || segment.remaining() < recordBytes) {
+            rotate(recordBytes);
+        }
+        segment.putInt(capturedFrame.getFrames().length);
+        segment.putLong(capturedFrame.getCapturedAtNanos());
+        segment.put((byte) capturedFrame.getDirection()
+                                        .ordinal());
+        segment.put(capturedFrame.getFrames());
+    }
+
+    private void rotate(int recordBytes) throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        ++segmentIndex;
+        final int size = Math.max(segmentBytes, FrameLog.SEGMENT_HEADER_BYTES + recordBytes);
+        try (FileChannel channel = FileChannel.open(FrameLog.segmentPath(directory, name, segmentIndex), CREATE_NEW, READ, WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        segment.putLong(FrameLog.SEGMENT_MAGIC);
+        if (segmentIndex >= maxSegments) {
+            Files.deleteIfExists(FrameLog.segmentPath(directory, name, segmentIndex - maxSegments));
+        }
+    }
+
+    /**
+     * Stops capturing, appends all frames that are still queued and waits until they are flushed to the disk.
+     *
+     * @throws RethrownException or another runtime exception if appending to the log has failed
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        appenderThread.join();
+        if (appendFailure != null) {
+            throw appendFailure;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package jezorko.ffstp.tools;
+
+import jezorko.ffstp.FrameDirection;
+import jezorko.ffstp.exception.RethrownException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads the logs written by {@link FrameCapture}.
+ */
+public final class FrameLog {
+
+    final static long SEGMENT_MAGIC = 0x4646_5354_5043_4150L;
+    final static int SEGMENT_HEADER_BYTES = Long.BYTES;
+    final static int RECORD_HEADER_BYTES = Integer.BYTES + Long.BYTES + 1;
+
+    private final static String SEGMENT_SUFFIX = ".ffcap";
+
+    private final static FrameDirection[] DIRECTIONS = FrameDirection.values();
+
+    private FrameLog() {
+    }
+
+    /**
+     * Lazily reads all frames that are still kept in the log, oldest first.
+     * Segments are mapped into memory one at a time.
+     *
+     * @param directory containing the segment files
+     * @param name      of the log
+     *
+     * @return captured frames in the order in which they were observed
+     */
+    public static Stream<CapturedFrame> read(Path directory, String name) {
+        final int firstSegment = oldestSegmentIndex(directory, name);
+        if (firstSegment < 0) {
+            return Stream.empty();
+        }
+        final Iterator<CapturedFrame> iterator = new SegmentsIterator(directory, name, firstSegment);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    static Path segmentPath(Path directory, String name, int segmentIndex) {
+        return directory.resolve(String.format("%s-%06d%s", name, segmentIndex, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * @return index of the oldest segment of the log or -1 if there is no such log
+     */
+    static int oldestSegmentIndex(Path directory, String name) {
+        final String prefix = name + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName()
+                                         .toString())
+                        .filter(fileName -> fileName.matches(Pattern.quote(prefix) + "\\d+" + Pattern.quote(SEGMENT_SUFFIX)))
+                        .mapToInt(fileName -> Integer.parseInt(fileName.substring(prefix.length(), fileName.length() - SEGMENT_SUFFIX.length())))
+                        .min()
+                        .orElse(-1);
+        } catch (IOException exception) {
+            throw new RethrownException(exception);
+        }
+    }
+
+    private final static class SegmentsIterator implements Iterator<CapturedFrame> {
+        private final Path directory;
+        private final String name;
+        private int segmentIndex;
+        private MappedByteBuffer segment;
+        private CapturedFrame next;
+
+        private SegmentsIterator(Path directory, String name, int firstSegment) {
+            this.directory = directory;
+            this.name = name;
+            this.segmentIndex = firstSegment;
+            this.segment = map(segmentPath(directory, name, firstSegment));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && segment != null) {
+                next = readRecord();
+                if (next == null) {
+                    final Path nextSegment = segmentPath(directory, name, ++segmentIndex);
+                    segment = Files.exists(nextSegment) ? map(nextSegment) : null;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public CapturedFrame next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final CapturedFrame result = next;
+            next = null;
+            return result;
+        }
+
+        private CapturedFrame readRecord() {
+            if (segment.remaining() < RECORD_HEADER_BYTES) {
+                return null;
+            }
+            final int length = segment.getInt();
+            // the unused tail of a segment is filled with zeros
+            if (length <= 0 || segment.remaining() < length + RECORD_HEADER_BYTES - Integer.BYTES) {
+                return null;
+            }
+            final long capturedAtNanos = segment.getLong();
+            final FrameDirection direction = DIRECTIONS[segment.get()];
+            final byte[] frames = new byte[length];
+            segment.get(frames);
+            return new CapturedFrame(direction, capturedAtNanos, frames);
+        }
+
+        private static MappedByteBuffer map(Path segmentPath) {
+            try (FileChannel channel = FileChannel.open(segmentPath, READ)) {
+                final MappedByteBuffer mappedSegment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (mappedSegment.remaining() < SEGMENT_HEADER_BYTES || mappedSegment.getLong() != SEGMENT_MAGIC) {
+                    throw new IllegalStateException(segmentPath + " is not a frame log segment");
+                }
+                return mappedSegment;
+            } catch (IOException exception) {
+                throw new RethrownException(exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package jezorko.ffstp.tools;
+
+import jezorko.ffstp.FrameDirection;
+import jezorko.ffstp.FriendlyTemplate;
+import jezorko.ffstp.exception.RethrownException;
+import jezorko.ffstp.serializers.ByteArraySerializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Sends captured frames to a server, for example to reproduce a performance problem or to benchmark with real traffic.
+ * Frames are sent at the pace at which they were captured, divided by the speed-up factor.
+ * Responses of the server are read and discarded, so that the server never blocks on writing them.
+ */
+public final class FrameReplayer {
+
+    private final InetSocketAddress address;
+    private final double speedUp;
+
+    /**
+     * @param address of the server to send the frames to
+     * @param speedUp how many times faster than captured the frames are sent,
+     *                {@code 1} keeps the original pace, {@link Double#POSITIVE_INFINITY} sends them without any pauses
+     */
+    public FrameReplayer(InetSocketAddress address, double speedUp) {
+        if (!(speedUp > 0)) {
+            throw new IllegalArgumentException("speed-up must be positive, got " + speedUp);
+        }
+        this.address = address;
+        this.speedUp = speedUp;
+    }
+
+    /**
+     * Sends frames of the given direction through a single connection.
+     * For a log captured on a server, these are the {@link FrameDirection#INBOUND} frames.
+     * Once all frames are sent, the output of the connection is shut down
+     * and the method waits until the server closes the connection.
+     *
+     * @param capturedFrames to be replayed, usually read with {@link FrameLog#read(java.nio.file.Path, String)}
+     * @param direction      of the frames to be sent, the other ones are ignored
+     *
+     * @return amount of responses received from the server
+     */
+    public long replay(Stream<CapturedFrame> capturedFrames, FrameDirection direction) throws InterruptedException {
+        final AtomicLong responses = new AtomicLong();
+        try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+            final Thread responsesReader = new Thread(() -> discardResponses(socket, responses), "ffstp-frame-replayer");
+            responsesReader.setDaemon(true);
+            responsesReader.start();
+
+            final OutputStream outputStream = socket.getOutputStream();
+            final Iterator<CapturedFrame> frames = capturedFrames.filter(frame -> frame.getDirection() == direction)
+                                                                 .iterator();
+            final long start = nanoTime();
+            long firstCapturedAt = -1;
+            while (frames.hasNext()) {
+                final CapturedFrame frame = frames.next();
+                if (firstCapturedAt < 0) {
+                    firstCapturedAt = frame.getCapturedAtNanos();
+                }
+                awaitUntil(start + (long) ((frame.getCapturedAtNanos() - firstCapturedAt) / speedUp));
+                outputStream.write(frame.getFrames());
+                outputStream.flush();
+            }
+            socket.shutdownOutput();
+            responsesReader.join();
+        } catch (IOException exception) {
+            throw new RethrownException(exception);
+        }
+        return responses.get();
+    }
+
+    private static void discardResponses(Socket socket, AtomicLong responses) {
+        try {
+            final FriendlyTemplate<ByteArraySerializer.ByteArray> template = new FriendlyTemplate<>(socket, new ByteArraySerializer());
+            while (true) {
+                template.readIncomingMessage()
+                        .skip();
+                responses.incrementAndGet();
+            }
+        } catch (RuntimeException exception) {
+            // the server has closed the connection
+        }
+    }
+
+    private static void awaitUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
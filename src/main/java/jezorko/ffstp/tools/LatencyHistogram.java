@@ -0,0 +1,116 @@
+package jezorko.ffstp.tools;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records latencies in logarithmic buckets with a relative error below one percent,
+ * using a fixed amount of memory regardless of the amount and range of recorded values.
+ * Values below 256 are recorded exactly.
+ * <br>
+ * This class is not thread-safe. Record values on a single thread
+ * and combine histograms of many threads with {@link #add(LatencyHistogram)}.
+ */
+public final class LatencyHistogram {
+
+    private final static int SUB_BUCKET_BITS = 7;
+    private final static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private final static int EXACT_VALUES = 2 * SUB_BUCKETS;
+    private final static int BUCKETS_AMOUNT = EXACT_VALUES + (Long.SIZE - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS_AMOUNT];
+    private long totalCount;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * @param value to be recorded, negative values are recorded as zero
+     */
+    public void record(long value) {
+        final long nonNegativeValue = Math.max(0, value);
+        ++counts[bucketOf(nonNegativeValue)];
+        ++totalCount;
+        min = Math.min(min, nonNegativeValue);
+        max = Math.max(max, nonNegativeValue);
+    }
+
+    /**
+     * Adds all values recorded by the other histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS_AMOUNT; ++i) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     *
+     * @return the highest value that is equivalent, within the precision of this histogram,
+     * to the value below which the given percentage of values fall, or zero if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        final long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * totalCount));
+        long cumulativeCount = 0;
+        for (int i = 0; i < BUCKETS_AMOUNT; ++i) {
+            cumulativeCount += counts[i];
+            if (cumulativeCount >= countAtPercentile) {
+                return Math.min(max, highestValueOf(i));
+            }
+        }
+        return max;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Describes the distribution of recorded latencies, assuming they were recorded in nanoseconds.
+     *
+     * @param unit in which the values are printed
+     *
+     * @return a single-line summary of the most interesting percentiles
+     */
+    public String toString(TimeUnit unit) {
+        return String.format("p50=%s p90=%s p99=%s p99.9=%s max=%s (%s, %d samples)",
+                             unit.convert(getValueAtPercentile(50), TimeUnit.NANOSECONDS),
+                             unit.convert(getValueAtPercentile(90), TimeUnit.NANOSECONDS),
+                             unit.convert(getValueAtPercentile(99), TimeUnit.NANOSECONDS),
+                             unit.convert(getValueAtPercentile(99.9), TimeUnit.NANOSECONDS),
+                             unit.convert(getMax(), TimeUnit.NANOSECONDS),
+                             unit.name()
+                                 .toLowerCase(),
+                             totalCount);
+    }
+
+    private static int bucketOf(long value) {
+        if (value < EXACT_VALUES) {
+            return (int) value;
+        }
+        final int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return EXACT_VALUES + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long highestValueOf(int bucket) {
+        if (bucket < EXACT_VALUES) {
+            return bucket;
+        }
+        final int shift = (bucket - EXACT_VALUES) / SUB_BUCKETS + 1;
+        final long subBucket = (bucket - EXACT_VALUES) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
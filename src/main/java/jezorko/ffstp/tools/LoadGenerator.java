@@ -0,0 +1,172 @@
+package jezorko.ffstp.tools;
+
+import jezorko.ffstp.FriendlyClientTemplate;
+import jezorko.ffstp.Message;
+import jezorko.ffstp.serializers.ByteArraySerializer;
+import jezorko.ffstp.serializers.ByteArraySerializer.ByteArray;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Drives a server, for example one built with {@link jezorko.ffstp.FriendlyServerTemplate},
+ * with requests sent over many connections and measures the latency of its responses.
+ * <br>
+ * With a positive target rate, requests are sent on a fixed schedule, regardless of how long
+ * the previous responses took (open model). Latency is measured from the moment a request was scheduled
+ * to be sent, so a stalled server is charged for every request it has delayed.
+ * This corrects for coordinated omission, which would otherwise hide such stalls.
+ * With a target rate of zero, every connection sends its next request as soon as it receives a response
+ * (closed model) and latency is measured from the moment the request is sent.
+ * <br>
+ * Every request carries a random payload of the given size, statuses are used in turns.
+ * A connection that fails is closed and not used anymore for the rest of the run.
+ * Can be run from the command line, see {@link #main(String[])}.
+ */
+public final class LoadGenerator {
+
+    private final InetSocketAddress address;
+    private final int connections;
+    private final int payloadBytes;
+    private final long requestsPerSecond;
+    private final String[] statuses;
+
+    /**
+     * @param address           of the server
+     * @param connections       amount of connections to send requests through
+     * @param payloadBytes      size of the payload of every request
+     * @param requestsPerSecond target rate of requests of all connections together, zero for the closed model
+     * @param statuses          statuses of the requests, used in turns
+     */
+    public LoadGenerator(InetSocketAddress address, int connections, int payloadBytes, long requestsPerSecond, String... statuses) {
+        if (connections <= 0 || payloadBytes < 0 || requestsPerSecond < 0 || statuses.length == 0) {
+            throw new IllegalArgumentException("at least one connection and status are required, " +
+                                               "payload size and rate must not be negative");
+        }
+        this.address = address;
+        this.connections = connections;
+        this.payloadBytes = payloadBytes;
+        this.requestsPerSecond = requestsPerSecond;
+        this.statuses = statuses.clone();
+    }
+
+    /**
+     * Opens the connections, sends requests for the given duration and closes the connections.
+     *
+     * @param duration of the run
+     * @param unit     of the duration
+     *
+     * @return throughput and latencies of the run
+     */
+    public LoadReport run(long duration, TimeUnit unit) throws InterruptedException {
+        final long start = nanoTime();
+        final long deadline = start + unit.toNanos(duration);
+        final AtomicLong errors = new AtomicLong();
+        final List<Thread> workers = new ArrayList<>(connections);
+        final List<LatencyHistogram> latencies = new ArrayList<>(connections);
+
+        for (int i = 0; i < connections; ++i) {
+            final int connectionIndex = i;
+            final LatencyHistogram connectionLatencies = new LatencyHistogram();
+            latencies.add(connectionLatencies);
+            final Thread worker = new Thread(() -> {
+                try {
+                    sendRequests(connectionIndex, start, deadline, connectionLatencies);
+                } catch (RuntimeException exception) {
+                    errors.incrementAndGet();
+                }
+            }, "ffstp-load-generator-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        final LatencyHistogram allLatencies = new LatencyHistogram();
+        latencies.forEach(allLatencies::add);
+        return new LoadReport(allLatencies.getTotalCount(), errors.get(), nanoTime() - start, allLatencies);
+    }
+
+    private void sendRequests(int connectionIndex, long start, long deadline, LatencyHistogram latencies) {
+        final byte[] payload = new byte[payloadBytes];
+        new Random(connectionIndex).nextBytes(payload);
+        final ByteArray data = new ByteArray(payload);
+        final long intervalNanos = requestsPerSecond == 0 ? 0 : connections * TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        // spread the schedules of connections evenly over a single interval
+        final long firstRequest = start + intervalNanos * connectionIndex / connections;
+
+        try (Socket socket = new Socket(address.getAddress(), address.getPort());
+             FriendlyClientTemplate<ByteArray> client = new FriendlyClientTemplate<>(socket, new ByteArraySerializer())) {
+            for (long i = 0; ; ++i) {
+                final long scheduledStart = requestsPerSecond == 0 ? nanoTime() : firstRequest + i * intervalNanos;
+                if (scheduledStart >= deadline) {
+                    return;
+                }
+                awaitUntil(scheduledStart);
+                client.sendAndAwaitResponse(new Message<>(statuses[(int) (i % statuses.length)], data));
+                latencies.record(nanoTime() - scheduledStart);
+            }
+        } catch (RuntimeException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static void awaitUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * Runs the load generator from the command line and prints the report to the standard output.
+     * Usage:
+     * <pre>
+     *     LoadGenerator host:port [--connections=1] [--payload-bytes=64] [--rate=0]
+     *                             [--duration-seconds=10] [--warmup-seconds=0] [--statuses=OK]
+     * </pre>
+     * A rate of zero runs the closed model. Results of the warm-up are printed separately.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length == 0 || !args[0].contains(":")) {
+            System.err.println("usage: LoadGenerator host:port [--connections=1] [--payload-bytes=64] [--rate=0] " +
+                               "[--duration-seconds=10] [--warmup-seconds=0] [--statuses=OK]");
+            System.exit(1);
+        }
+        final int portSeparator = args[0].lastIndexOf(':');
+        final InetSocketAddress address = new InetSocketAddress(args[0].substring(0, portSeparator),
+                                                                Integer.parseInt(args[0].substring(portSeparator + 1)));
+        final Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; ++i) {
+            final String[] option = args[i].replaceFirst("^--", "")
+                                           .split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+
+        final LoadGenerator loadGenerator = new LoadGenerator(address,
+                                                              Integer.parseInt(options.getOrDefault("connections", "1")),
+                                                              Integer.parseInt(options.getOrDefault("payload-bytes", "64")),
+                                                              Long.parseLong(options.getOrDefault("rate", "0")),
+                                                              options.getOrDefault("statuses", "OK")
+                                                                     .split(","));
+        final long warmupSeconds = Long.parseLong(options.getOrDefault("warmup-seconds", "0"));
+        if (warmupSeconds > 0) {
+            System.out.println("warm-up " + loadGenerator.run(warmupSeconds, TimeUnit.SECONDS));
+        }
+        System.out.println(loadGenerator.run(Long.parseLong(options.getOrDefault("duration-seconds", "10")), TimeUnit.SECONDS));
+    }
+}
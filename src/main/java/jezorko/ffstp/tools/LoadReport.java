@@ -0,0 +1,60 @@
+package jezorko.ffstp.tools;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results of a single {@link LoadGenerator} run.
+ */
+public final class LoadReport {
+
+    private final long requestsCount;
+    private final long errorsCount;
+    private final long elapsedNanos;
+    private final LatencyHistogram latencies;
+
+    LoadReport(long requestsCount, long errorsCount, long elapsedNanos, LatencyHistogram latencies) {
+        this.requestsCount = requestsCount;
+        this.errorsCount = errorsCount;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+    }
+
+    /**
+     * @return amount of requests that received a response
+     */
+    public long getRequestsCount() {
+        return requestsCount;
+    }
+
+    /**
+     * @return amount of requests that failed, every failure also closes its connection
+     */
+    public long getErrorsCount() {
+        return errorsCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return responses received per second
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : requestsCount * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return latencies of successful requests in nanoseconds
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("requests: %d, errors: %d, elapsed: %d ms, throughput: %.1f req/s%nlatency: %s",
+                             requestsCount, errorsCount, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getThroughput(),
+                             latencies.toString(TimeUnit.MICROSECONDS));
+    }
+}
@@ -0,0 +1,161 @@
+package jezorko.ffstp.tools;
+
+import jezorko.ffstp.FriendlyClientTemplate;
+import jezorko.ffstp.FriendlyServerTemplate;
+import jezorko.ffstp.FriendlyWarmUp;
+import jezorko.ffstp.Message;
+import jezorko.ffstp.serializers.ByteArraySerializer;
+import jezorko.ffstp.serializers.ByteArraySerializer.ByteArray;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Measures how long a freshly started JVM takes until it answers requests quickly.
+ * An echo server and a client are started within the same JVM and connected through the loopback interface,
+ * then requests are sent one after another until the given amount of consecutive responses arrives
+ * faster than the given latency. The server is only started after the optional warm-up,
+ * as a service would only start accepting connections after it.
+ * <br>
+ * Meant to be run from the command line as the first thing a JVM does, see {@link #main(String[])},
+ * to compare startup with and without warm-up or a class-data sharing archive.
+ */
+public final class StartupBenchmark {
+
+    private final int payloadBytes;
+    private final long fastResponseNanos;
+    private final int consecutiveFastResponses;
+    private final int warmUpIterations;
+
+    /**
+     * @param payloadBytes             size of the payload of every request
+     * @param fastResponse             latency below which a response is considered fast
+     * @param unit                     of the latency
+     * @param consecutiveFastResponses amount of fast responses in a row after which responses are considered fast
+     * @param warmUpIterations         passed to {@link FriendlyWarmUp#warmUp(int)} before the server starts, zero for no warm-up
+     */
+    public StartupBenchmark(int payloadBytes, long fastResponse, TimeUnit unit, int consecutiveFastResponses, int warmUpIterations) {
+        if (payloadBytes < 0 || fastResponse <= 0 || consecutiveFastResponses <= 0 || warmUpIterations < 0) {
+            throw new IllegalArgumentException("fast response latency and amount must be positive, " +
+                                               "payload size and warm-up iterations must not be negative");
+        }
+        this.payloadBytes = payloadBytes;
+        this.fastResponseNanos = unit.toNanos(fastResponse);
+        this.consecutiveFastResponses = consecutiveFastResponses;
+        this.warmUpIterations = warmUpIterations;
+    }
+
+    /**
+     * Warms up if requested, starts the server and sends requests until responses are fast
+     * or the given amount of requests was sent.
+     *
+     * @param maxRequests amount of requests after which the benchmark gives up
+     *
+     * @return the measured times
+     */
+    public StartupReport run(long maxRequests) throws Exception {
+        // uptime has a resolution of milliseconds, so it is only used to anchor the nanosecond clock
+        final long jvmStart = nanoTime() - TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean()
+                                                                                           .getUptime());
+        long warmUpNanos = 0;
+        if (warmUpIterations > 0) {
+            final long warmUpStart = nanoTime();
+            FriendlyWarmUp.warmUp(warmUpIterations);
+            warmUpNanos = nanoTime() - warmUpStart;
+        }
+
+        final byte[] payload = new byte[payloadBytes];
+        new Random(0).nextBytes(payload);
+        final Message<ByteArray> request = Message.ok(new ByteArray(payload));
+        final LatencyHistogram latencies = new LatencyHistogram();
+
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            final Thread serverThread = new Thread(() -> echoWhileConnected(serverSocket), "ffstp-startup-benchmark-server");
+            serverThread.setDaemon(true);
+            serverThread.start();
+
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+                 FriendlyClientTemplate<ByteArray> client = new FriendlyClientTemplate<>(socket, new ByteArraySerializer())) {
+                // otherwise delayed acknowledgements of the small writes would dominate the measured latency
+                socket.setTcpNoDelay(true);
+                long firstResponseLatency = -1;
+                long timeToFirstResponse = -1;
+                long fastStreak = 0;
+                long fastStreakStart = -1;
+                long timeToFastStreakStart = -1;
+                for (long i = 0; i < maxRequests; ++i) {
+                    final long requestStart = nanoTime();
+                    client.sendAndAwaitResponse(request, ByteArray.class);
+                    final long responseTime = nanoTime();
+                    final long latency = responseTime - requestStart;
+                    latencies.record(latency);
+                    if (i == 0) {
+                        firstResponseLatency = latency;
+                        timeToFirstResponse = responseTime - jvmStart;
+                    }
+                    if (latency >= fastResponseNanos) {
+                        fastStreak = 0;
+                        continue;
+                    }
+                    if (fastStreak++ == 0) {
+                        fastStreakStart = i;
+                        timeToFastStreakStart = responseTime - jvmStart;
+                    }
+                    if (fastStreak == consecutiveFastResponses) {
+                        return new StartupReport(warmUpNanos, firstResponseLatency, timeToFirstResponse,
+                                                 timeToFastStreakStart, fastStreakStart, latencies);
+                    }
+                }
+                return new StartupReport(warmUpNanos, firstResponseLatency, timeToFirstResponse, -1, -1, latencies);
+            }
+        }
+    }
+
+    private static void echoWhileConnected(ServerSocket serverSocket) {
+        try (Socket socket = serverSocket.accept();
+             FriendlyServerTemplate<ByteArray> server = new FriendlyServerTemplate<>(socket, new ByteArraySerializer())) {
+            socket.setTcpNoDelay(true);
+            while (!socket.isClosed()) {
+                server.waitForRequestAndReply(ByteArray.class, Function.identity());
+            }
+        } catch (IOException | RuntimeException exception) {
+            // the client has finished and closed the connection
+        } catch (Exception exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Runs the benchmark from the command line and prints the report to the standard output.
+     * Usage:
+     * <pre>
+     *     StartupBenchmark [--payload-bytes=64] [--fast-micros=200] [--consecutive=100]
+     *                      [--warm-up-iterations=0] [--max-requests=1000000]
+     * </pre>
+     */
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final String[] option = arg.replaceFirst("^--", "")
+                                       .split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+
+        final StartupBenchmark benchmark = new StartupBenchmark(Integer.parseInt(options.getOrDefault("payload-bytes", "64")),
+                                                                Long.parseLong(options.getOrDefault("fast-micros", "200")),
+                                                                TimeUnit.MICROSECONDS,
+                                                                Integer.parseInt(options.getOrDefault("consecutive", "100")),
+                                                                Integer.parseInt(options.getOrDefault("warm-up-iterations", "0")));
+        System.out.println(benchmark.run(Long.parseLong(options.getOrDefault("max-requests", "1000000"))));
+    }
+}
@@ -0,0 +1,74 @@
+package jezorko.ffstp.tools;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results of a single {@link StartupBenchmark} run.
+ * Times since the start of the JVM include its own startup, class loading and the warm-up, if any.
+ */
+public final class StartupReport {
+
+    private final long warmUpNanos;
+    private final long firstResponseLatencyNanos;
+    private final long timeToFirstResponseNanos;
+    private final long timeToFastResponseNanos;
+    private final long requestsUntilFast;
+    private final LatencyHistogram latencies;
+
+    StartupReport(long warmUpNanos, long firstResponseLatencyNanos, long timeToFirstResponseNanos,
+                  long timeToFastResponseNanos, long requestsUntilFast, LatencyHistogram latencies) {
+        this.warmUpNanos = warmUpNanos;
+        this.firstResponseLatencyNanos = firstResponseLatencyNanos;
+        this.timeToFirstResponseNanos = timeToFirstResponseNanos;
+        this.timeToFastResponseNanos = timeToFastResponseNanos;
+        this.requestsUntilFast = requestsUntilFast;
+        this.latencies = latencies;
+    }
+
+    public long getWarmUpNanos() {
+        return warmUpNanos;
+    }
+
+    public long getFirstResponseLatencyNanos() {
+        return firstResponseLatencyNanos;
+    }
+
+    /**
+     * @return time from the start of the JVM until the first response was received
+     */
+    public long getTimeToFirstResponseNanos() {
+        return timeToFirstResponseNanos;
+    }
+
+    /**
+     * @return time from the start of the JVM until the first of the consecutive fast responses was received,
+     * -1 if responses never became fast
+     */
+    public long getTimeToFastResponseNanos() {
+        return timeToFastResponseNanos;
+    }
+
+    /**
+     * @return amount of requests sent before the first of the consecutive fast responses, -1 if responses never became fast
+     */
+    public long getRequestsUntilFast() {
+        return requestsUntilFast;
+    }
+
+    /**
+     * @return latencies of all requests in nanoseconds
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("warm-up: %d ms, first response: %d ms after JVM start (latency %d us), " +
+                             "fast responses: %s after JVM start (%d requests)%nlatency: %s",
+                             TimeUnit.NANOSECONDS.toMillis(warmUpNanos), TimeUnit.NANOSECONDS.toMillis(timeToFirstResponseNanos),
+                             TimeUnit.NANOSECONDS.toMicros(firstResponseLatencyNanos),
+                             timeToFastResponseNanos < 0 ? "never" : TimeUnit.NANOSECONDS.toMillis(timeToFastResponseNanos) + " ms",
+                             requestsUntilFast, latencies.toString(TimeUnit.MICROSECONDS));
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains tools for measuring and troubleshooting FFSTP deployments,
+ * such as the {@link jezorko.ffstp.tools.LoadGenerator}.
+ */
+package jezorko.ffstp.tools;
@@ -0,0 +1,152 @@
+package jezorko.ffstp;
+
+import jezorko.ffstp.exception.MissingDataException;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A {@link Flow.Publisher} view of the incoming messages of a {@link FriendlyTemplate}.
+ * Messages are read from the socket only when the subscriber has requested them,
+ * so a slow subscriber stops the reads and the peer gets throttled by TCP flow control
+ * instead of messages piling up in memory.
+ * <br>
+ * Reads are blocking and performed on the given executor.
+ * Since the messages of a connection can be consumed only once, only a single subscriber is allowed.
+ * The subscription completes once the peer closes the connection between two messages,
+ * any other exception thrown while reading terminates it with {@link Flow.Subscriber#onError(Throwable)}.
+ * Cancelling the subscription does not interrupt a read that is already blocked,
+ * closing the template does.
+ * <br>
+ * Available on Java 9 and newer only.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ *
+ * @see FriendlyFlowSubscriber
+ */
+public class FriendlyFlowPublisher<T> implements Flow.Publisher<Message<T>> {
+
+    private final Supplier<Message<T>> messageReader;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Uses the simple deserialization method {@link Serializer#deserialize(byte[])}.
+     * Keep in mind that not every serializer will implement this method.
+     *
+     * @param friendlyTemplate to read messages from
+     * @param executor         on which the blocking reads will be performed
+     */
+    public FriendlyFlowPublisher(FriendlyTemplate<T> friendlyTemplate, Executor executor) {
+        this(friendlyTemplate::readMessage, executor);
+    }
+
+    /**
+     * @param friendlyTemplate to read messages from
+     * @param messageClass     to deserialize the messages to
+     * @param executor         on which the blocking reads will be performed
+     * @param <Y>              type of the messages
+     *
+     * @return a publisher of messages deserialized to the given class
+     */
+    public static <T, Y extends T> FriendlyFlowPublisher<Y> of(FriendlyTemplate<T> friendlyTemplate, Class<Y> messageClass, Executor executor) {
+        return new FriendlyFlowPublisher<>(() -> friendlyTemplate.readMessage(messageClass), executor);
+    }
+
+    private FriendlyFlowPublisher(Supplier<Message<T>> messageReader, Executor executor) {
+        this.messageReader = messageReader;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Message<T>> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("messages of a connection can be published to a single subscriber only"));
+            return;
+        }
+        subscriber.onSubscribe(new DemandDrivenSubscription(subscriber));
+    }
+
+    private final class DemandDrivenSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super Message<T>> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private volatile boolean cancelled;
+
+        private DemandDrivenSubscription(Flow.Subscriber<? super Message<T>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("requested amount of messages must be positive, got " + n));
+                return;
+            }
+            long previousDemand;
+            long newDemand;
+            do {
+                previousDemand = demand.get();
+                newDemand = previousDemand + n < 0 ? Long.MAX_VALUE : previousDemand + n;
+            } while (!demand.compareAndSet(previousDemand, newDemand));
+
+            if (previousDemand == 0) {
+                executor.execute(this::readWhileDemanded);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Only one instance of this loop runs at a time, since it is started
+         * when the demand rises from zero and ends when it drops back to zero.
+         */
+        private void readWhileDemanded() {
+            do {
+                if (cancelled) {
+                    return;
+                }
+                final Message<T> message;
+                try {
+                    message = messageReader.get();
+                } catch (MissingDataException exception) {
+                    cancelled = true;
+                    if (exception.isEndOfStream()) {
+                        subscriber.onComplete();
+                    }
+                    else {
+                        subscriber.onError(exception);
+                    }
+                    return;
+                } catch (RuntimeException exception) {
+                    cancelled = true;
+                    subscriber.onError(exception);
+                    return;
+                }
+                if (cancelled) {
+                    return;
+                }
+                subscriber.onNext(message);
+            } while (demand.decrementAndGet() > 0);
+        }
+    }
+}
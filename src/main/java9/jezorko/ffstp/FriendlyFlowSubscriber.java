@@ -0,0 +1,86 @@
+package jezorko.ffstp;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * A {@link Flow.Subscriber} that writes every received message to a {@link FriendlyTemplate}.
+ * At most {@code prefetch} messages are requested ahead, and since writes block
+ * while the peer is not reading, a slow peer throttles the upstream publisher.
+ * <br>
+ * If writing fails, the subscription is cancelled and {@link #getCompletion()} completes exceptionally.
+ * <br>
+ * Available on Java 9 and newer only.
+ *
+ * @param <T> defines the lower-bound type allowed as a message payload
+ *
+ * @see FriendlyFlowPublisher
+ */
+public class FriendlyFlowSubscriber<T> implements Flow.Subscriber<Message<? extends T>> {
+
+    private final FriendlyTemplate<T> friendlyTemplate;
+    private final int prefetch;
+    private final int replenishThreshold;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private Flow.Subscription subscription;
+    private int receivedSinceLastRequest;
+
+    /**
+     * @param friendlyTemplate to write messages to
+     * @param prefetch         amount of messages requested from the publisher in advance
+     */
+    public FriendlyFlowSubscriber(FriendlyTemplate<T> friendlyTemplate, int prefetch) {
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch must be positive, got " + prefetch);
+        }
+        this.friendlyTemplate = friendlyTemplate;
+        this.prefetch = prefetch;
+        this.replenishThreshold = Math.max(1, prefetch / 2);
+    }
+
+    /**
+     * @return a future that completes when the publisher completes or fails, or when writing fails
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(prefetch);
+    }
+
+    @Override
+    public void onNext(Message<? extends T> message) {
+        if (completion.isDone()) {
+            return;
+        }
+        try {
+            friendlyTemplate.writeMessage(message);
+        } catch (RuntimeException exception) {
+            subscription.cancel();
+            completion.completeExceptionally(exception);
+            return;
+        }
+        if (++receivedSinceLastRequest == replenishThreshold) {
+            receivedSinceLastRequest = 0;
+            subscription.request(replenishThreshold);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        completion.complete(null);
+    }
+}
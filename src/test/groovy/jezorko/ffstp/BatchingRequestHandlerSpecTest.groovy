@@ -0,0 +1,117 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+import static jezorko.ffstp.TestUtils.startLocalServer
+
+@Timeout(10)
+class BatchingRequestHandlerSpecTest extends Specification {
+
+    // every request blocks until its batch is handled, so each one needs a thread of its own
+    def executor = Executors.newCachedThreadPool()
+    def batches = new CopyOnWriteArrayList<List<String>>()
+
+    def echoingBatchHandler = { List<Message<String>> requests ->
+        batches << requests*.data
+        requests.collect { Message.ok("reply to " + it.data) }
+    }
+
+    void cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "should answer concurrent requests from many connections with a single batch"() {
+        given:
+          def handler = new BatchingRequestHandler<String>(echoingBatchHandler, 5, 5, TimeUnit.SECONDS)
+          def server = startLocalServer(handler)
+          def clients = (0..<5).collect { new FriendlyClientTemplate<String>(new Socket(server.address.address, server.address.port), new StringSerializer()) }
+
+        when:
+          def replies = (0..<5).collect { i -> CompletableFuture.supplyAsync({ clients[i].sendAndAwaitResponse(Message.ok("request " + i)) }, executor) }
+                               .collect { it.get() }
+
+        then:
+          batches.size() == 1
+          batches[0].sort() == (0..<5).collect { "request " + it }
+          replies*.data == (0..<5).collect { "reply to request " + it }
+
+        cleanup:
+          clients*.close()
+          server.close()
+    }
+
+    def "should handle an incomplete batch once the window passes"() {
+        given:
+          def handler = new BatchingRequestHandler<String>(echoingBatchHandler, 100, 50, TimeUnit.MILLISECONDS)
+
+        when:
+          def reply = handler.apply(Message.ok("lonely"))
+
+        then:
+          reply.data == "reply to lonely"
+          batches == [["lonely"]]
+    }
+
+    def "should batch requests separately per status"() {
+        given:
+          def handler = new BatchingRequestHandler<String>(echoingBatchHandler, 2, 5, TimeUnit.SECONDS)
+
+        when:
+          def replies = [Message.ok("a"), new Message<String>("GET", "b"), Message.ok("c"), new Message<String>("GET", "d")]
+                  .collect { request -> CompletableFuture.supplyAsync({ handler.apply(request) }, executor) }
+                  .collect { it.get().data }
+
+        then:
+          replies == ["reply to a", "reply to b", "reply to c", "reply to d"]
+          batches*.sort() as Set == [["a", "c"], ["b", "d"]] as Set
+    }
+
+    def "should fail every request of the batch if the batch handler returns too few replies"() {
+        given:
+          def handler = new BatchingRequestHandler<String>({ List<Message<String>> requests -> [Message.ok("only one")] }, 2, 5, TimeUnit.SECONDS)
+
+        when:
+          def replies = (0..<2).collect { i -> CompletableFuture.supplyAsync({ handler.apply(Message.ok("request " + i)) }, executor) }
+          replies.each { it.get() }
+
+        then:
+          def exception = thrown ExecutionException
+          exception.cause instanceof IllegalStateException
+          replies.every { reply -> reply.handle { result, failure -> failure }.get() != null }
+    }
+
+    def "should fail every request of the batch if the batch handler throws an error"() {
+        given:
+          def handler = new BatchingRequestHandler<String>({ List<Message<String>> requests -> throw new AssertionError("broken") }, 2, 5, TimeUnit.SECONDS)
+
+        when:
+          def replies = (0..<2).collect { i -> CompletableFuture.supplyAsync({ handler.apply(Message.ok("request " + i)) }, executor) }
+          replies.each { it.get() }
+
+        then:
+          def exception = thrown ExecutionException
+          exception.cause instanceof AssertionError
+          replies.every { reply -> reply.handle { result, failure -> failure }.get() != null }
+    }
+
+    def "should reject invalid limits"() {
+        when:
+          new BatchingRequestHandler<String>(echoingBatchHandler, maxBatchSize, window, TimeUnit.MILLISECONDS)
+
+        then:
+          thrown IllegalArgumentException
+
+        where:
+          maxBatchSize | window
+          0            | 10
+          10           | -1
+    }
+}
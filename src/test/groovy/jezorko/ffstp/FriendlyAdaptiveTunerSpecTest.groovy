@@ -0,0 +1,147 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import static jezorko.ffstp.FrameDirection.INBOUND
+import static jezorko.ffstp.FrameDirection.OUTBOUND
+import static jezorko.ffstp.TestUtils.connectedSockets
+
+@Timeout(10)
+class FriendlyAdaptiveTunerSpecTest extends Specification {
+
+    def sockets = connectedSockets()
+
+    void cleanup() {
+        sockets*.close()
+    }
+
+    static byte[] frame(int payloadBytes) {
+        FriendlyForkedSocketTransferProtocolWriter.encodeFrame(new Message<>("OK", new byte[payloadBytes]))
+    }
+
+    def "should enable nodelay for request and response traffic"() {
+        given:
+          sockets[0].tcpNoDelay = false
+          def tuner = new FriendlyAdaptiveTuner(sockets[0], 4096, 65536)
+          def client = new FriendlyTemplate<String>(sockets[0], new StringSerializer(), tuner)
+          def server = new FriendlyServerTemplate<String>(sockets[1], new StringSerializer())
+          Thread.start {
+              FriendlyAdaptiveTuner.WINDOW_FRAMES.times { server.waitForRequestAndReply { Message.ok(it.data) } }
+          }
+
+        when:
+          FriendlyAdaptiveTuner.WINDOW_FRAMES.intdiv(2).times {
+              client.writeMessage(Message.ok("ping"))
+              client.readMessage()
+          }
+
+        then:
+          with(tuner.settings) {
+              requestResponse
+              tcpNoDelay
+              flushPolicy.lingerNanos == 0
+          }
+          sockets[0].tcpNoDelay
+    }
+
+    def "should disable nodelay and linger for bulk transfer of small frames"() {
+        given:
+          sockets[0].tcpNoDelay = true
+          def tuner = new FriendlyAdaptiveTuner(sockets[0], 4096, 65536)
+          def smallFrame = frame(100)
+
+        when:
+          FriendlyAdaptiveTuner.WINDOW_FRAMES.times { tuner.onFrames(OUTBOUND, smallFrame, 0, smallFrame.length) }
+
+        then:
+          with(tuner.settings) {
+              !requestResponse
+              !tcpNoDelay
+              averageFrameBytes == smallFrame.length
+              flushPolicy.lingerNanos > 0
+          }
+          !sockets[0].tcpNoDelay
+    }
+
+    def "should grow socket buffers for large frames within the bounds"() {
+        given:
+          def tuner = new FriendlyAdaptiveTuner(sockets[0], 4096, maxBufferBytes)
+          def largeFrame = frame(100_000)
+
+        when:
+          FriendlyAdaptiveTuner.WINDOW_FRAMES.times { tuner.onFrames(INBOUND, largeFrame, 0, largeFrame.length) }
+
+        then:
+          with(tuner.settings) {
+              largestFrameBytes == largeFrame.length
+              tcpNoDelay
+              // the operating system may round the requested sizes
+              sendBufferBytes >= maxBufferBytes / 2
+              receiveBufferBytes >= maxBufferBytes / 2
+          }
+
+        where:
+          maxBufferBytes = 256 * 1024
+    }
+
+    def "should not change settings before a window of frames has been observed"() {
+        given:
+          def tuner = new FriendlyAdaptiveTuner(sockets[0], 4096, 65536)
+          def initialSettings = tuner.settings
+          def smallFrame = frame(100)
+
+        when:
+          (FriendlyAdaptiveTuner.WINDOW_FRAMES - 1).times { tuner.onFrames(OUTBOUND, smallFrame, 0, smallFrame.length) }
+
+        then:
+          tuner.settings.is(initialSettings)
+    }
+
+    def "should count frames written together one by one"() {
+        given:
+          sockets[0].tcpNoDelay = true
+          def tuner = new FriendlyAdaptiveTuner(sockets[0], 4096, 65536)
+          def writer = new FriendlyTemplate<String>(sockets[0], new StringSerializer(), tuner)
+          def smallFrame = frame(100)
+          def coalescedFrames = new ByteArrayOutputStream()
+          FriendlyAdaptiveTuner.WINDOW_FRAMES.times { coalescedFrames.write(smallFrame) }
+
+        when:
+          writer.writeFrames(coalescedFrames.toByteArray(), 0, coalescedFrames.size())
+
+        then:
+          with(tuner.settings) {
+              !requestResponse
+              !tcpNoDelay
+              averageFrameBytes == smallFrame.length
+              largestFrameBytes == smallFrame.length
+          }
+    }
+
+    def "should count a buffer that does not hold a complete frame as a single frame"() {
+        given:
+          def tuner = new FriendlyAdaptiveTuner(sockets[0], 4096, 65536)
+          def truncatedFrame = frame(100)[0..<50] as byte[]
+
+        when:
+          FriendlyAdaptiveTuner.WINDOW_FRAMES.times { tuner.onFrames(OUTBOUND, truncatedFrame, 0, truncatedFrame.length) }
+
+        then:
+          tuner.settings.averageFrameBytes == truncatedFrame.length
+    }
+
+    def "should reject invalid buffer bounds"() {
+        when:
+          new FriendlyAdaptiveTuner(sockets[0], min, max)
+
+        then:
+          thrown IllegalArgumentException
+
+        where:
+          min  | max
+          0    | 1024
+          2048 | 1024
+    }
+}
@@ -0,0 +1,67 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
+import static java.util.concurrent.Executors.newFixedThreadPool
+import static jezorko.ffstp.TestUtils.startLocalServer
+
+class FriendlyCoalescingClientTemplateSpecTest extends Specification {
+
+    def handlerCalls = new AtomicInteger()
+    def server = startLocalServer {
+        sleep 300
+        Message.ok(it.data + " " + handlerCalls.incrementAndGet())
+    }
+    def socket = new Socket(server.address.address, server.address.port)
+    def threadPool = newFixedThreadPool(10)
+
+    void cleanup() {
+        threadPool.shutdownNow()
+        socket.close()
+        server.close()
+    }
+
+    def sendConcurrently(FriendlyCoalescingClientTemplate<String> client, Closure<Message<String>> requestProvider) {
+        def start = new CountDownLatch(1)
+        def futures = (0..<10).collect { index ->
+            threadPool.submit({
+                start.await()
+                client.sendAndAwaitResponse(requestProvider(index)).data
+            } as Callable<String>)
+        }
+        start.countDown()
+        futures.collect { it.get() }
+    }
+
+    def "should share a single in-flight request between identical concurrent requests"() {
+        given:
+          def client = new FriendlyCoalescingClientTemplate<String>(socket, new StringSerializer(), "OK")
+
+        when:
+          def responses = sendConcurrently(client) { Message.ok("key") }
+
+        then:
+          handlerCalls.get() <= 2
+          responses.every { it.startsWith("key ") }
+          client.coalescedRequestsCount >= 8
+    }
+
+    def "should not coalesce requests with different payloads or other statuses"() {
+        given:
+          def client = new FriendlyCoalescingClientTemplate<String>(socket, new StringSerializer(), "OK")
+
+        when:
+          def responses = sendConcurrently(client) { it % 2 == 0 ? Message.ok("key $it".toString()) : Message.error("key") }
+
+        then:
+          handlerCalls.get() == 10
+          responses.toSet().size() == 10
+          client.coalescedRequestsCount == 0
+    }
+
+}
@@ -0,0 +1,85 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.exception.SenderClosedException
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.CountDownLatch
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS
+import static java.util.concurrent.TimeUnit.SECONDS
+import static jezorko.ffstp.TestUtils.connectedSockets
+
+@Timeout(10)
+class FriendlyConcurrentSenderSpecTest extends Specification {
+
+    def sockets = connectedSockets()
+    def senderTemplate = new FriendlyTemplate<String>(sockets[0], new StringSerializer())
+    def receiverTemplate = new FriendlyTemplate<String>(sockets[1], new StringSerializer())
+
+    void cleanup() {
+        senderTemplate.close()
+        receiverTemplate.close()
+    }
+
+    def "should deliver intact frames sent concurrently by many threads"() {
+        given:
+          def sender = new FriendlyConcurrentSender<String>(senderTemplate, new FlushPolicy(16 * 1024, 64, 1, MILLISECONDS))
+          def start = new CountDownLatch(1)
+          def threads = (0..<8).collect { thread ->
+              Thread.start {
+                  start.await()
+                  (0..<250).each { sender.send(Message.ok("$thread:$it".toString())) }
+              }
+          }
+
+        when:
+          start.countDown()
+          def received = (0..<2000).collect { receiverTemplate.readMessage().data }
+          threads*.join()
+
+        then:
+          received.size() == 2000
+          received.groupBy { it.split(":")[0] }
+                  .every { thread, messages -> messages.collect { it.split(":")[1] as int } == (0..<250).toList() }
+
+        cleanup:
+          sender.close()
+    }
+
+    def "should complete the future once the message is flushed"() {
+        given:
+          def sender = new FriendlyConcurrentSender<String>(senderTemplate, FlushPolicy.immediate())
+
+        when:
+          def sent = sender.send(Message.ok("hello"))
+
+        then:
+          sent.get() == null
+          receiverTemplate.readMessage().data == "hello"
+
+        cleanup:
+          sender.close()
+    }
+
+    def "should write queued messages on close and reject new ones"() {
+        given:
+          def sender = new FriendlyConcurrentSender<String>(senderTemplate, new FlushPolicy(1024, 1024, 1, SECONDS))
+          def sent = (0..<3).collect { sender.send(Message.ok("m$it".toString())) }
+
+        when:
+          sender.close()
+
+        then:
+          sent.every { it.done && !it.completedExceptionally }
+          (0..<3).collect { receiverTemplate.readMessage().data } == ["m0", "m1", "m2"]
+
+        when:
+          sender.send(Message.ok("late"))
+
+        then:
+          thrown SenderClosedException
+    }
+
+}
@@ -0,0 +1,130 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.RejectedExecutionException
+
+import static java.lang.System.nanoTime
+import static java.util.concurrent.TimeUnit.NANOSECONDS
+import static jezorko.ffstp.TestUtils.connectedSockets
+
+@Timeout(10)
+class FriendlyFairSchedulerSpecTest extends Specification {
+
+    def scheduler = new FriendlyFairScheduler(1, 1)
+    def executed = new CopyOnWriteArrayList<String>()
+
+    void cleanup() {
+        scheduler.close()
+    }
+
+    /**
+     * Occupies the only worker until the returned latch is released, so that tasks can be queued up front.
+     */
+    def blockWorker() {
+        def release = new CountDownLatch(1)
+        def started = new CountDownLatch(1)
+        scheduler.newQueue(1).submit({ started.countDown(); release.await() }, 1)
+        started.await()
+        release
+    }
+
+    def "should not let a flooding queue starve a quiet one"() {
+        given:
+          def noisy = scheduler.newQueue(1)
+          def quiet = scheduler.newQueue(1)
+          def release = blockWorker()
+
+        when:
+          def tasks = (0..<100).collect { noisy.submit({ executed << "noisy" }, 1) }
+          tasks += (0..<5).collect { quiet.submit({ executed << "quiet" }, 1) }
+          release.countDown()
+          tasks*.get()
+
+        then:
+          executed.take(10) == ["noisy", "quiet"] * 5
+    }
+
+    def "should share the workers according to the weights"() {
+        given:
+          def heavy = scheduler.newQueue(2)
+          def light = scheduler.newQueue(1)
+          def release = blockWorker()
+
+        when:
+          def tasks = (0..<30).collect { heavy.submit({ executed << "heavy" }, 1) }
+          tasks += (0..<30).collect { light.submit({ executed << "light" }, 1) }
+          release.countDown()
+          tasks*.get()
+
+        then:
+          executed.take(30).count { it == "heavy" } == 20
+    }
+
+    def "should account for the cost of tasks"() {
+        given:
+          def expensive = scheduler.newQueue(1)
+          def cheap = scheduler.newQueue(1)
+          def release = blockWorker()
+
+        when:
+          def tasks = (0..<3).collect { expensive.submit({ executed << "expensive" }, 4) }
+          tasks += (0..<12).collect { cheap.submit({ executed << "cheap" }, 1) }
+          release.countDown()
+          tasks*.get()
+
+        then:
+          executed.take(10).count { it == "expensive" } == 2
+          executed.take(10).count { it == "cheap" } == 8
+    }
+
+    def "should pause the submitting thread according to the rate limit"() {
+        given:
+          def limited = scheduler.newQueue(1, new TokenBucket(50, 1))
+          def start = nanoTime()
+
+        when:
+          (0..<11).each { limited.submit({ executed << "limited" }, 1).get() }
+
+        then:
+          NANOSECONDS.toMillis(nanoTime() - start) >= 180
+          executed.size() == 11
+    }
+
+    def "should run server handlers on the workers"() {
+        given:
+          def sockets = connectedSockets()
+          def server = new FriendlyServerTemplate<String>(sockets[1], new StringSerializer())
+          def client = new FriendlyClientTemplate<String>(sockets[0], new StringSerializer())
+          def queue = scheduler.newQueue(1)
+
+        when:
+          def serverThread = Thread.start {
+              server.waitForRequestAndReply(queue.schedule { Message.ok(Thread.currentThread().name) })
+          }
+          def response = client.sendAndAwaitResponse(Message.ok("who"))
+          serverThread.join()
+
+        then:
+          response.data == "ffstp-fair-scheduler"
+
+        cleanup:
+          sockets*.close()
+    }
+
+    def "should reject tasks after closing"() {
+        given:
+          def queue = scheduler.newQueue(1)
+          scheduler.close()
+
+        when:
+          queue.submit({ "late" }, 1)
+
+        then:
+          thrown RejectedExecutionException
+    }
+}
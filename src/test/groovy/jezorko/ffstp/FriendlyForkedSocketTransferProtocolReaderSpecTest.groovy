@@ -94,7 +94,9 @@ class FriendlyForkedSocketTransferProtocolReaderSpecTest extends Specification {
           "oh"                                              | InvalidHeaderException        | { true }
           "FFS;NOOOoo-"                                     | MissingDataException          | { it.receivedData == asciiBytesOf("NOOOoo-") }
           "FFS;OK;NOOOoo-"                                  | MissingDataException          | { it.receivedData == asciiBytesOf("NOOOoo-") }
-          "FFS;OK;6;test-"                                  | MissingDataException          | { it.receivedData == null }
+          "FFS;OK;6;test-"                                  | MissingDataException          | { it.receivedData == null && !it.endOfStream }
+          ""                                                | MissingDataException          | { it.endOfStream }
+          "FF"                                              | MissingDataException          | { !it.endOfStream }
           "FFS;OK;1;test;"                                  | MessageTooLongException       | { true }
     }
 
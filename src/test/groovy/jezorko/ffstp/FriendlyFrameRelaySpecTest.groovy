@@ -0,0 +1,90 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.util.concurrent.PollingConditions
+
+import static jezorko.ffstp.TestUtils.startLocalServer
+
+@Timeout(10)
+class FriendlyFrameRelaySpecTest extends Specification {
+
+    def ordersBackend = startLocalServer { Message.ok("orders:" + it.data) }
+    def defaultBackend = startLocalServer { new Message<>(it.status, "default:" + it.data) }
+    FriendlyFrameRelay relay
+    Socket socket
+
+    void cleanup() {
+        socket?.close()
+        relay?.close()
+        ordersBackend.close()
+        defaultBackend.close()
+    }
+
+    def connect(InetSocketAddress defaultRoute, int bufferBytes = 1024) {
+        relay = new FriendlyFrameRelay(new InetSocketAddress(InetAddress.loopbackAddress, 0), [ORDERS: ordersBackend.address], defaultRoute, bufferBytes)
+        socket = new Socket(InetAddress.loopbackAddress, relay.address.port)
+        new FriendlyClientTemplate<String>(socket, new StringSerializer())
+    }
+
+    def "should route requests by status and relay the responses"() {
+        given:
+          def client = connect(defaultBackend.address)
+
+        when:
+          def orderResponse = client.sendAndAwaitResponse(new Message<>("ORDERS", "book"))
+          def otherResponse = client.sendAndAwaitResponse(new Message<>("PRICES", "book"))
+
+        then:
+          orderResponse.data == "orders:book"
+          otherResponse.status == "PRICES"
+          otherResponse.data == "default:book"
+          new PollingConditions(timeout: 5).eventually {
+              // counted once the write returns, which may happen after the client already got the response
+              assert relay.forwardedFrames == 4
+          }
+    }
+
+    def "should forward frames larger than the buffer unchanged"() {
+        given:
+          def client = connect(defaultBackend.address, 64)
+          def payload = (0..<50_000).collect { (char) ('a' as char) + it % 26 }.join()
+
+        when:
+          def response = client.sendAndAwaitResponse(new Message<>("ORDERS", payload))
+
+        then:
+          response.data == "orders:" + payload
+          new PollingConditions(timeout: 5).eventually {
+              assert relay.forwardedBytes > 200_000
+          }
+    }
+
+    def "should keep requests sent before the previous responses were read"() {
+        given:
+          connect(defaultBackend.address)
+          def template = new FriendlyTemplate<String>(socket, new StringSerializer())
+
+        when:
+          (0..<10).each { template.writeMessage(new Message<>(it % 2 ? "ORDERS" : "OTHER", "m" + it)) }
+          def responses = (0..<10).collect { template.readMessage().data }
+
+        then:
+          responses == (0..<10).collect { (it % 2 ? "orders:m" : "default:m") + it }
+    }
+
+    def "should answer requests without a route with an error"() {
+        given:
+          def client = connect(null)
+
+        when:
+          def response = client.sendAndAwaitResponse(new Message<>("PRICES", "book"))
+
+        then:
+          response.statusAsEnum == Status.ERROR_INVALID_STATUS
+
+        and:
+          client.sendAndAwaitResponse(new Message<>("ORDERS", "book")).data == "orders:book"
+    }
+}
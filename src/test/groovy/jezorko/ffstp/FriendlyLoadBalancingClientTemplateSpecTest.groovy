@@ -0,0 +1,98 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.exception.NoAvailableEndpointException
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+
+import static jezorko.ffstp.TestUtils.startLocalServer
+
+class FriendlyLoadBalancingClientTemplateSpecTest extends Specification {
+
+    def firstServer = startLocalServer { Message.ok("first") }
+    def secondServer = startLocalServer { Message.ok("second") }
+
+    void cleanup() {
+        firstServer.close()
+        secondServer.close()
+    }
+
+    def "should spread requests across all endpoints"() {
+        given:
+          def client = new FriendlyLoadBalancingClientTemplate<String>([firstServer.address, secondServer.address], new StringSerializer())
+
+        when:
+          def responses = (1..50).collect { client.sendAndAwaitResponse(Message.ok("hello")).data } as Set
+
+        then:
+          responses == ["first", "second"] as Set
+
+        cleanup:
+          client.close()
+    }
+
+    def "should eject a failing endpoint and keep routing to the healthy one"() {
+        given:
+          def client = new FriendlyLoadBalancingClientTemplate<String>([firstServer.address, secondServer.address], new StringSerializer(),
+                                                                       60_000, 60_000)
+
+        and:
+          firstServer.close()
+
+        when:
+          def responses = (1..20).collect {
+              try {
+                  client.sendAndAwaitResponse(Message.ok("hello")).data
+              } catch (RuntimeException ignored) {
+                  null
+              }
+          }
+
+        then:
+          responses.findAll { it != null }.every { it == "second" }
+          responses.count { it == null } <= 1
+          client.availableEndpointsAmount == 1
+
+        cleanup:
+          client.close()
+    }
+
+    def "should throw if all endpoints are ejected"() {
+        given:
+          firstServer.close()
+
+        and:
+          def client = new FriendlyLoadBalancingClientTemplate<String>([firstServer.address], new StringSerializer(), 60_000, 60_000)
+
+        when:
+          client.sendAndAwaitResponse(Message.ok("hello"))
+
+        then:
+          thrown NoAvailableEndpointException
+
+        cleanup:
+          client.close()
+    }
+
+    def "should bring an endpoint back after its backoff"() {
+        given:
+          def client = new FriendlyLoadBalancingClientTemplate<String>([firstServer.address], new StringSerializer(), 10, 10)
+
+        and:
+          firstServer.dropConnections()
+          try {
+              client.sendAndAwaitResponse(Message.ok("hello"))
+          } catch (RuntimeException ignored) {
+          }
+
+        when:
+          sleep 50
+          def response = client.sendAndAwaitResponse(Message.ok("hello"))
+
+        then:
+          response.data == "first"
+
+        cleanup:
+          client.close()
+    }
+
+}
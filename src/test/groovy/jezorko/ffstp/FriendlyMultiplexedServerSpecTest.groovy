@@ -0,0 +1,179 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.util.concurrent.PollingConditions
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS
+import static java.util.concurrent.TimeUnit.SECONDS
+
+@Timeout(10)
+class FriendlyMultiplexedServerSpecTest extends Specification {
+
+    def conditions = new PollingConditions(timeout: 5)
+    def sockets = []
+    FriendlyMultiplexedServer<String> server
+
+    void cleanup() {
+        sockets*.close()
+        server?.close()
+    }
+
+    def startServer(IdleConnectionPolicy policy = new IdleConnectionPolicy(256, 16, 64 * 1024, 10, SECONDS)) {
+        server = new FriendlyMultiplexedServer<String>(new InetSocketAddress(InetAddress.loopbackAddress, 0), new StringSerializer(), policy,
+                                                       { Message.ok(it.data.toUpperCase()) })
+    }
+
+    def connect() {
+        def socket = new Socket(InetAddress.loopbackAddress, server.address.port)
+        sockets << socket
+        socket
+    }
+
+    /**
+     * A connection closed with unread data is reset instead of being ended gracefully.
+     */
+    static boolean closedByServer(Socket socket) {
+        try {
+            return socket.inputStream.read() == -1
+        } catch (SocketException ignored) {
+            return true
+        }
+    }
+
+    def "should answer requests and release all buffers afterwards"() {
+        given:
+          startServer()
+          def client = new FriendlyClientTemplate<String>(connect(), new StringSerializer())
+
+        when:
+          def responses = ["hello", "there"].collect { client.sendAndAwaitResponse(Message.ok(it)) }
+
+        then:
+          responses*.data == ["HELLO", "THERE"]
+          conditions.eventually {
+              assert server.retainedBufferBytes == 0
+              assert server.pooledBufferBytes > 0
+          }
+    }
+
+    def "should answer requests sent before the previous responses were read"() {
+        given:
+          startServer()
+          def template = new FriendlyTemplate<String>(connect(), new StringSerializer())
+
+        when:
+          (0..<20).each { template.writeMessage(Message.ok("request " + it)) }
+          def responses = (0..<20).collect { template.readMessage() }
+
+        then:
+          responses*.data == (0..<20).collect { "REQUEST " + it }
+    }
+
+    def "should grow buffers for large frames and drop them afterwards"() {
+        given:
+          startServer(new IdleConnectionPolicy(64, 16, 1024 * 1024, 10, SECONDS))
+          def client = new FriendlyClientTemplate<String>(connect(), new StringSerializer())
+          def largeRequest = "x" * 100_000
+
+        when:
+          def response = client.sendAndAwaitResponse(Message.ok(largeRequest))
+
+        then:
+          response.data == largeRequest.toUpperCase()
+          conditions.eventually {
+              assert server.retainedBufferBytes == 0
+              assert server.pooledBufferBytes <= 16 * 64
+          }
+    }
+
+    def "should keep no buffers for idle connections"() {
+        given:
+          startServer()
+
+        when:
+          200.times { connect() }
+
+        then:
+          conditions.eventually {
+              assert server.connectionCount == 200
+          }
+          server.retainedBufferBytes == 0
+    }
+
+    def "should answer heartbeats and close silent connections"() {
+        given:
+          startServer(new IdleConnectionPolicy(256, 16, 64 * 1024, 300, MILLISECONDS))
+          def alive = new FriendlyClientTemplate<String>(connect(), new StringSerializer())
+          def silent = connect()
+
+        when:
+          def heartbeats = (0..<10).collect {
+              Thread.sleep(60)
+              alive.sendAndAwaitResponse(Message.heartbeat())
+          }
+
+        then:
+          heartbeats.every { it.statusAsEnum == Status.HEARTBEAT }
+          closedByServer(silent)
+          server.reapedCount == 1
+          alive.sendAndAwaitResponse(Message.ok("still here")).data == "STILL HERE"
+    }
+
+    def "should not close connections before a slowly read response is sent"() {
+        given:
+          def request = "x" * (4 * 1024 * 1024)
+          def responseFrameBytes = FriendlyForkedSocketTransferProtocolWriter.encodeFrame(Message.ok(new StringSerializer().serialize(request))).length
+          startServer(new IdleConnectionPolicy(256, 16, 16 * 1024 * 1024, 300, MILLISECONDS))
+          def socket = connect()
+          socket.receiveBufferSize = 64 * 1024
+          def template = new FriendlyTemplate<String>(socket, new StringSerializer())
+
+        when:
+          template.writeMessage(Message.ok(request))
+
+        and: "the response takes several idle timeouts to read, without sending anything"
+          def chunk = new byte[256 * 1024]
+          def readBytes = 0
+          def read = 0
+          while (readBytes < responseFrameBytes && read >= 0) {
+              Thread.sleep(50)
+              read = socket.inputStream.read(chunk, 0, Math.min(chunk.length, responseFrameBytes - readBytes))
+              readBytes += Math.max(read, 0)
+          }
+
+        then: "the connection may be closed once the server has written it all, but not earlier"
+          readBytes == responseFrameBytes
+          chunk[read - 1] == (byte) ';'
+    }
+
+    def "should close connections sending frames over the limit"() {
+        given:
+          startServer(new IdleConnectionPolicy(64, 16, 1024, 10, SECONDS))
+          def socket = connect()
+          def frame = FriendlyForkedSocketTransferProtocolWriter.encodeFrame(new Message<>("OK", new StringSerializer().serialize("x" * 1000)))
+
+        when: "the frame is written at once, as the server may close the connection after reading the header"
+          socket.outputStream.write(frame)
+
+        then:
+          closedByServer(socket)
+          conditions.eventually {
+              assert server.connectionCount == 0
+              assert server.retainedBufferBytes == 0
+          }
+    }
+
+    def "should close connections sending malformed frames"() {
+        given:
+          startServer()
+          def socket = connect()
+
+        when:
+          socket.outputStream.write("XYZ;OK;0;;".getBytes("US-ASCII"))
+
+        then:
+          closedByServer(socket)
+    }
+}
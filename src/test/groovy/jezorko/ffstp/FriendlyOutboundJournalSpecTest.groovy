@@ -0,0 +1,178 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.exception.SenderClosedException
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.nio.file.Files
+import java.util.concurrent.CopyOnWriteArrayList
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS
+import static java.util.concurrent.TimeUnit.SECONDS
+import static jezorko.ffstp.TestUtils.startLocalServer
+import static jezorko.ffstp.TestUtils.unusedAddress
+
+@Timeout(10)
+class FriendlyOutboundJournalSpecTest extends Specification {
+
+    def directory = Files.createTempDirectory("ffstp-journal")
+    def received = new CopyOnWriteArrayList<String>()
+    def server = startLocalServer { received << it.data; Message.ok("") }
+
+    void cleanup() {
+        server.close()
+        directory.toFile().deleteDir()
+    }
+
+    def journal(InetSocketAddress address, int segmentBytes = 4096) {
+        new FriendlyOutboundJournal<String>(address, new StringSerializer(), directory, "outbound", segmentBytes, 5, MILLISECONDS)
+    }
+
+    def segmentFiles() {
+        Files.list(directory).filter { it.fileName.toString().endsWith(".ffjournal") }.count()
+    }
+
+    def "should deliver enqueued messages in order"() {
+        given:
+          def journal = journal(server.address)
+
+        when:
+          def sequences = (0..<10).collect { journal.enqueue(Message.ok("message " + it)) }*.get(1, SECONDS)
+
+        then:
+          journal.awaitDelivery(5, SECONDS)
+          sequences == (1L..10L)
+          received == (0..<10).collect { "message " + it }
+          journal.pendingCount == 0
+
+        cleanup:
+          journal.close()
+    }
+
+    def "should keep messages on disk until a server becomes available"() {
+        given:
+          def offlineJournal = journal(unusedAddress())
+
+        when:
+          (0..<3).each { offlineJournal.enqueue(Message.ok("message " + it)).get(1, SECONDS) }
+          def pendingBeforeClose = offlineJournal.pendingCount
+          offlineJournal.close()
+
+        and:
+          def recoveredJournal = journal(server.address)
+
+        then:
+          pendingBeforeClose == 3
+          recoveredJournal.awaitDelivery(5, SECONDS)
+          received == ["message 0", "message 1", "message 2"]
+
+        when:
+          recoveredJournal.enqueue(Message.ok("message 3"))
+
+        then:
+          recoveredJournal.awaitDelivery(5, SECONDS)
+          received.last() == "message 3"
+
+        cleanup:
+          recoveredJournal.close()
+    }
+
+    def "should not deliver acknowledged messages again after reopening"() {
+        given:
+          def firstJournal = journal(server.address)
+          (0..<3).each { firstJournal.enqueue(Message.ok("message " + it)) }
+          firstJournal.awaitDelivery(5, SECONDS)
+          firstJournal.close()
+
+        when:
+          def secondJournal = journal(server.address)
+          def sequence = secondJournal.enqueue(Message.ok("message 3")).get(1, SECONDS)
+
+        then:
+          sequence == 4L
+          secondJournal.awaitDelivery(5, SECONDS)
+          received == ["message 0", "message 1", "message 2", "message 3"]
+
+        cleanup:
+          secondJournal.close()
+    }
+
+    def "should delete segments once all their messages are acknowledged"() {
+        given:
+          def journal = journal(server.address, 128)
+
+        when:
+          (0..<20).each { journal.enqueue(Message.ok("message " + it)) }
+
+        then:
+          journal.awaitDelivery(5, SECONDS)
+          received.size() == 20
+
+        when: "the segment prepared for the next rollover is removed as well"
+          journal.close()
+
+        then:
+          segmentFiles() == 1
+    }
+
+    def "should recover messages spread over many segments after rolling over"() {
+        given:
+          def offlineJournal = journal(unusedAddress(), 128)
+
+        when:
+          def sequences = (0..<30).collect { offlineJournal.enqueue(Message.ok("message " + it)) }*.get(1, SECONDS)
+          offlineJournal.close()
+
+        and:
+          def recoveredJournal = journal(server.address, 128)
+
+        then:
+          sequences == (1L..30L)
+          recoveredJournal.awaitDelivery(5, SECONDS)
+          received == (0..<30).collect { "message " + it }
+          recoveredJournal.enqueue(Message.ok("message 30")).get(1, SECONDS) == 31L
+
+        cleanup:
+          recoveredJournal.close()
+    }
+
+    def "should recover segments in the order of their messages rather than their file names"() {
+        given: "a producer created segment 2 while the sync thread was still creating the spare segment 1"
+          def serializer = new StringSerializer()
+          def segment = { int index, List<Long> sequences ->
+              def journalSegment = JournalSegment.create(directory.resolve(String.format("outbound-%06d.ffjournal", index)), 4096)
+              sequences.each {
+                  def message = new Message<byte[]>("OK", serializer.serialize("message " + it))
+                  journalSegment.append(it, FriendlyForkedSocketTransferProtocolWriter.encodeFrame(message))
+              }
+              journalSegment.force()
+          }
+          segment(0, [1L, 2L])
+          segment(2, [3L, 4L])
+          segment(1, [5L, 6L])
+
+        when:
+          def recoveredJournal = journal(server.address)
+
+        then:
+          recoveredJournal.awaitDelivery(5, SECONDS)
+          received == (1..6).collect { "message " + it }
+          recoveredJournal.enqueue(Message.ok("message 7")).get(1, SECONDS) == 7L
+
+        cleanup:
+          recoveredJournal.close()
+    }
+
+    def "should reject messages after closing"() {
+        given:
+          def journal = journal(server.address)
+          journal.close()
+
+        when:
+          journal.enqueue(Message.ok("too late"))
+
+        then:
+          thrown SenderClosedException
+    }
+}
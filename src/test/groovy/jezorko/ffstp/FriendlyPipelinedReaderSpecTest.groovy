@@ -0,0 +1,200 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.exception.MissingDataException
+import jezorko.ffstp.exception.ReaderClosedException
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CountDownLatch
+
+import static java.util.concurrent.Executors.newFixedThreadPool
+import static java.util.concurrent.TimeUnit.SECONDS
+import static jezorko.ffstp.TestUtils.connectedSockets
+
+@Timeout(10)
+class FriendlyPipelinedReaderSpecTest extends Specification {
+
+    /**
+     * Deserializes numbers only once all of them are being deserialized at the same time,
+     * and finishes them in the reverse order.
+     */
+    static class OverlappingStringSerializer implements Serializer<String> {
+        final delegate = new StringSerializer()
+        final CountDownLatch allStarted
+        final List<CountDownLatch> finished
+
+        OverlappingStringSerializer(int messages) {
+            allStarted = new CountDownLatch(messages)
+            finished = (0..<messages).collect { new CountDownLatch(1) }
+        }
+
+        @Override
+        byte[] serialize(String data) {
+            delegate.serialize(data)
+        }
+
+        @Override
+        def <Y extends String> Y deserialize(byte[] data, Class<Y> clazz) {
+            deserialize(data) as Y
+        }
+
+        @Override
+        String deserialize(byte[] data) {
+            def result = delegate.deserialize(data)
+            def index = result as int
+            allStarted.countDown()
+            assert allStarted.await(5, SECONDS): "messages were not deserialized in parallel"
+            if (index + 1 < finished.size()) {
+                assert finished[index + 1].await(5, SECONDS)
+            }
+            finished[index].countDown()
+            result
+        }
+    }
+
+    /**
+     * Never finishes deserializing until released.
+     */
+    static class BlockingStringSerializer implements Serializer<String> {
+        final delegate = new StringSerializer()
+        final release = new CountDownLatch(1)
+
+        @Override
+        byte[] serialize(String data) {
+            delegate.serialize(data)
+        }
+
+        @Override
+        def <Y extends String> Y deserialize(byte[] data, Class<Y> clazz) {
+            deserialize(data) as Y
+        }
+
+        @Override
+        String deserialize(byte[] data) {
+            release.await()
+            delegate.deserialize(data)
+        }
+    }
+
+    def sockets = connectedSockets()
+    def writer = new FriendlyTemplate<String>(sockets[0], new StringSerializer())
+    def executor = newFixedThreadPool(8)
+    def conditions = new PollingConditions(timeout: 5)
+
+    void cleanup() {
+        executor.shutdownNow()
+        sockets*.close()
+    }
+
+    def "should return messages in wire order although they are deserialized in parallel"() {
+        given:
+          def serializer = new OverlappingStringSerializer(8)
+          def reader = new FriendlyPipelinedReader<String>(new FriendlyTemplate<String>(sockets[1], serializer), executor, 8)
+
+        when:
+          (0..<8).each { writer.writeMessage(Message.ok(it as String)) }
+          def received = (0..<8).collect { reader.readMessage().data }
+
+        then: "the last message finished deserializing first, yet the first one is returned first"
+          received == (0..<8).collect { it as String }
+
+        cleanup:
+          reader.close()
+    }
+
+    def "should rethrow decoding failures after all previously decoded messages"() {
+        given:
+          def reader = new FriendlyPipelinedReader<String>(new FriendlyTemplate<String>(sockets[1], new StringSerializer()), executor, 8)
+
+        when:
+          writer.writeMessage(Message.ok("1"))
+          writer.close()
+
+        then:
+          reader.readMessage().data == "1"
+
+        when:
+          reader.readMessage()
+
+        then:
+          thrown MissingDataException
+
+        when:
+          reader.readMessage()
+
+        then:
+          thrown MissingDataException
+
+        cleanup:
+          reader.close()
+    }
+
+    def "should wake up threads waiting for a message when closed"() {
+        given:
+          def reader = new FriendlyPipelinedReader<String>(new FriendlyTemplate<String>(sockets[1], new StringSerializer()), executor, 8)
+          def failures = [].asSynchronized()
+          def readingThreads = (0..<3).collect {
+              Thread.start {
+                  try {
+                      reader.readMessage()
+                  } catch (ReaderClosedException exception) {
+                      failures << exception
+                  }
+              }
+          }
+          conditions.eventually {
+              assert readingThreads.every { it.state == Thread.State.WAITING }
+          }
+
+        when:
+          reader.close()
+          readingThreads*.join()
+
+        then:
+          failures.size() == 3
+
+        when:
+          reader.readMessage()
+
+        then:
+          thrown ReaderClosedException
+    }
+
+    def "should fail messages still being deserialized when closed"() {
+        given:
+          def serializer = new BlockingStringSerializer()
+          def reader = new FriendlyPipelinedReader<String>(new FriendlyTemplate<String>(sockets[1], serializer), executor, 8)
+          def failure = null
+          def readingThread = Thread.start {
+              try {
+                  reader.readMessage()
+              } catch (ReaderClosedException exception) {
+                  failure = exception
+              }
+          }
+
+        when:
+          writer.writeMessage(Message.ok("taken"))
+          writer.writeMessage(Message.ok("queued"))
+          conditions.eventually {
+              assert readingThread.state == Thread.State.WAITING
+          }
+          reader.close()
+          readingThread.join()
+
+        then:
+          failure instanceof ReaderClosedException
+
+        when:
+          reader.readMessage()
+
+        then:
+          thrown ReaderClosedException
+
+        cleanup:
+          serializer.release.countDown()
+    }
+
+}
@@ -0,0 +1,116 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.exception.SenderClosedException
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.lang.Unroll
+
+import static jezorko.ffstp.TestUtils.connectedSockets
+
+@Timeout(10)
+class FriendlyPrioritySenderSpecTest extends Specification {
+
+    def sockets = connectedSockets()
+    def senderTemplate = new FriendlyTemplate<String>(sockets[0], new StringSerializer())
+    def receiverTemplate = new FriendlyTemplate<String>(sockets[1], new StringSerializer())
+    def reader = new FriendlyReassemblingReader<String>(receiverTemplate)
+
+    void cleanup() {
+        senderTemplate.close()
+        receiverTemplate.close()
+    }
+
+    def "should let urgent messages overtake a large message"() {
+        given:
+          sockets[0].sendBufferSize = 8192
+          def sender = new FriendlyPrioritySender<String>(senderTemplate, 1024, "DIE")
+          def bulk = "x" * 2_000_000
+
+        when:
+          def bulkSent = sender.send(Message.ok(bulk))
+          def urgentSent = sender.send(Message.die("stop"))
+          def first = reader.readMessage()
+          def second = reader.readMessage()
+
+        then:
+          first.statusAsEnum == Status.DIE
+          first.data == "stop"
+          second.statusAsEnum == Status.OK
+          second.data == bulk
+          urgentSent.get() == null
+          bulkSent.get() == null
+
+        cleanup:
+          sender.close()
+    }
+
+    def "should split large messages into fragments"() {
+        given:
+          def sender = new FriendlyPrioritySender<String>(senderTemplate, 10)
+
+        when:
+          sender.send(Message.ok("a longer message"))
+          def frames = (0..<4).collect { receiverTemplate.readMessage() }
+
+        then:
+          frames*.status == ["FRAGMENT", "FRAGMENT", "FRAGMENT", "LAST_FRAGMENT:OK"]
+          frames*.dataBytesLength.sum() == new StringSerializer().serialize("a longer message").length
+
+        cleanup:
+          sender.close()
+    }
+
+    def "should keep the order of messages in the same lane"() {
+        given:
+          def sender = new FriendlyPrioritySender<String>(senderTemplate, 16, "ERROR")
+
+        when:
+          def messages = (0..<20).collect { it % 3 == 0 ? Message.ok("bulk message number " + it) : Message.ok("m" + it) }
+          messages.each { sender.send(it) }
+          def received = (0..<20).collect { reader.readMessage() }
+
+        then:
+          received*.data == messages*.data
+
+        cleanup:
+          sender.close()
+    }
+
+    @Unroll
+    def "should reject messages with the reserved status #status"() {
+        given:
+          def sender = new FriendlyPrioritySender<String>(senderTemplate, 1024)
+
+        when:
+          sender.send(new Message<String>(status, "payload"))
+
+        then:
+          thrown IllegalArgumentException
+
+        cleanup:
+          sender.close()
+
+        where:
+          status << ["FRAGMENT", "LAST_FRAGMENT:OK"]
+    }
+
+    def "should write queued messages on close and reject new ones"() {
+        given:
+          def sender = new FriendlyPrioritySender<String>(senderTemplate, 8, "DIE")
+          def sent = [sender.send(Message.ok("bulk message")), sender.send(Message.die())]
+
+        when:
+          sender.close()
+
+        then:
+          sent.every { it.done && !it.completedExceptionally }
+          (0..<2).collect { reader.readMessage().statusAsEnum } as Set == [Status.OK, Status.DIE] as Set
+
+        when:
+          sender.send(Message.ok("late"))
+
+        then:
+          thrown SenderClosedException
+    }
+}
@@ -0,0 +1,162 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+
+import static jezorko.ffstp.SlowSubscriberPolicy.CONFLATE
+import static jezorko.ffstp.SlowSubscriberPolicy.DISCONNECT
+import static jezorko.ffstp.SlowSubscriberPolicy.DROP_OLDEST
+import static jezorko.ffstp.TestUtils.connectedSockets
+
+@Timeout(10)
+class FriendlyPublisherSpecTest extends Specification {
+
+    def socketPairs = []
+
+    void cleanup() {
+        socketPairs.flatten()*.close()
+    }
+
+    def subscriberPair() {
+        def sockets = connectedSockets()
+        socketPairs << sockets
+        [new FriendlyTemplate<String>(sockets[0], new StringSerializer()), new FriendlyTemplate<String>(sockets[1], new StringSerializer())]
+    }
+
+    /**
+     * Runs the queued write tasks only when asked to, which makes every subscriber slow until then.
+     */
+    static class ManualExecutor implements Executor {
+        final List<Runnable> tasks = []
+
+        @Override
+        void execute(Runnable task) {
+            tasks << task
+        }
+
+        void runAll() {
+            while (tasks) {
+                tasks.remove(0).run()
+            }
+        }
+    }
+
+    static class CountingSerializer implements Serializer<String> {
+        final StringSerializer delegate = new StringSerializer()
+        int serializedCount
+
+        @Override
+        byte[] serialize(String data) {
+            ++serializedCount
+            delegate.serialize(data)
+        }
+
+        @Override
+        def <Y extends String> Y deserialize(byte[] data, Class<Y> clazz) {
+            delegate.deserialize(data, clazz)
+        }
+    }
+
+    def "should serialize a broadcast message once for all subscribers"() {
+        given:
+          def serializer = new CountingSerializer()
+          def publisher = new FriendlyPublisher<String>(serializer, Executors.newFixedThreadPool(4))
+          def pairs = (0..<10).collect { subscriberPair() }
+          pairs.each { publisher.subscribe("news", it[0], DROP_OLDEST, 16) }
+          def outsider = subscriberPair()
+          publisher.subscribe("sports", outsider[0], DROP_OLDEST, 16)
+
+        when:
+          def queued = publisher.publish("news", Message.ok("extra"))
+
+        then:
+          serializer.serializedCount == 1
+          queued == 10
+          pairs.every { it[1].readMessage().data == "extra" }
+          publisher.getSubscriberCount("news") == 10
+    }
+
+    def "should keep the order of published messages"() {
+        given:
+          def publisher = new FriendlyPublisher<String>(new StringSerializer(), Executors.newFixedThreadPool(4))
+          def pair = subscriberPair()
+          publisher.subscribe("news", pair[0], DROP_OLDEST, 1000)
+
+        when:
+          (0..<100).each { publisher.publish("news", Message.ok("m" + it)) }
+
+        then:
+          (0..<100).collect { pair[1].readMessage().data } == (0..<100).collect { "m" + it }
+    }
+
+    def "should drop the oldest messages of a slow subscriber"() {
+        given:
+          def executor = new ManualExecutor()
+          def publisher = new FriendlyPublisher<String>(new StringSerializer(), executor)
+          def pair = subscriberPair()
+          def subscription = publisher.subscribe("news", pair[0], DROP_OLDEST, 2)
+
+        when:
+          (1..5).each { publisher.publish("news", Message.ok("m" + it)) }
+          executor.runAll()
+
+        then:
+          subscription.droppedCount == 3
+          [pair[1].readMessage().data, pair[1].readMessage().data] == ["m4", "m5"]
+    }
+
+    def "should conflate the messages of a slow subscriber to the latest one"() {
+        given:
+          def executor = new ManualExecutor()
+          def publisher = new FriendlyPublisher<String>(new StringSerializer(), executor)
+          def pair = subscriberPair()
+          def subscription = publisher.subscribe("news", pair[0], CONFLATE, 3)
+
+        when:
+          (1..4).each { publisher.publish("news", Message.ok("m" + it)) }
+          executor.runAll()
+          publisher.publish("news", Message.ok("m5"))
+          executor.runAll()
+
+        then:
+          subscription.droppedCount == 3
+          [pair[1].readMessage().data, pair[1].readMessage().data] == ["m4", "m5"]
+    }
+
+    def "should disconnect a slow subscriber"() {
+        given:
+          def executor = new ManualExecutor()
+          def publisher = new FriendlyPublisher<String>(new StringSerializer(), executor)
+          def pair = subscriberPair()
+          def subscription = publisher.subscribe("news", pair[0], DISCONNECT, 2)
+
+        when:
+          def queued = (1..3).collect { publisher.publish("news", Message.ok("m" + it)) }
+          executor.runAll()
+
+        then:
+          queued == [1, 1, 0]
+          subscription.closed
+          publisher.getSubscriberCount("news") == 0
+          socketPairs[0][0].closed
+          socketPairs[0][1].inputStream.read() == -1
+    }
+
+    def "should stop writing to closed subscriptions"() {
+        given:
+          def publisher = new FriendlyPublisher<String>(new StringSerializer(), Executors.newFixedThreadPool(1))
+          def pair = subscriberPair()
+          def subscription = publisher.subscribe("news", pair[0], DROP_OLDEST, 16)
+
+        when:
+          subscription.close()
+
+        then:
+          publisher.publish("news", Message.ok("ignored")) == 0
+          publisher.getSubscriberCount("news") == 0
+    }
+}
@@ -0,0 +1,135 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import static jezorko.ffstp.TestUtils.asciiBytesOf
+import static jezorko.ffstp.TestUtils.startLocalServer
+
+class FriendlyResponseCacheSpecTest extends Specification {
+
+    static key(String status, String payload) {
+        new SerializedRequestKey(status, asciiBytesOf(payload))
+    }
+
+    def "should return cached frame only for a byte-identical request"() {
+        given:
+          def cache = new FriendlyResponseCache(1024, 60_000, "OK")
+          def frame = asciiBytesOf("FFS;OK;1;x;")
+
+        when:
+          cache.put(key("OK", "abc"), frame)
+
+        then:
+          cache.get(key("OK", "abc")) == frame
+          cache.get(key("OK", "abd")) == null
+          cache.get(key("ERROR", "abc")) == null
+          cache.hitCount == 1
+          cache.missCount == 2
+    }
+
+    def "should expire entries after their time to live"() {
+        given:
+          def cache = new FriendlyResponseCache(1024, 10, "OK")
+          cache.put(key("OK", "abc"), asciiBytesOf("FFS;OK;0;;"))
+
+        when:
+          sleep 30
+
+        then:
+          cache.get(key("OK", "abc")) == null
+          cache.size == 0
+    }
+
+    def "should stay within the size limit and keep frequently requested entries"() {
+        given:
+          def cache = new FriendlyResponseCache(100, 60_000, "OK")
+          def frame = new byte[40]
+
+        and:
+          3.times { cache.get(key("OK", "popular")) }
+          cache.put(key("OK", "popular"), frame)
+
+        when:
+          (1..10).each {
+              cache.get(key("OK", "one-off-$it"))
+              cache.put(key("OK", "one-off-$it"), frame)
+          }
+
+        then:
+          cache.sizeInBytes <= 100
+          cache.get(key("OK", "popular")) == frame
+    }
+
+    def "should not call the handler for repeated cacheable requests"() {
+        given:
+          def handlerCalls = new AtomicInteger()
+          def cache = new FriendlyResponseCache(1024, 60_000, "OK")
+          def server = startLocalServer({ Message.ok("response " + handlerCalls.incrementAndGet()) }, cache)
+          def socket = new Socket(server.address.address, server.address.port)
+          def client = new FriendlyClientTemplate<String>(socket, new StringSerializer())
+
+        when:
+          def responses = (1..5).collect { client.sendAndAwaitResponse(Message.ok("same")).data }
+
+        and:
+          def uncachedResponses = (1..2).collect { client.sendAndAwaitResponse(Message.error("same")).data }
+
+        then:
+          responses.every { it == "response 1" }
+          uncachedResponses == ["response 2", "response 3"]
+          cache.hitCount == 4
+          cache.missCount == 1
+
+        cleanup:
+          client.close()
+          server.close()
+    }
+
+    def "should not cache error responses"() {
+        given:
+          def handlerCalls = new AtomicInteger()
+          def cache = new FriendlyResponseCache(1024, 60_000, "OK")
+          def server = startLocalServer({
+              handlerCalls.incrementAndGet() == 1 ? new Message<String>(errorStatus, "try again") : Message.ok("done")
+          }, cache)
+          def socket = new Socket(server.address.address, server.address.port)
+          def client = new FriendlyClientTemplate<String>(socket, new StringSerializer())
+
+        when:
+          def responses = (1..3).collect { client.sendAndAwaitResponse(Message.ok("same")) }
+
+        then:
+          responses*.status == [errorStatus, "OK", "OK"]
+          handlerCalls.get() == 2
+          cache.size == 1
+          cache.hitCount == 1
+
+        cleanup:
+          client.close()
+          server.close()
+
+        where:
+          errorStatus << ["ERROR", "ERROR_INVALID_STATUS", "ERROR_INVALID_PAYLOAD"]
+    }
+
+    def "should cache responses of any status but the error ones"() {
+        given:
+          def cache = new FriendlyResponseCache(1024, 60_000, "OK")
+
+        expect:
+          cache.isCacheableResponse(status) == cacheable
+
+        where:
+          status                  | cacheable
+          "OK"                    | true
+          "END_OF_STREAM"         | true
+          "CUSTOM"                | true
+          "ERROR"                 | false
+          "error"                 | false
+          "ERROR_INVALID_PAYLOAD" | false
+    }
+
+}
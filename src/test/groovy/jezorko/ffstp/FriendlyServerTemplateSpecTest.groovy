@@ -0,0 +1,118 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.stream.Stream
+
+import static jezorko.ffstp.TestUtils.connectedSockets
+
+@Timeout(10)
+class FriendlyServerTemplateSpecTest extends Specification {
+
+    def sockets = connectedSockets()
+    def client = new FriendlyClientTemplate<String>(sockets[0], new StringSerializer())
+    def server = new FriendlyServerTemplate<String>(sockets[1], new StringSerializer())
+
+    void cleanup() {
+        client.close()
+        server.close()
+    }
+
+    def "should stream all replies to a single request"() {
+        given:
+          def serverThread = Thread.start {
+              server.waitForRequestAndStreamReplies { request ->
+                  Stream.of("a", "b", "c").map { Message.ok(request.data + it) }
+              }
+          }
+
+        when:
+          def responses = client.sendAndStreamResponses(Message.ok("x"))
+                                .collect { it.data }
+                                .toArray()
+
+        then:
+          responses == ["xa", "xb", "xc"] as Object[]
+
+        cleanup:
+          serverThread.join()
+    }
+
+    def "should end the stream right away if the handler has no replies"() {
+        given:
+          def serverThread = Thread.start {
+              server.waitForRequestAndStreamReplies { Stream.empty() }
+          }
+
+        when:
+          def responses = client.sendAndStreamResponses(Message.ok("x")).count()
+
+        then:
+          responses == 0
+
+        and: "the connection can be used for further requests"
+          Thread.start { server.waitForRequestAndReply { Message.ok("single") } }
+          client.sendAndAwaitResponse(Message.ok("y")).data == "single"
+
+        cleanup:
+          serverThread.join()
+    }
+
+    def "should send an error and end the stream if the handler fails mid-stream"() {
+        given:
+          def handlerFailure = null
+          def serverThread = Thread.start {
+              try {
+                  server.waitForRequestAndStreamReplies { request ->
+                      Stream.of("a", "b").map { it == "b" ? { throw new IllegalStateException("broken") }() : Message.ok(it) }
+                  }
+              } catch (IllegalStateException exception) {
+                  handlerFailure = exception
+              }
+          }
+
+        when:
+          def responses = client.sendAndStreamResponses(Message.ok("x"))
+                                .collect { it.status }
+                                .toArray()
+          serverThread.join()
+
+        then:
+          responses == ["OK", "ERROR"] as Object[]
+          handlerFailure.message == "broken"
+
+        and: "the connection can be used for further requests"
+          Thread.start { server.waitForRequestAndReply { Message.ok("single") } }
+          client.sendAndAwaitResponse(Message.ok("y")).data == "single"
+    }
+
+    def "should send an error and end the stream if the handler produces an end of stream"() {
+        given:
+          def handlerFailure = null
+          def serverThread = Thread.start {
+              try {
+                  server.waitForRequestAndStreamReplies { request ->
+                      Stream.of(Message.ok("a"), new Message<String>("END_OF_STREAM", null), Message.ok("b"))
+                  }
+              } catch (IllegalStateException exception) {
+                  handlerFailure = exception
+              }
+          }
+
+        when:
+          def responses = client.sendAndStreamResponses(Message.ok("x"))
+                                .collect { it.status }
+                                .toArray()
+          serverThread.join()
+
+        then:
+          responses == ["OK", "ERROR"] as Object[]
+          handlerFailure != null
+
+        and: "the connection can be used for further requests"
+          Thread.start { server.waitForRequestAndReply { Message.ok("single") } }
+          client.sendAndAwaitResponse(Message.ok("y")).data == "single"
+    }
+}
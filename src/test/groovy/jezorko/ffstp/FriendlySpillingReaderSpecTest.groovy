@@ -0,0 +1,133 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.exception.MissingDataException
+import jezorko.ffstp.serializers.ByteArraySerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.nio.file.Files
+
+import static jezorko.ffstp.TestUtils.connectedSockets
+
+@Timeout(10)
+class FriendlySpillingReaderSpecTest extends Specification {
+
+    def directory = Files.createTempDirectory("ffstp-spill")
+    def sockets = connectedSockets()
+    def sharedBudget = new MemoryBudget(1000)
+    def spillPolicy = new SpillPolicy(500, 800, sharedBudget, directory)
+    def senderTemplate = new FriendlyTemplate<ByteArraySerializer.ByteArray>(sockets[0], new ByteArraySerializer())
+    def reader = new FriendlySpillingReader<ByteArraySerializer.ByteArray>(new FriendlyTemplate<>(sockets[1], new ByteArraySerializer()),
+                                                                             spillPolicy)
+
+    void cleanup() {
+        sockets*.close()
+        directory.toFile().deleteDir()
+    }
+
+    def send(int length) {
+        def payload = (0..<length).collect { (byte) it } as byte[]
+        senderTemplate.writeMessage(Message.ok(new ByteArraySerializer.ByteArray(payload)))
+        payload
+    }
+
+    def spilledFiles() {
+        Files.list(directory).count()
+    }
+
+    def "should keep small payloads in memory within the budgets"() {
+        given:
+          def payload = send(300)
+
+        when:
+          def message = reader.readMessage()
+
+        then:
+          !message.spilled
+          message.statusAsEnum == Status.OK
+          message.toByteArray() == payload
+          reader.reservedBytes == 300
+          sharedBudget.reservedBytes == 300
+
+        when:
+          message.close()
+
+        then:
+          reader.reservedBytes == 0
+          sharedBudget.reservedBytes == 0
+    }
+
+    def "should spill payloads over the threshold to a file"() {
+        given:
+          def payload = send(100_000)
+
+        when:
+          def message = reader.readMessage()
+
+        then:
+          message.spilled
+          message.dataBytesLength == 100_000
+          message.toByteArray() == payload
+          spilledFiles() == 1
+          sharedBudget.reservedBytes == 0
+
+        when:
+          message.close()
+
+        then:
+          spilledFiles() == 0
+    }
+
+    def "should spill payloads once the connection budget is used up"() {
+        given:
+          def payloads = (0..<3).collect { send(400) }
+
+        when:
+          def messages = (0..<3).collect { reader.readMessage() }
+
+        then:
+          messages*.spilled == [false, false, true]
+          messages*.toByteArray() == payloads
+          reader.reservedBytes == 800
+
+        cleanup:
+          messages*.close()
+    }
+
+    def "should spill payloads once the shared budget is used up"() {
+        given:
+          def otherSockets = connectedSockets()
+          def otherSender = new FriendlyTemplate<ByteArraySerializer.ByteArray>(otherSockets[0], new ByteArraySerializer())
+          def otherReader = new FriendlySpillingReader<ByteArraySerializer.ByteArray>(new FriendlyTemplate<>(otherSockets[1], new ByteArraySerializer()),
+                                                                                        spillPolicy)
+          send(400)
+          send(400)
+          otherSender.writeMessage(Message.ok(new ByteArraySerializer.ByteArray(new byte[400])))
+
+        when:
+          def messages = [reader.readMessage(), reader.readMessage(), otherReader.readMessage()]
+
+        then:
+          messages*.spilled == [false, false, true]
+          sharedBudget.reservedBytes == 800
+          otherReader.reservedBytes == 0
+
+        cleanup:
+          messages*.close()
+          otherSockets*.close()
+    }
+
+    def "should not trust the declared payload length"() {
+        given:
+          sockets[0].outputStream.write("FFS;OK;2000000000;abc".getBytes("US-ASCII"))
+          sockets[0].shutdownOutput()
+
+        when:
+          reader.readMessage()
+
+        then:
+          thrown MissingDataException
+          spilledFiles() == 0
+          sharedBudget.reservedBytes == 0
+    }
+}
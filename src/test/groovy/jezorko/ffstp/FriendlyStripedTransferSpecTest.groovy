@@ -0,0 +1,123 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.exception.InvalidSegmentException
+import jezorko.ffstp.exception.MissingDataException
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.nio.ByteBuffer
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+import static jezorko.ffstp.TestUtils.connectedSockets
+
+@Timeout(10)
+class FriendlyStripedTransferSpecTest extends Specification {
+
+    def socketPairs = (0..<4).collect { connectedSockets() }
+    def framesPerStripe = (0..<4).collect { new AtomicInteger() }
+    def sender = new FriendlyStripedSender<String>(socketPairs.collect { new FriendlyTemplate<String>(it[0], new StringSerializer()) },
+                                                   1024, Executors.newFixedThreadPool(3))
+    def receiver = new FriendlyStripedReceiver<String>((0..<4).collect { stripe ->
+        new FriendlyTemplate<String>(socketPairs[stripe][1], new StringSerializer(), { direction, frames, offset, length ->
+            framesPerStripe[stripe].incrementAndGet()
+        } as FrameListener)
+    })
+
+    void cleanup() {
+        receiver.close()
+        socketPairs.flatten()*.close()
+    }
+
+    static payload(int length, int seed = 0) {
+        (0..<length).collect { (char) ('a' as char) + (it + seed) % 26 }.join()
+    }
+
+    def "should split a large message across all connections and put it back together"() {
+        given:
+          def largePayload = payload(100_000)
+
+        when:
+          sender.send(new Message<>("BLOB", largePayload))
+          def received = receiver.readMessage()
+
+        then:
+          received.status == "BLOB"
+          received.data == largePayload
+          framesPerStripe.every { it.get() > 0 }
+          framesPerStripe*.get().sum() == Math.ceil(new StringSerializer().serialize(largePayload).length / 1024)
+    }
+
+    def "should send small messages unchanged through the first connection"() {
+        when:
+          sender.send(Message.ok("small"))
+          def received = receiver.readMessage()
+
+        then:
+          received.data == "small"
+          framesPerStripe*.get() == [1, 0, 0, 0]
+    }
+
+    def "should reject messages with a status reserved for segments"() {
+        when:
+          sender.send(new Message<>("SEGMENT:OK", "small"))
+
+        then:
+          thrown IllegalArgumentException
+          framesPerStripe*.get() == [0, 0, 0, 0]
+    }
+
+    def "should put back together messages sent concurrently"() {
+        given:
+          def payloads = (0..<8).collect { payload(20_000 + it, it) }
+
+        when:
+          def threads = payloads.collect { data -> Thread.start { sender.send(Message.ok(data)) } }
+          def received = (0..<8).collect { receiver.readMessage().data }
+          threads*.join()
+
+        then:
+          received as Set == payloads as Set
+    }
+
+    def "should fail reading once a connection fails"() {
+        when:
+          socketPairs[2][0].close()
+          receiver.readMessage()
+
+        then:
+          thrown MissingDataException
+    }
+
+    static byte[] segment(long transferId, int dataLength, int offset, int length) {
+        ByteBuffer.allocate(FriendlyStripedSender.SEGMENT_HEADER_BYTES + length)
+                  .putLong(transferId)
+                  .putInt(dataLength)
+                  .putInt(offset)
+                  .array()
+    }
+
+    def "should fail reading once a malformed segment arrives"() {
+        given:
+          def rawStripe = new FriendlyTemplate<String>(socketPairs[1][0], new StringSerializer())
+
+        when:
+          segments.each { rawStripe.writeSerializedMessage(new Message<byte[]>("SEGMENT:BLOB", it)) }
+          receiver.readMessage()
+
+        then:
+          thrown InvalidSegmentException
+
+        where:
+          segments << [
+                  [new byte[5]],
+                  [segment(1, 100, 90, 20)],
+                  [segment(1, -1, 0, 0)],
+                  [segment(1, 100, -10, 10)],
+                  [segment(1, 100, 0, 10), segment(1, 100, 0, 10)],
+                  [segment(1, 100, 0, 10), segment(1, 100, 5, 10)],
+                  [segment(1, 100, 0, 10), segment(1, 200, 10, 10)]
+          ]
+    }
+}
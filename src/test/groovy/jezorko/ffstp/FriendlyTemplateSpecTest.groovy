@@ -2,8 +2,11 @@ package jezorko.ffstp
 
 import jezorko.ffstp.exception.ProtocolReaderInitializationException
 import jezorko.ffstp.exception.ProtocolWriterInitializationException
+import jezorko.ffstp.serializers.StringSerializer
 import spock.lang.Specification
 
+import static jezorko.ffstp.TestUtils.mockAsciiStream
+
 class FriendlyTemplateSpecTest extends Specification {
 
     def "should throw if writer initialization fails"() {
@@ -37,4 +40,68 @@ class FriendlyTemplateSpecTest extends Specification {
           thrown ProtocolReaderInitializationException
     }
 
+    def "should deserialize lazily read messages only once and only when their data is requested"() {
+        given:
+          def serializer = Mock Serializer
+          def template = templateReading(mockAsciiStream("FFS;OK;5;first;FFS;DIE;6;second;"), serializer)
+
+        when:
+          def first = template.readMessageLazily()
+          def second = template.readMessageLazily()
+
+        then:
+          first.status == "OK"
+          second.status == "DIE"
+          second.dataBytesLength == 6
+          0 * serializer._
+
+        when:
+          def data = [second.data, second.data]
+
+        then:
+          1 * serializer.deserialize({ new String(it as byte[], "US-ASCII") == "second" }) >> "deserialized"
+          0 * serializer._
+          data == ["deserialized", "deserialized"]
+    }
+
+    def "should skip payloads of incoming messages straight from the socket"() {
+        given:
+          def serializer = new StringSerializer()
+          def frames = [new Message<>("IGNORED", "first"), Message.ok("second"), new Message<>("ALSO_IGNORED", "x"), Message.ok("third")]
+                  .collect { FriendlyForkedSocketTransferProtocolWriter.encodeFrame(new Message<>(it.status, serializer.serialize(it.data))) }
+          def template = templateReading(new ByteArrayInputStream(frames.collectMany { it as List } as byte[]), serializer)
+
+        when:
+          def first = template.readIncomingMessage()
+          first.skip()
+          def second = template.readIncomingMessage()
+
+        then:
+          first.status == "IGNORED"
+          first.dataBytesLength == serializer.serialize("first").length
+          second.read() == Message.ok("second")
+
+        when: "a payload is not consumed before reading the next message"
+          def third = template.readIncomingMessage()
+          def fourth = template.readMessage()
+
+        then:
+          third.status == "ALSO_IGNORED"
+          fourth == Message.ok("third")
+
+        when:
+          third.read()
+
+        then:
+          thrown IllegalStateException
+    }
+
+    private FriendlyTemplate<String> templateReading(InputStream data, Serializer<String> serializer) {
+        def socket = Stub(Socket) {
+            getOutputStream() >> new ByteArrayOutputStream()
+            getInputStream() >> data
+        }
+        new FriendlyTemplate<String>(socket, serializer)
+    }
+
 }
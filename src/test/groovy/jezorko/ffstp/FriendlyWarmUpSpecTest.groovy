@@ -0,0 +1,70 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+
+@Timeout(10)
+class FriendlyWarmUpSpecTest extends Specification {
+
+    static class CountingSerializer implements Serializer<String> {
+        final StringSerializer delegate = new StringSerializer()
+        final List<String> deserialized = []
+        int serializedCount
+
+        @Override
+        byte[] serialize(String data) {
+            ++serializedCount
+            delegate.serialize(data)
+        }
+
+        @Override
+        def <Y extends String> Y deserialize(byte[] data, Class<Y> clazz) {
+            def result = delegate.deserialize(data, clazz)
+            deserialized << result
+            result
+        }
+    }
+
+    def "should send every sample message through the serializer in both directions"() {
+        given:
+          def serializer = new CountingSerializer()
+
+        when:
+          FriendlyWarmUp.warmUp(serializer, String, [Message.ok("small"), new Message<String>("GET", "x" * 10_000)], 10)
+
+        then: "a request, its echoed response and an allocation-free read per iteration"
+          serializer.serializedCount == 3 * 2 * 10
+          serializer.deserialized.size() == 2 * 2 * 10
+          serializer.deserialized.toSet() == ["small", "x" * 10_000] as Set
+    }
+
+    def "should use the simple deserialization method without a message class"() {
+        when:
+          FriendlyWarmUp.warmUp(new StringSerializer(), [Message.ok("small")], 10)
+
+        then:
+          noExceptionThrown()
+    }
+
+    def "should warm up with the built-in serializers"() {
+        when:
+          FriendlyWarmUp.warmUp(10)
+
+        then:
+          noExceptionThrown()
+    }
+
+    def "should reject invalid arguments"() {
+        when:
+          FriendlyWarmUp.warmUp(new StringSerializer(), samples, iterations)
+
+        then:
+          thrown IllegalArgumentException
+
+        where:
+          samples             | iterations
+          []                  | 10
+          [Message.ok("one")] | -1
+    }
+}
@@ -0,0 +1,142 @@
+package jezorko.ffstp
+
+import groovy.transform.CompileStatic
+import jezorko.ffstp.exception.InvalidMessageLengthException
+import jezorko.ffstp.exception.MessageTooLongException
+import jezorko.ffstp.exception.MissingDataException
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.lang.management.ManagementFactory
+
+import static jezorko.ffstp.Status.OK
+import static jezorko.ffstp.Status.UNKNOWN
+import static jezorko.ffstp.TestUtils.asciiBytesOf
+import static jezorko.ffstp.TestUtils.mockAsciiStream
+
+class MessageHolderSpecTest extends Specification {
+
+    @Unroll
+    "should read '#message' into the holder the same way as into a message"() {
+        given:
+          def expectedMessage = new FriendlyForkedSocketTransferProtocolReader(mockAsciiStream(message)).readMessageRethrowErrors()
+          def reader = new FriendlyForkedSocketTransferProtocolReader(mockAsciiStream(message))
+          def holder = new MessageHolder()
+
+        when:
+          reader.readMessageRethrowErrors(holder)
+
+        then:
+          holder.status == expectedMessage.status
+          holder.hasStatus(expectedMessage.status)
+          holder.statusAsEnum == expectedStatus
+          holder.payloadLength == expectedMessage.data.length
+          holder.toMessage().status == expectedMessage.status
+          holder.toMessage().data == expectedMessage.data
+
+        where:
+          message                                  | expectedStatus
+          "FFS;;0;;"                               | UNKNOWN
+          "FFS;OK;4;test;"                         | OK
+          "FFS;ok;4;test;"                         | OK
+          "FFS;OKAY;4;test;"                       | UNKNOWN
+          "FFS;ERROR_INVALID_PAYLOAD;2;):;"        | Status.ERROR_INVALID_PAYLOAD
+          "FFS;A_VERY_LONG_CUSTOM_STATUS_NAME_THAT_EXCEEDS_THE_INITIAL_CAPACITY;1;x;" | UNKNOWN
+    }
+
+    def "should reuse the buffers of the holder between reads"() {
+        given:
+          def reader = new FriendlyForkedSocketTransferProtocolReader(mockAsciiStream("FFS;OK;6;longer;FFS;DIE;3;x_X;"))
+          def holder = new MessageHolder()
+
+        when:
+          reader.readMessageRethrowErrors(holder)
+          def firstBuffer = holder.payloadBuffer
+          reader.readMessageRethrowErrors(holder)
+
+        then:
+          holder.payloadBuffer.is(firstBuffer)
+          holder.statusAsEnum == Status.DIE
+          holder.toMessage().data == asciiBytesOf("x_X")
+    }
+
+    @Unroll
+    "should throw #expectedException.simpleName after trying to read #message into the holder"() {
+        given:
+          def reader = new FriendlyForkedSocketTransferProtocolReader(mockAsciiStream(message))
+
+        when:
+          reader.readMessageRethrowErrors(new MessageHolder())
+
+        then:
+          def actualException = thrown expectedException
+          assert exceptionCheck(actualException)
+
+        where:
+          message                   | expectedException             | exceptionCheck
+          "FFS;OK;-1;test;"         | InvalidMessageLengthException | { true }
+          "FFS;OK;;test;"           | InvalidMessageLengthException | { true }
+          "FFS;OK;12x;test;"        | InvalidMessageLengthException | { true }
+          "FFS;OK;99999999999;x;"   | InvalidMessageLengthException | { true }
+          "FFS;NOOOoo-"             | MissingDataException          | { it.receivedData == asciiBytesOf("NOOOoo-") }
+          "FFS;OK;6;test-"          | MissingDataException          | { it.receivedData == null }
+          "FFS;OK;1;test;"          | MessageTooLongException       | { true }
+    }
+
+    def "should not allocate while reading messages into a warmed up holder"() {
+        given:
+          def messagesAmount = 100_000
+          def threadBean = ManagementFactory.threadMXBean
+          assert threadBean instanceof com.sun.management.ThreadMXBean
+          assert threadBean.threadAllocatedMemoryEnabled
+
+        when:
+          def allocatedBytes = ReceiveLoop.measureAllocatedBytes(threadBean as com.sun.management.ThreadMXBean, messagesAmount)
+
+        then:
+          allocatedBytes / messagesAmount < 1
+    }
+
+    @CompileStatic
+    static class ReceiveLoop {
+
+        static long measureAllocatedBytes(com.sun.management.ThreadMXBean threadBean, int messagesAmount) {
+            def frames = framesOf(messagesAmount)
+            def holder = new MessageHolder()
+
+            // warm-up grows the buffers of the holder and lets the JIT compile the read path
+            for (int i = 0; i < 5; ++i) {
+                readAll(new FriendlyForkedSocketTransferProtocolReader(new DataInputStream(new ByteArrayInputStream(frames))),
+                        holder, messagesAmount)
+            }
+
+            def reader = new FriendlyForkedSocketTransferProtocolReader(new DataInputStream(new ByteArrayInputStream(frames)))
+            def threadId = Thread.currentThread().id
+            long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId)
+            int checksum = readAll(reader, holder, messagesAmount)
+            long allocatedAfter = threadBean.getThreadAllocatedBytes(threadId)
+
+            assert checksum == messagesAmount
+            return allocatedAfter - allocatedBefore
+        }
+
+        private static int readAll(FriendlyForkedSocketTransferProtocolReader reader, MessageHolder holder, int messagesAmount) {
+            int okMessages = 0
+            for (int i = 0; i < messagesAmount; ++i) {
+                reader.readMessageRethrowErrors(holder)
+                if (holder.statusAsEnum == OK && holder.payloadLength > 0) {
+                    ++okMessages
+                }
+            }
+            return okMessages
+        }
+
+        private static byte[] framesOf(int messagesAmount) {
+            def frames = new ByteArrayOutputStream()
+            for (int i = 0; i < messagesAmount; ++i) {
+                frames.write(FriendlyForkedSocketTransferProtocolWriter.encodeFrame(Message.ok(asciiBytesOf("payload-" + i) as byte[])))
+            }
+            return frames.toByteArray()
+        }
+    }
+}
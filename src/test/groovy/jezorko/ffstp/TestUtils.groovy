@@ -1,5 +1,9 @@
 package jezorko.ffstp
 
+import jezorko.ffstp.serializers.StringSerializer
+
+import java.util.function.Function
+
 import static java.nio.charset.StandardCharsets.US_ASCII
 import static org.apache.commons.io.IOUtils.toInputStream
 
@@ -11,4 +15,102 @@ class TestUtils {
     static mockAsciiStream(String data) {
         new DataInputStream(toInputStream(data, US_ASCII))
     }
+
+    /**
+     * Creates a pair of connected loopback sockets, the first one being the client side.
+     */
+    static List<Socket> connectedSockets() {
+        def serverSocket = new ServerSocket(0, 1, InetAddress.loopbackAddress)
+        try {
+            def clientSocket = new Socket(InetAddress.loopbackAddress, serverSocket.localPort)
+            [clientSocket, serverSocket.accept()]
+        } finally {
+            serverSocket.close()
+        }
+    }
+
+    /**
+     * Returns a loopback address nothing listens on.
+     */
+    static InetSocketAddress unusedAddress() {
+        def serverSocket = new ServerSocket(0, 1, InetAddress.loopbackAddress)
+        serverSocket.close()
+        serverSocket.localSocketAddress as InetSocketAddress
+    }
+
+    /**
+     * Starts a server on an ephemeral loopback port that answers every request using the given handler.
+     */
+    static LocalServer startLocalServer(Function<Message<? extends String>, Message<? extends String>> handler,
+                                        FriendlyResponseCache responseCache = null) {
+        new LocalServer(handler, responseCache)
+    }
+
+    static class LocalServer implements AutoCloseable {
+        final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.loopbackAddress)
+        // guarded by this, so that sockets accepted while closing are closed as well
+        private final List<Socket> connections = []
+        private boolean closed
+        private final Thread acceptThread
+
+        LocalServer(Function<Message<? extends String>, Message<? extends String>> handler, FriendlyResponseCache responseCache) {
+            acceptThread = Thread.start {
+                while (!serverSocket.closed) {
+                    try {
+                        def socket = serverSocket.accept()
+                        if (!track(socket)) {
+                            // accepted just before the server was closed
+                            socket.close()
+                            continue
+                        }
+                        Thread.start {
+                            try {
+                                def server = new FriendlyServerTemplate<String>(socket, new StringSerializer(), responseCache)
+                                while (!socket.closed) {
+                                    server.waitForRequestAndReply(handler)
+                                }
+                            } catch (Exception ignored) {
+                                socket.close()
+                            }
+                        }
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+
+        private synchronized boolean track(Socket socket) {
+            if (!closed) {
+                connections << socket
+            }
+            !closed
+        }
+
+        /**
+         * Closes the connections accepted so far, while still accepting new ones.
+         */
+        synchronized void dropConnections() {
+            connections.each { it.close() }
+            connections.clear()
+        }
+
+        InetSocketAddress getAddress() {
+            new InetSocketAddress(InetAddress.loopbackAddress, serverSocket.localPort)
+        }
+
+        /**
+         * Closes the server and waits for the accepting thread to exit.
+         * Some JDKs release the listening socket only once that thread returns from accept,
+         * so until then connections would be reset instead of refused.
+         */
+        @Override
+        void close() {
+            synchronized (this) {
+                closed = true
+                serverSocket.close()
+                connections.each { it.close() }
+            }
+            acceptThread.join()
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package jezorko.ffstp
+
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import static java.lang.System.nanoTime
+import static java.util.concurrent.TimeUnit.NANOSECONDS
+
+@Timeout(10)
+class TokenBucketSpecTest extends Specification {
+
+    def "should take permits only while they are available"() {
+        given:
+          def bucket = new TokenBucket(1, 2)
+
+        expect:
+          bucket.tryAcquire(2)
+          !bucket.tryAcquire(1)
+    }
+
+    def "should wait for permits that are not available yet"() {
+        given:
+          def bucket = new TokenBucket(10, 1)
+          bucket.acquire(1)
+          def start = nanoTime()
+
+        when:
+          bucket.acquire(2)
+
+        then:
+          NANOSECONDS.toMillis(nanoTime() - start) >= 150
+    }
+
+    def "should stop waiting and keep the interrupt status when interrupted"() {
+        given:
+          def bucket = new TokenBucket(1, 1)
+          bucket.acquire(1)
+          def start = nanoTime()
+
+        when:
+          Thread.currentThread().interrupt()
+          bucket.acquire(5)
+
+        then:
+          Thread.interrupted()
+          NANOSECONDS.toMillis(nanoTime() - start) < 1000
+
+        and: "the reserved permits are not given back"
+          !bucket.tryAcquire(1)
+    }
+}
@@ -0,0 +1,148 @@
+package jezorko.ffstp.serializers
+
+import groovy.transform.EqualsAndHashCode
+import jezorko.ffstp.exception.BinarySerializationException
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Unroll
+
+class BinarySerializerSpecTest extends Specification {
+
+    enum Unit {
+        CELSIUS, KELVIN
+    }
+
+    @EqualsAndHashCode
+    static class Reading {
+        boolean valid
+        byte flags
+        short channel
+        char tag
+        int sequence
+        long timestamp
+        float quality
+        double value
+        Integer optionalCount
+        Double optionalValue
+        String sensor
+        Unit unit
+        byte[] raw
+        Reading previous
+    }
+
+    @EqualsAndHashCode
+    static class Envelope {
+        Object payload
+        String origin
+
+        private Envelope() {
+        }
+
+        Envelope(Object payload, String origin) {
+            this.payload = payload
+            this.origin = origin
+        }
+    }
+
+    @EqualsAndHashCode(callSuper = true)
+    static class CalibratedReading extends Reading {
+        double offset
+    }
+
+    static class NoDefaultConstructor {
+        NoDefaultConstructor(int value) {
+        }
+    }
+
+    @Subject
+    @Shared
+    def serializer = new BinarySerializer(Reading, Envelope, CalibratedReading)
+
+    static reading() {
+        new Reading(valid: true, flags: -3, channel: -300, tag: 'ż' as char, sequence: Integer.MIN_VALUE, timestamp: Long.MAX_VALUE,
+                    quality: 0.5f, value: -12.75d, optionalCount: 7, sensor: "ąę-sensor", unit: Unit.KELVIN, raw: [1, 2, 3] as byte[],
+                    previous: new Reading(sequence: 1, sensor: ""))
+    }
+
+    @Unroll
+    "should serialize and deserialize #data as equal"() {
+        when:
+          def serializedResult = serializer.serialize data
+
+        and:
+          def deserializedResult = serializer.deserialize serializedResult, Object
+
+        then:
+          deserializedResult == data
+
+        where:
+          data << [
+                  null,
+                  new Reading(),
+                  reading(),
+                  new CalibratedReading(sequence: 5, offset: 0.25d),
+                  new Envelope(reading(), "north"),
+                  new Envelope(new CalibratedReading(offset: 1), null),
+                  new Envelope(null, "south")
+          ]
+    }
+
+    def "should deserialize subtypes of the requested class"() {
+        when:
+          def result = serializer.deserialize(serializer.serialize(new CalibratedReading(offset: 2)), Reading)
+
+        then:
+          result instanceof CalibratedReading
+          result.offset == 2
+    }
+
+    def "should encode small values compactly"() {
+        expect:
+          serializer.serialize(new Envelope(null, "abc")).length == 6
+    }
+
+    def "should throw if the payload is not an instance of the requested class"() {
+        when:
+          serializer.deserialize(serializer.serialize(reading()), Envelope)
+
+        then:
+          thrown BinarySerializationException
+    }
+
+    def "should throw if a nested object is not registered"() {
+        when:
+          serializer.serialize(new Envelope(new Date(), "somewhere"))
+
+        then:
+          thrown BinarySerializationException
+    }
+
+    @Unroll
+    "should throw if the payload #description"() {
+        when:
+          serializer.deserialize(payload as byte[])
+
+        then:
+          thrown BinarySerializationException
+
+        where:
+          description              | payload
+          "has an unknown class id" | [42]
+          "ends prematurely"        | (serializer.serialize(reading()) as List).take(20)
+          "has trailing data"       | (serializer.serialize(reading()) as List) + [0]
+    }
+
+    @Unroll
+    "should refuse to register #registeredClasses"() {
+        when:
+          new BinarySerializer(registeredClasses as Class[])
+
+        then:
+          thrown BinarySerializationException
+
+        where:
+          registeredClasses << [[String], [Reading, Reading], [NoDefaultConstructor], [Runnable]]
+    }
+
+}
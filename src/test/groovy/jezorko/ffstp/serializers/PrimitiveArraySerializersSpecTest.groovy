@@ -0,0 +1,78 @@
+package jezorko.ffstp.serializers
+
+import jezorko.ffstp.exception.BinarySerializationException
+import jezorko.ffstp.serializers.DoubleArraySerializer.DoubleArray
+import jezorko.ffstp.serializers.FloatArraySerializer.FloatArray
+import jezorko.ffstp.serializers.IntArraySerializer.IntArray
+import jezorko.ffstp.serializers.LongArraySerializer.LongArray
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static java.nio.ByteOrder.BIG_ENDIAN
+import static java.nio.ByteOrder.LITTLE_ENDIAN
+
+class PrimitiveArraySerializersSpecTest extends Specification {
+
+    @Unroll
+    "#serializer.class.simpleName should serialize and deserialize #data.values as equal"() {
+        when:
+          def serializedResult = serializer.serialize data
+
+        and:
+          def deserializedResult = serializer.deserialize serializedResult
+
+        then:
+          deserializedResult == data
+
+        where:
+          serializer                               | data
+          new IntArraySerializer()                 | new IntArray([] as int[])
+          new IntArraySerializer(LITTLE_ENDIAN)    | new IntArray([1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE] as int[])
+          new LongArraySerializer()                | new LongArray([1, -2, Long.MAX_VALUE, Long.MIN_VALUE] as long[])
+          new FloatArraySerializer(LITTLE_ENDIAN)  | new FloatArray([0.5f, -1e30f, Float.NaN, Float.NEGATIVE_INFINITY] as float[])
+          new DoubleArraySerializer()              | new DoubleArray([0.1d, -1e300d, Double.MIN_VALUE, Double.NaN] as double[])
+          new DeltaIntArraySerializer()            | new IntArray([] as int[])
+          new DeltaIntArraySerializer()            | new IntArray([10, 11, 15, 15, 3, Integer.MIN_VALUE, Integer.MAX_VALUE] as int[])
+          new DeltaLongArraySerializer()           | new LongArray([1_600_000_000_000, 1_600_000_000_001, Long.MIN_VALUE, Long.MAX_VALUE] as long[])
+    }
+
+    def "should encode values in the declared byte order"() {
+        given:
+          def data = new IntArray([1] as int[])
+
+        expect:
+          new IntArraySerializer(BIG_ENDIAN).serialize(data) == [0, 0, 0, 1] as byte[]
+          new IntArraySerializer(LITTLE_ENDIAN).serialize(data) == [1, 0, 0, 0] as byte[]
+          new DoubleArraySerializer(LITTLE_ENDIAN).serialize(new DoubleArray([1d] as double[])) ==
+                  new LongArraySerializer(LITTLE_ENDIAN).serialize(new LongArray([Double.doubleToLongBits(1d)] as long[]))
+    }
+
+    def "should encode sorted values compactly"() {
+        given:
+          def timestamps = new LongArray((0..<1000).collect { 1_600_000_000_000 + it * 10 } as long[])
+
+        when:
+          def serializedResult = new DeltaLongArraySerializer().serialize timestamps
+
+        then:
+          serializedResult.length < 1010
+          new DeltaLongArraySerializer().deserialize(serializedResult) == timestamps
+    }
+
+    @Unroll
+    "#serializer.class.simpleName should throw if the payload is malformed"() {
+        when:
+          serializer.deserialize payload as byte[]
+
+        then:
+          thrown BinarySerializationException
+
+        where:
+          serializer                     | payload
+          new IntArraySerializer()       | [1, 2, 3]
+          new DoubleArraySerializer()    | [1, 2, 3, 4]
+          new DeltaIntArraySerializer()  | [2, 2]
+          new DeltaLongArraySerializer() | [1, 2, 2]
+    }
+
+}
@@ -0,0 +1,135 @@
+package jezorko.ffstp.tools
+
+import jezorko.ffstp.FriendlyClientTemplate
+import jezorko.ffstp.FriendlyServerTemplate
+import jezorko.ffstp.FriendlyTemplate
+import jezorko.ffstp.Message
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.nio.file.Files
+import java.util.stream.Collectors
+
+import static jezorko.ffstp.FrameDirection.INBOUND
+import static jezorko.ffstp.FrameDirection.OUTBOUND
+import static jezorko.ffstp.TestUtils.connectedSockets
+import static jezorko.ffstp.TestUtils.startLocalServer
+
+@Timeout(10)
+class FrameCaptureSpecTest extends Specification {
+
+    def directory = Files.createTempDirectory("ffstp-capture")
+    def sockets = connectedSockets()
+
+    void cleanup() {
+        sockets*.close()
+        directory.toFile().deleteDir()
+    }
+
+    static expectedFrame(String status, String data) {
+        def payload = new StringSerializer().serialize(data)
+        ("FFS;${status};${payload.length};".getBytes("US-ASCII") as List) + (payload as List) + [(byte) 59]
+    }
+
+    def "should capture frames in both directions"() {
+        given:
+          def capture = new FrameCapture(directory, "server", 4096, 4, 100)
+          def server = new FriendlyServerTemplate<String>(new FriendlyTemplate<String>(sockets[1], new StringSerializer(), capture), null)
+          def client = new FriendlyClientTemplate<String>(sockets[0], new StringSerializer())
+
+        when:
+          def serverThread = Thread.start { server.waitForRequestAndReply { Message.ok(it.data.toUpperCase()) } }
+          def response = client.sendAndAwaitResponse(Message.ok("hello"))
+          serverThread.join()
+          capture.close()
+
+        and:
+          def frames = FrameLog.read(directory, "server").collect(Collectors.toList())
+
+        then:
+          response.data == "HELLO"
+          capture.capturedCount == 2
+          capture.droppedCount == 0
+          frames*.direction == [INBOUND, OUTBOUND]
+          frames[0].frames as List == expectedFrame("OK", "hello")
+          frames[1].frames as List == expectedFrame("OK", "HELLO")
+          frames[0].capturedAtNanos <= frames[1].capturedAtNanos
+    }
+
+    def "should keep only the most recent segments"() {
+        given:
+          def capture = new FrameCapture(directory, "client", 128, 2, 100)
+          def writer = new FriendlyTemplate<String>(sockets[0], new StringSerializer(), capture)
+
+        when:
+          (0..<20).each { writer.writeMessage(Message.ok("message " + it)) }
+          capture.close()
+
+        and:
+          def frames = FrameLog.read(directory, "client").collect(Collectors.toList())
+
+        then:
+          Files.list(directory).count() == 2
+          frames.size() > 0
+          frames.size() < 20
+          frames.last().frames as List == expectedFrame("OK", "message 19")
+          frames.every { it.direction == OUTBOUND }
+    }
+
+    def "should refuse to overwrite an existing log"() {
+        given:
+          def capture = new FrameCapture(directory, "client", 4096, 4, 100)
+          def writer = new FriendlyTemplate<String>(sockets[0], new StringSerializer(), capture)
+
+        and:
+          writer.writeMessage(Message.ok("first"))
+          capture.close()
+
+        when:
+          new FrameCapture(directory, "client", 4096, 4, 100)
+
+        then:
+          def exception = thrown(IllegalArgumentException)
+          exception.message.contains("client")
+
+        and:
+          FrameLog.read(directory, "client").count() == 1
+    }
+
+    def "should replay captured requests to a server"() {
+        given:
+          def handledRequests = [].asSynchronized()
+          def server = startLocalServer { handledRequests << it.data; Message.ok(it.data) }
+          def capture = new FrameCapture(directory, "client", 4096, 4, 100)
+          def writer = new FriendlyTemplate<String>(sockets[0], new StringSerializer(), capture)
+
+        and:
+          writer.writeMessage(Message.ok("first"))
+          sleep 200
+          writer.writeMessage(Message.ok("second"))
+          capture.close()
+
+        when:
+          def start = System.nanoTime()
+          def responses = new FrameReplayer(server.address, 1).replay(FrameLog.read(directory, "client"), OUTBOUND)
+          def elapsedMillis = (System.nanoTime() - start) / 1_000_000
+
+        then:
+          responses == 2
+          handledRequests == ["first", "second"]
+          elapsedMillis >= 150
+
+        when:
+          handledRequests.clear()
+          responses = new FrameReplayer(server.address, Double.POSITIVE_INFINITY).replay(FrameLog.read(directory, "client"), INBOUND)
+
+        then:
+          responses == 0
+          handledRequests.isEmpty()
+
+        cleanup:
+          server.close()
+    }
+
+}
@@ -0,0 +1,69 @@
+package jezorko.ffstp.tools
+
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Unroll
+
+class LatencyHistogramSpecTest extends Specification {
+
+    @Subject
+    def histogram = new LatencyHistogram()
+
+    def "should report zeros if nothing was recorded"() {
+        expect:
+          histogram.totalCount == 0
+          histogram.min == 0
+          histogram.max == 0
+          histogram.getValueAtPercentile(99) == 0
+    }
+
+    @Unroll
+    "should report the #percentile percentile within one percent"() {
+        given:
+          (1..100_000).each { histogram.record(it * 1000L) }
+
+        when:
+          def value = histogram.getValueAtPercentile(percentile)
+
+        then:
+          Math.abs(value - expectedValue) <= expectedValue * 0.01
+
+        where:
+          percentile | expectedValue
+          50         | 50_000_000
+          99         | 99_000_000
+          99.9       | 99_900_000
+          100        | 100_000_000
+    }
+
+    def "should record small values exactly and keep track of extremes"() {
+        given:
+          [3, 7, 7, 200, Long.MAX_VALUE, -5].each { histogram.record(it) }
+
+        expect:
+          histogram.totalCount == 6
+          histogram.min == 0
+          histogram.max == Long.MAX_VALUE
+          histogram.getValueAtPercentile(50) == 7
+          histogram.getValueAtPercentile(70) == 200
+          histogram.getValueAtPercentile(100) == Long.MAX_VALUE
+    }
+
+    def "should combine histograms"() {
+        given:
+          def other = new LatencyHistogram()
+          histogram.record(10)
+          other.record(20)
+          other.record(30)
+
+        when:
+          histogram.add(other)
+
+        then:
+          histogram.totalCount == 3
+          histogram.min == 10
+          histogram.max == 30
+          histogram.getValueAtPercentile(50) == 20
+    }
+
+}
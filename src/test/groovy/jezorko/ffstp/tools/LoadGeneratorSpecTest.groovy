@@ -0,0 +1,77 @@
+package jezorko.ffstp.tools
+
+import jezorko.ffstp.Message
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.TimeUnit
+
+import static jezorko.ffstp.TestUtils.startLocalServer
+
+@Timeout(10)
+class LoadGeneratorSpecTest extends Specification {
+
+    def server = startLocalServer { Message.ok(it.data) }
+
+    void cleanup() {
+        server.close()
+    }
+
+    def "should keep the target rate in the open model"() {
+        given:
+          def loadGenerator = new LoadGenerator(server.address, 2, 16, 200, "OK", "PING")
+
+        when:
+          def report = loadGenerator.run(500, TimeUnit.MILLISECONDS)
+
+        then:
+          report.errorsCount == 0
+          report.requestsCount == 100
+          report.latencies.totalCount == 100
+          report.latencies.max > 0
+    }
+
+    def "should charge a stalled server for every delayed request in the open model"() {
+        given:
+          def stallingServer = startLocalServer { sleep 100; Message.ok(it.data) }
+          def loadGenerator = new LoadGenerator(stallingServer.address, 1, 16, 20, "OK")
+
+        when:
+          def report = loadGenerator.run(500, TimeUnit.MILLISECONDS)
+
+        then: "requests scheduled during the stall have waited for it as well"
+          report.requestsCount == 10
+          report.latencies.getValueAtPercentile(50) > TimeUnit.MILLISECONDS.toNanos(250)
+
+        cleanup:
+          stallingServer.close()
+    }
+
+    def "should send requests back to back in the closed model"() {
+        given:
+          def loadGenerator = new LoadGenerator(server.address, 2, 0, 0, "OK")
+
+        when:
+          def report = loadGenerator.run(300, TimeUnit.MILLISECONDS)
+
+        then:
+          report.errorsCount == 0
+          report.requestsCount > 0
+          report.throughput > 0
+          report.toString().contains("p99.9=")
+    }
+
+    def "should count failed connections as errors"() {
+        given:
+          server.close()
+          def loadGenerator = new LoadGenerator(server.address, 3, 16, 0, "OK")
+
+        when:
+          def report = loadGenerator.run(100, TimeUnit.MILLISECONDS)
+
+        then:
+          report.errorsCount == 3
+          report.requestsCount == 0
+    }
+
+}
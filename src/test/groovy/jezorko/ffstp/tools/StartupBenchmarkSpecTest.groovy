@@ -0,0 +1,40 @@
+package jezorko.ffstp.tools
+
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.TimeUnit
+
+@Timeout(10)
+class StartupBenchmarkSpecTest extends Specification {
+
+    def "should report when responses became fast"() {
+        given:
+          def benchmark = new StartupBenchmark(64, 1, TimeUnit.SECONDS, 5, 0)
+
+        when:
+          def report = benchmark.run(100)
+
+        then:
+          report.requestsUntilFast == 0
+          report.latencies.totalCount == 5
+          report.warmUpNanos == 0
+          report.timeToFirstResponseNanos > 0
+          report.timeToFastResponseNanos == report.timeToFirstResponseNanos
+          report.firstResponseLatencyNanos > 0
+    }
+
+    def "should give up after the given amount of requests if responses never become fast"() {
+        given:
+          def benchmark = new StartupBenchmark(64, 1, TimeUnit.NANOSECONDS, 1, 10)
+
+        when:
+          def report = benchmark.run(20)
+
+        then:
+          report.requestsUntilFast == -1
+          report.timeToFastResponseNanos == -1
+          report.latencies.totalCount == 20
+          report.warmUpNanos > 0
+    }
+}
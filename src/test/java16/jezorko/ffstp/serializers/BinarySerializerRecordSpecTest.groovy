@@ -0,0 +1,42 @@
+package jezorko.ffstp.serializers
+
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Unroll
+
+class BinarySerializerRecordSpecTest extends Specification {
+
+    @Subject
+    @Shared
+    def serializer = new BinarySerializer(SensorSample, SensorSample.Marker)
+
+    static sample() {
+        new SensorSample(true, (byte) -3, (short) -300, 'ż' as char, Integer.MIN_VALUE, Long.MAX_VALUE, 0.5f, -12.75d, 7, "ąę-sensor",
+                         new SensorSample(false, (byte) 0, (short) 0, 'a' as char, 1, 0, 0, 0, null, "", null))
+    }
+
+    @Unroll
+    "should serialize and deserialize #data as equal"() {
+        when:
+          def serializedResult = serializer.serialize data
+
+        and:
+          def deserializedResult = serializer.deserialize serializedResult, Object
+
+        then:
+          deserializedResult == data
+
+        where:
+          data << [
+                  sample(),
+                  new SensorSample(false, (byte) 0, (short) 0, 0 as char, 0, 0, 0, 0, null, null, null),
+                  new SensorSample.Marker()
+          ]
+    }
+
+    def "should encode records with the same layout as plain classes"() {
+        expect: "class id, valid, flags, channel, tag, sequence, timestamp, quality (4 bytes), value (8 bytes), and three nulls"
+          serializer.serialize(new SensorSample(true, (byte) 1, (short) 1, 'a' as char, 1, 1, 0, 0, null, null, null)).length == 22
+    }
+}
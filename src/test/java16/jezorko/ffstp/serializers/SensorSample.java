@@ -0,0 +1,14 @@
+package jezorko.ffstp.serializers;
+
+/**
+ * A record with components of every primitive type, nullable values and a nested record, for BinarySerializerRecordSpecTest.
+ */
+public record SensorSample(boolean valid, byte flags, short channel, char tag, int sequence, long timestamp, float quality, double value,
+                           Integer optionalCount, String sensor, SensorSample previous) {
+
+    /**
+     * A record without components.
+     */
+    public record Marker() {
+    }
+}
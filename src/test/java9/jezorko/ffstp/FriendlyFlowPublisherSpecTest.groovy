@@ -0,0 +1,144 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.exception.MissingDataException
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executors
+import java.util.concurrent.Flow
+import java.util.concurrent.atomic.AtomicInteger
+
+import static jezorko.ffstp.TestUtils.connectedSockets
+
+@Timeout(10)
+class FriendlyFlowPublisherSpecTest extends Specification {
+
+    static class RecordingSubscriber implements Flow.Subscriber<Message<String>> {
+        final List<String> received = new CopyOnWriteArrayList<>()
+        final CompletableFuture<Void> completion = new CompletableFuture<>()
+        Flow.Subscription subscription
+
+        @Override
+        void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription
+        }
+
+        @Override
+        void onNext(Message<String> message) {
+            received << message.data
+        }
+
+        @Override
+        void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable)
+        }
+
+        @Override
+        void onComplete() {
+            completion.complete(null)
+        }
+    }
+
+    def sockets = connectedSockets()
+    def framesRead = new AtomicInteger()
+    def peer = new FriendlyTemplate<String>(sockets[0], new StringSerializer())
+    def template = new FriendlyTemplate<String>(sockets[1], new StringSerializer(), { direction, frames, offset, length ->
+        framesRead.incrementAndGet()
+    } as FrameListener)
+    def executor = Executors.newCachedThreadPool()
+    def publisher = new FriendlyFlowPublisher<String>(template, executor)
+    def subscriber = new RecordingSubscriber()
+    def conditions = new PollingConditions(timeout: 5)
+
+    void cleanup() {
+        sockets*.close()
+        executor.shutdownNow()
+    }
+
+    def "should read only as many messages as requested"() {
+        given:
+          (0..<5).each { peer.writeMessage(Message.ok("message " + it)) }
+          publisher.subscribe(subscriber)
+
+        when:
+          subscriber.subscription.request(2)
+
+        then:
+          conditions.eventually { assert subscriber.received == ["message 0", "message 1"] }
+          sleep 100
+          framesRead.get() == 2
+
+        when:
+          subscriber.subscription.request(3)
+
+        then:
+          conditions.eventually { assert subscriber.received == (0..<5).collect { "message " + it } }
+          framesRead.get() == 5
+    }
+
+    def "should stop reading once cancelled"() {
+        given:
+          (0..<3).each { peer.writeMessage(Message.ok("message " + it)) }
+          publisher.subscribe(subscriber)
+
+        when:
+          subscriber.subscription.request(1)
+          conditions.eventually { assert subscriber.received == ["message 0"] }
+          subscriber.subscription.cancel()
+          subscriber.subscription.request(5)
+          sleep 100
+
+        then:
+          subscriber.received == ["message 0"]
+          framesRead.get() == 1
+          !subscriber.completion.done
+    }
+
+    def "should complete once the peer closes the connection between messages"() {
+        given:
+          (0..<2).each { peer.writeMessage(Message.ok("message " + it)) }
+          sockets[0].close()
+          publisher.subscribe(subscriber)
+
+        when:
+          subscriber.subscription.request(10)
+          subscriber.completion.get()
+
+        then:
+          subscriber.received == ["message 0", "message 1"]
+    }
+
+    def "should fail once the peer closes the connection in the middle of a message"() {
+        given:
+          sockets[0].outputStream.write("FFS;OK;10;abc".bytes)
+          sockets[0].close()
+          publisher.subscribe(subscriber)
+
+        when:
+          subscriber.subscription.request(1)
+          subscriber.completion.join()
+
+        then:
+          def exception = thrown Exception
+          exception.cause instanceof MissingDataException
+          !exception.cause.endOfStream
+    }
+
+    def "should allow a single subscriber only"() {
+        given:
+          publisher.subscribe(subscriber)
+          def secondSubscriber = new RecordingSubscriber()
+
+        when:
+          publisher.subscribe(secondSubscriber)
+          secondSubscriber.completion.join()
+
+        then:
+          def exception = thrown Exception
+          exception.cause instanceof IllegalStateException
+    }
+}
@@ -0,0 +1,93 @@
+package jezorko.ffstp
+
+import jezorko.ffstp.exception.RethrownException
+import jezorko.ffstp.serializers.StringSerializer
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Flow
+import java.util.concurrent.SubmissionPublisher
+
+import static jezorko.ffstp.TestUtils.connectedSockets
+
+@Timeout(10)
+class FriendlyFlowSubscriberSpecTest extends Specification {
+
+    def sockets = connectedSockets()
+    def peer = new FriendlyTemplate<String>(sockets[1], new StringSerializer())
+    def subscriber = new FriendlyFlowSubscriber<String>(new FriendlyTemplate<String>(sockets[0], new StringSerializer()), 4)
+
+    void cleanup() {
+        sockets*.close()
+    }
+
+    def "should write every published message and complete with the publisher"() {
+        given:
+          def publisher = new SubmissionPublisher<Message<String>>()
+          publisher.subscribe(subscriber)
+
+        when:
+          (0..<10).each { publisher.submit(Message.ok("message " + it)) }
+          publisher.close()
+          def received = (0..<10).collect { peer.readMessage().data }
+
+        then:
+          received == (0..<10).collect { "message " + it }
+          subscriber.completion.get() == null
+    }
+
+    def "should request at most the prefetch amount ahead"() {
+        given:
+          def requests = new CopyOnWriteArrayList<Long>()
+          def subscription = Mock(Flow.Subscription) {
+              request(_) >> { long n -> requests << n }
+          }
+
+        when:
+          subscriber.onSubscribe(subscription)
+
+        then:
+          requests == [4L]
+
+        when:
+          (0..<4).each { subscriber.onNext(Message.ok("message " + it)) }
+
+        then: "demand is replenished in halves of the prefetch"
+          requests == [4L, 2L, 2L]
+    }
+
+    def "should cancel the subscription once writing fails"() {
+        given:
+          def subscription = Mock(Flow.Subscription)
+          subscriber.onSubscribe(subscription)
+          sockets[0].close()
+
+        when:
+          subscriber.onNext(Message.ok("too late"))
+
+        then:
+          1 * subscription.cancel()
+
+        when:
+          subscriber.completion.get()
+
+        then:
+          def exception = thrown ExecutionException
+          exception.cause instanceof RethrownException
+    }
+
+    def "should fail with the publisher"() {
+        given:
+          subscriber.onSubscribe(Mock(Flow.Subscription))
+
+        when:
+          subscriber.onError(new IllegalStateException("upstream failed"))
+          subscriber.completion.get()
+
+        then:
+          def exception = thrown ExecutionException
+          exception.cause.message == "upstream failed"
+    }
+}